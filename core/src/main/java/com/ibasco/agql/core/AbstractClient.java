@@ -24,13 +24,24 @@
 
 package com.ibasco.agql.core;
 
+import com.ibasco.agql.core.enums.AdmissionPolicy;
+import com.ibasco.agql.core.enums.ExpiryMode;
 import com.ibasco.agql.core.enums.RequestPriority;
-import com.ibasco.agql.core.utils.ConcurrentUtils;
+import com.ibasco.agql.core.functions.TriConsumer;
+import com.ibasco.agql.core.messenger.hedging.HedgingPolicy;
+import com.ibasco.agql.core.messenger.metrics.MessengerMetrics;
+import com.ibasco.agql.core.messenger.pacing.DestinationRateLimiter;
+import com.ibasco.agql.core.messenger.retry.RetryPolicy;
+import com.ibasco.agql.core.messenger.timing.LateResponseListener;
+import com.ibasco.agql.core.messenger.timing.RttEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 abstract public class AbstractClient<Req extends AbstractRequest,
         Res extends AbstractResponse,
@@ -51,9 +62,107 @@ abstract public class AbstractClient<Req extends AbstractRequest,
 
     protected <V> CompletableFuture<V> sendRequest(Req message, RequestPriority priority) {
         log.debug("Client '{}' Sending request : {}", this.getClass().getSimpleName(), message);
-        //Send the request then transform the result once a response is received
-        ConcurrentUtils.sleepUninterrupted(10);
-        return messenger.send(message, priority).thenApply(this::convertToResultType);
+        //Send the request then transform the result once a response is received. Pacing is handled by the messenger.
+        return convert(messenger.send(message, priority));
+    }
+
+    /**
+     * Sends a request with the default priority which has to complete within the specified time, overriding the
+     * default timeout of the client
+     *
+     * @param message
+     *         The request to be sent
+     * @param timeout
+     *         The time allotted to the request, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     * @param <V>
+     *         The type of the result
+     *
+     * @return A {@link CompletableFuture} which is completed exceptionally with a {@link
+     * com.ibasco.agql.core.exceptions.DeadlineExceededException} if the request could not be sent in time
+     *
+     * @see #sendRequest(AbstractRequest, RequestPriority, long, TimeUnit)
+     */
+    public <V> CompletableFuture<V> sendRequest(Req message, long timeout, TimeUnit unit) {
+        return sendRequest(message, AbstractMessenger.DEFAULT_REQUEST_PRIORITY, timeout, unit);
+    }
+
+    /**
+     * Sends a request which has to complete within the specified time, overriding the default timeout of the client
+     *
+     * @param message
+     *         The request to be sent
+     * @param priority
+     *         The {@link RequestPriority} of the request
+     * @param timeout
+     *         The time allotted to the request, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     * @param <V>
+     *         The type of the result
+     *
+     * @return A {@link CompletableFuture} which is completed exceptionally with a {@link
+     * com.ibasco.agql.core.exceptions.DeadlineExceededException} if the request could not be sent in time
+     *
+     * @see AbstractMessenger#send(AbstractRequest, RequestPriority, long, TimeUnit)
+     */
+    public <V> CompletableFuture<V> sendRequest(Req message, RequestPriority priority, long timeout, TimeUnit unit) {
+        log.debug("Client '{}' Sending request : {} (Timeout: {} {})", this.getClass().getSimpleName(), message, timeout, unit);
+        return convert(messenger.send(message, priority, timeout, unit));
+    }
+
+    /**
+     * <p>Sends a group of requests in bulk, notifying the callback as each of them completes. This is considerably
+     * cheaper than calling {@link #sendRequest(AbstractRequest)} in a loop when a large number of requests is issued
+     * at once (e.g. scanning servers).</p>
+     *
+     * @param requests
+     *         A {@link Collection} of requests to be sent
+     * @param callback
+     *         A {@link TriConsumer} invoked with the request and its result (or error) upon completion
+     * @param <V>
+     *         The type of the result
+     *
+     * @return A {@link CompletableFuture} which is completed once every request has completed and its callback
+     * has been invoked
+     */
+    public <V> CompletableFuture<Void> sendAll(Collection<? extends Req> requests, TriConsumer<Req, V, Throwable> callback) {
+        return sendAll(requests.stream(), callback);
+    }
+
+    /**
+     * <p>Sends a group of requests in bulk, notifying the callback as each of them completes. The stream is consumed
+     * lazily by the calling thread.</p>
+     *
+     * @param requests
+     *         A {@link Stream} of requests to be sent
+     * @param callback
+     *         A {@link TriConsumer} invoked with the request and its result (or error) upon completion
+     * @param <V>
+     *         The type of the result
+     *
+     * @return A {@link CompletableFuture} which is completed once every request has completed and its callback
+     * has been invoked
+     *
+     * @see #sendAll(Collection, TriConsumer)
+     */
+    public <V> CompletableFuture<Void> sendAll(Stream<? extends Req> requests, TriConsumer<Req, V, Throwable> callback) {
+        return messenger.sendAll(requests.iterator(), AbstractMessenger.DEFAULT_REQUEST_PRIORITY, (request, response, error) ->
+                callback.accept(request, (response != null) ? this.<V>convertToResultType(response) : null, error));
+    }
+
+    /**
+     * Transforms the response of the messenger to the result type. Cancelling the returned future also cancels the
+     * future of the messenger, so that a request which has not been sent yet is dropped.
+     */
+    private <V> CompletableFuture<V> convert(CompletableFuture<Res> promise) {
+        final CompletableFuture<V> result = promise.thenApply(this::convertToResultType);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled())
+                promise.cancel(false);
+        });
+        return result;
     }
 
     @SuppressWarnings("unchecked")
@@ -61,6 +170,181 @@ abstract public class AbstractClient<Req extends AbstractRequest,
         return (V) message.getMessage();
     }
 
+    /**
+     * Sets the {@link DestinationRateLimiter} used by the underlying messenger to pace requests per destination.
+     *
+     * @param rateLimiter
+     *         The {@link DestinationRateLimiter} to use or <code>null</code> to disable pacing
+     */
+    public void setRateLimiter(DestinationRateLimiter rateLimiter) {
+        messenger.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * Sets the maximum number of requests which can be awaiting a response at the same time
+     *
+     * @param maxInFlight
+     *         A positive number representing the size of the in-flight window
+     *
+     * @see AbstractMessenger#setMaxInFlight(int)
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        messenger.setMaxInFlight(maxInFlight);
+    }
+
+    /**
+     * Sets the maximum number of requests which can be queued by the underlying messenger
+     *
+     * @param maxQueueDepth
+     *         A positive number representing the maximum depth of the queue
+     *
+     * @see AbstractMessenger#setMaxQueueDepth(int)
+     */
+    public void setMaxQueueDepth(int maxQueueDepth) {
+        messenger.setMaxQueueDepth(maxQueueDepth);
+    }
+
+    /**
+     * Sets the {@link AdmissionPolicy} applied by the underlying messenger once its queue is full
+     *
+     * @param admissionPolicy
+     *         The {@link AdmissionPolicy} to use
+     */
+    public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        messenger.setAdmissionPolicy(admissionPolicy);
+    }
+
+    /**
+     * Sets the time a queued request has to wait before being promoted to the next priority level
+     *
+     * @param interval
+     *         The aging interval, zero to disable aging
+     * @param unit
+     *         The {@link TimeUnit} of the interval
+     *
+     * @see AbstractMessenger#setAgingInterval(long, TimeUnit)
+     */
+    public void setAgingInterval(long interval, TimeUnit unit) {
+        messenger.setAgingInterval(interval, unit);
+    }
+
+    /**
+     * Sets the default time allotted to each request of this client, from submission until a response is received
+     *
+     * @param timeout
+     *         The timeout, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @see AbstractMessenger#setDefaultTimeout(long, TimeUnit)
+     */
+    public void setRequestTimeout(long timeout, TimeUnit unit) {
+        messenger.setDefaultTimeout(timeout, unit);
+    }
+
+    /**
+     * Sets the {@link RetryPolicy} applied to a specific request type of this client
+     *
+     * @param requestType
+     *         The class of the request
+     * @param retryPolicy
+     *         The {@link RetryPolicy} to use or <code>null</code> to fall back to the default policy
+     *
+     * @see AbstractMessenger#setRetryPolicy(Class, RetryPolicy)
+     */
+    public void setRetryPolicy(Class<? extends Req> requestType, RetryPolicy retryPolicy) {
+        messenger.setRetryPolicy(requestType, retryPolicy);
+    }
+
+    /**
+     * Sets the {@link RetryPolicy} applied to the requests of this client which have not been assigned a specific
+     * policy
+     *
+     * @param retryPolicy
+     *         The {@link RetryPolicy} to use or <code>null</code> to disable retries
+     *
+     * @see AbstractMessenger#setDefaultRetryPolicy(RetryPolicy)
+     */
+    public void setDefaultRetryPolicy(RetryPolicy retryPolicy) {
+        messenger.setDefaultRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Enables hedging for a specific request type of this client: if no response has been received once the hedge
+     * delay of the policy has elapsed, the request is sent again and the first response wins
+     *
+     * @param requestType
+     *         The class of the request
+     * @param hedgingPolicy
+     *         The {@link HedgingPolicy} to use or <code>null</code> to disable hedging
+     *
+     * @see AbstractMessenger#setHedgingPolicy(Class, HedgingPolicy)
+     */
+    public void setHedgingPolicy(Class<? extends Req> requestType, HedgingPolicy hedgingPolicy) {
+        messenger.setHedgingPolicy(requestType, hedgingPolicy);
+    }
+
+    /**
+     * Enables or disables the coalescing of a request type: while a request of this type is pending, identical
+     * requests are attached to it instead of being sent again
+     *
+     * @param requestType
+     *         The class of the request
+     * @param enabled
+     *         <code>true</code> to coalesce identical requests of this type
+     *
+     * @see AbstractMessenger#setCoalescing(Class, boolean)
+     */
+    public void setCoalescing(Class<? extends Req> requestType, boolean enabled) {
+        messenger.setCoalescing(requestType, enabled);
+    }
+
+    /**
+     * Sets the {@link RttEstimator} used by the underlying messenger to derive the read timeout of each destination
+     * from its measured round trip times
+     *
+     * @param rttEstimator
+     *         The {@link RttEstimator} to use or <code>null</code> to use the default read timeout
+     *
+     * @see AbstractMessenger#setRttEstimator(RttEstimator)
+     */
+    public void setRttEstimator(RttEstimator rttEstimator) {
+        messenger.setRttEstimator(rttEstimator);
+    }
+
+    /**
+     * Sets the listener notified of the responses which arrived after their request timed out
+     *
+     * @param listener
+     *         The {@link LateResponseListener} to notify or <code>null</code> to only count late responses
+     *
+     * @see AbstractMessenger#setLateResponseListener(LateResponseListener)
+     */
+    public void setLateResponseListener(LateResponseListener<Req, Res> listener) {
+        messenger.setLateResponseListener(listener);
+    }
+
+    /**
+     * Sets how requests which did not receive a response in time are detected
+     *
+     * @param expiryMode
+     *         The {@link ExpiryMode} to use
+     *
+     * @see AbstractMessenger#setExpiryMode(ExpiryMode)
+     */
+    public void setExpiryMode(ExpiryMode expiryMode) {
+        messenger.setExpiryMode(expiryMode);
+    }
+
+    /**
+     * @return The {@link MessengerMetrics} of the underlying messenger
+     *
+     * @see AbstractMessenger#getMetrics()
+     */
+    public MessengerMetrics getMetrics() {
+        return messenger.getMetrics();
+    }
+
     protected M getMessenger() {
         return messenger;
     }
@@ -22,30 +22,69 @@
  * SOFTWARE.
  */
 
+
 package com.ibasco.agql.core;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibasco.agql.core.enums.AdmissionPolicy;
+import com.ibasco.agql.core.enums.ExpiryMode;
 import com.ibasco.agql.core.enums.ProcessingMode;
 import com.ibasco.agql.core.enums.RequestPriority;
 import com.ibasco.agql.core.enums.RequestStatus;
+import com.ibasco.agql.core.exceptions.DeadlineExceededException;
+import com.ibasco.agql.core.exceptions.RequestRejectedException;
+import com.ibasco.agql.core.functions.TriConsumer;
 import com.ibasco.agql.core.exceptions.ResponseException;
+import com.ibasco.agql.core.messenger.coalescing.RequestCoalescer;
+import com.ibasco.agql.core.messenger.hedging.HedgingPolicy;
+import com.ibasco.agql.core.messenger.metrics.MessengerMetrics;
+import com.ibasco.agql.core.messenger.pacing.DestinationRateLimiter;
+import com.ibasco.agql.core.messenger.retry.RetryPolicy;
+import com.ibasco.agql.core.messenger.scheduling.RequestScheduler;
+import com.ibasco.agql.core.messenger.timing.LateResponseListener;
+import com.ibasco.agql.core.messenger.timing.LateResponseTracker;
+import com.ibasco.agql.core.messenger.timing.RttEstimator;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.session.*;
-import com.ibasco.agql.core.utils.ConcurrentUtils;
+import com.ibasco.agql.core.transport.NettyTransport;
+import com.ibasco.agql.core.utils.BoundedCounter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * <p>The base implementation of the {@link Messenger} interface. Contains an internal queue for the requests and
  * process them based on priority</p>
  *
+ * <p>Requests can optionally be sharded by their recipient address onto multiple independent lanes, each having its
+ * own queue, {@link SessionManager} and dispatcher thread, so that unrelated destinations do not contend on the same
+ * locks. All requests (and responses) of a given destination are always handled by the same lane.</p>
+ *
  * @param <A>
  *         {@link AbstractRequest}
  * @param <B>
@@ -56,52 +95,196 @@ abstract public class AbstractMessenger<A extends AbstractRequest, B extends Abs
     private static final Logger log = LoggerFactory.getLogger(AbstractMessenger.class);
 
     public static final RequestPriority DEFAULT_REQUEST_PRIORITY = RequestPriority.MEDIUM;
+    public static final int DEFAULT_DISPATCH_BATCH_SIZE = 256;
+    public static final AdmissionPolicy DEFAULT_ADMISSION_POLICY = AdmissionPolicy.AWAIT;
     private static final int DEFAULT_REQUEST_QUEUE_CAPACITY = 50;
-    private final AtomicBoolean processRequests = new AtomicBoolean(false);
-    private ScheduledExecutorService messengerService;
+    private final AtomicBoolean processRequests = new AtomicBoolean(true);
 
-    private SessionManager<A, B> sessionManager;
+    private final Lane[] lanes;
     private Transport<A> transport;
-    private PriorityBlockingQueue<RequestDetails<A, B>> requestQueue;
-    private Consumer<PriorityBlockingQueue<RequestDetails<A, B>>> requestProcessor;
     private ProcessingMode processingMode;
+    private final SharedRuntime runtime;
+    private volatile int dispatchBatchSize = DEFAULT_DISPATCH_BATCH_SIZE;
+    private volatile DestinationRateLimiter rateLimiter = new DestinationRateLimiter();
+    private volatile AdmissionPolicy admissionPolicy = DEFAULT_ADMISSION_POLICY;
+    private volatile long defaultTimeout = 0;
+    private volatile RetryPolicy defaultRetryPolicy;
+    private volatile RttEstimator rttEstimator;
+    private volatile LateResponseTracker<A, B> lateResponseTracker = new LateResponseTracker<>();
+    private final Map<Class<?>, RetryPolicy> retryPolicies = new ConcurrentHashMap<>();
+    private final Map<Class<?>, HedgingPolicy> hedgingPolicies = new ConcurrentHashMap<>();
+    private final Set<Class<?>> coalescedTypes = ConcurrentHashMap.newKeySet();
+    private final RequestCoalescer<Object, B> coalescer = new RequestCoalescer<>();
+    private final MessengerMetrics metrics = new MessengerMetrics();
+    private final BoundedCounter queueDepth = new BoundedCounter(Integer.MAX_VALUE);
+    private final Queue<RequestDetails<A, B>> deferredAdmissions = new ConcurrentLinkedQueue<>();
+    private final BoundedCounter inFlight = new BoundedCounter(Integer.MAX_VALUE);
+    private final LongAdder enqueueTimeTotal = new LongAdder();
+    private final LongAdder enqueueCount = new LongAdder();
+    private final AtomicLong enqueueTimeMax = new AtomicLong();
 
     public AbstractMessenger(ProcessingMode processingMode) {
         this(new DefaultSessionIdFactory(), processingMode);
     }
 
     public AbstractMessenger(AbstractSessionIdFactory keyFactory, ProcessingMode processingMode) {
-        this(new DefaultSessionManager(keyFactory), processingMode, DEFAULT_REQUEST_QUEUE_CAPACITY,
-                new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("messenger-%d").build()));
+        this(null, keyFactory, processingMode, 1);
+    }
+
+    /**
+     * <p>Creates a sharded messenger. Each lane is assigned its own {@link ConcurrentSessionManager} and dispatcher, see
+     * {@link #createLaneExecutor(int)}.</p>
+     *
+     * @param keyFactory
+     *         The {@link AbstractSessionIdFactory} shared by the session managers of each lane
+     * @param processingMode
+     *         The {@link ProcessingMode}. For {@link ProcessingMode#SYNCHRONOUS}, requests are serialized per destination.
+     * @param laneCount
+     *         The number of lanes, typically the number of available cores
+     */
+    public AbstractMessenger(AbstractSessionIdFactory keyFactory, ProcessingMode processingMode, int laneCount) {
+        this(null, keyFactory, processingMode, laneCount);
+    }
+
+    /**
+     * <p>Creates a sharded messenger built on the specified runtime: the transport is served by the event loops of the
+     * runtime and each lane is pinned to one of them.</p>
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} to build the transport on or <code>null</code> for the default runtime
+     * @param keyFactory
+     *         The {@link AbstractSessionIdFactory} shared by the session managers of each lane
+     * @param processingMode
+     *         The {@link ProcessingMode}. For {@link ProcessingMode#SYNCHRONOUS}, requests are serialized per destination.
+     * @param laneCount
+     *         The number of lanes, typically the number of available cores
+     *
+     * @see #getRuntime()
+     */
+    @SuppressWarnings("unchecked")
+    public AbstractMessenger(SharedRuntime runtime, AbstractSessionIdFactory keyFactory, ProcessingMode processingMode, int laneCount) {
+        this(() -> new ConcurrentSessionManager(keyFactory), processingMode, laneCount, DEFAULT_REQUEST_QUEUE_CAPACITY, null, runtime);
     }
 
     public AbstractMessenger(SessionManager sessionManager, ProcessingMode processingMode, int initQueueCapacity, ScheduledExecutorService executorService) {
+        this(() -> sessionManager, processingMode, 1, initQueueCapacity, executorService, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AbstractMessenger(Supplier<SessionManager> sessionManagerFactory, ProcessingMode processingMode, int laneCount, int initQueueCapacity, ScheduledExecutorService executorService, SharedRuntime runtime) {
+        if (laneCount < 1)
+            throw new IllegalArgumentException("Lane count must be greater than zero");
+
         //Set processing mode
         this.processingMode = processingMode;
+        this.runtime = runtime;
 
-        log.debug("Using Processing Mode : {}", processingMode);
+        log.debug("Using Processing Mode : {} (Lanes: {})", processingMode, laneCount);
 
-        //Use the default session manager if not specified
-        this.sessionManager = (sessionManager != null) ? sessionManager : new DefaultSessionManager<>(new DefaultSessionIdFactory());
-        this.requestQueue = new PriorityBlockingQueue<>(initQueueCapacity, new RequestComparator());
         this.transport = createTransportService();
-        configureMappings(this.sessionManager.getLookupMap());
-        this.messengerService = executorService;
-        this.requestProcessor = (processingMode == ProcessingMode.SYNCHRONOUS) ? this::processSync : this::processAsync;
+        this.lanes = (Lane[]) new AbstractMessenger.Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            SessionManager<A, B> sessionManager = sessionManagerFactory.get();
+            //Use the default session manager if not specified
+            if (sessionManager == null)
+                sessionManager = new ConcurrentSessionManager<>(new DefaultSessionIdFactory());
+            configureMappings(sessionManager.getLookupMap());
+            final ScheduledExecutorService executor = (executorService != null) ? executorService : createLaneExecutor(i);
+            lanes[i] = new Lane(sessionManager, executor, initQueueCapacity);
+        }
+        registerGauges();
     }
 
     /**
-     * Call to start processing requests
+     * Registers the values sampled by the {@link MessengerMetrics} each time a snapshot is taken
      */
-    private void start() {
-        if (!processRequests.get() && !messengerService.isShutdown()) {
-            processRequests.set(true);
-            messengerService.scheduleAtFixedRate(() -> {
-                if (processRequests.get()) {
-                    requestProcessor.accept(requestQueue);
-                }
-            }, 0, 10, TimeUnit.MILLISECONDS);
+    private void registerGauges() {
+        for (RequestPriority priority : RequestPriority.values()) {
+            metrics.registerGauge("queue.depth." + priority.name(), () -> {
+                long depth = 0;
+                for (Lane lane : lanes)
+                    depth += lane.requestQueue.size(priority);
+                return depth;
+            });
+        }
+        metrics.registerGauge("queue.depth", queueDepth::get);
+        metrics.registerGauge("requests.inFlight", inFlight::get);
+        metrics.registerGauge("requests.coalesced", coalescer::getCoalescedCount);
+        metrics.registerGauge("sessions.active", () -> {
+            long count = 0;
+            for (Lane lane : lanes)
+                count += lane.sessionManager.getSessionCount();
+            return count;
+        });
+        metrics.registerGauge("enqueue.averageNanos", this::getAverageEnqueueTime);
+        metrics.registerGauge("enqueue.maxNanos", this::getMaxEnqueueTime);
+    }
+
+    /**
+     * @return The {@link Transport} created by {@link #createTransportService()}
+     */
+    protected Transport<A> getTransport() {
+        return transport;
+    }
+
+    /**
+     * <p>The runtime the transport of this messenger should be built on, see {@link #createTransportService()}.</p>
+     *
+     * @return The {@link SharedRuntime} this messenger has been created with or <code>null</code> if the default
+     * runtime applies
+     */
+    protected SharedRuntime getRuntime() {
+        return runtime;
+    }
+
+    /**
+     * <p>Creates the executor on which the dispatcher of a lane runs. If the transport is backed by a Netty {@link
+     * EventLoopGroup}, the lane is pinned to one of its event loops. Otherwise, a dedicated thread is created.</p>
+     *
+     * <p>Note: This is called from the constructor, after {@link #createTransportService()}</p>
+     *
+     * @param lane
+     *         The index of the lane
+     *
+     * @return The {@link ScheduledExecutorService} to be used by the lane
+     */
+    protected ScheduledExecutorService createLaneExecutor(int lane) {
+        if (transport instanceof NettyTransport) {
+            final EventLoopGroup group = ((NettyTransport) transport).getEventLoopGroup();
+            if (group != null)
+                return group.next();
         }
+        return new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("messenger-lane-" + lane).build());
+    }
+
+    /**
+     * <p>Returns the key used for serializing requests in {@link ProcessingMode#SYNCHRONOUS} mode. Only one request
+     * per key is in-flight at any given time. The default implementation uses the recipient address, override this
+     * if requests need to be serialized differently (e.g. per connection).</p>
+     *
+     * @param request
+     *         The request to be dispatched
+     *
+     * @return The serialization key
+     */
+    protected Object getSerializationKey(A request) {
+        return request.recipient();
+    }
+
+    /**
+     * @param address
+     *         The remote address of a request or response
+     *
+     * @return The {@link Lane} responsible for the address
+     */
+    private Lane laneFor(InetSocketAddress address) {
+        return lanes[laneIndex(address)];
+    }
+
+    private int laneIndex(InetSocketAddress address) {
+        if (lanes.length == 1 || address == null)
+            return 0;
+        return Math.floorMod(address.hashCode(), lanes.length);
     }
 
     /**
@@ -133,7 +316,11 @@ abstract public class AbstractMessenger<A extends AbstractRequest, B extends Abs
     }
 
     /**
-     * Adds the request to the queue then it will be sent through the underlying transport.
+     * <p>Adds the request to the queue then it will be sent through the underlying transport.</p>
+     *
+     * <p>If the queue has reached its maximum depth, the configured {@link AdmissionPolicy} decides whether the
+     * caller waits for space, the request is rejected or a request with a lower priority is evicted. Rejected
+     * requests are completed exceptionally with a {@link RequestRejectedException}.</p>
      *
      * @param request
      *         An instance of {@link AbstractRequest}
@@ -143,189 +330,396 @@ abstract public class AbstractMessenger<A extends AbstractRequest, B extends Abs
      * @return A {@link CompletableFuture} containing a {@link AbstractResponse} from the server if available.
      */
     public CompletableFuture<B> send(A request, RequestPriority priority) {
+        return send(request, priority, defaultTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * <p>Adds the request to the queue with a deadline. The time spent waiting for admission, in the queue and for
+     * the response all count against the deadline. A request which is still queued once its deadline has passed is
+     * not sent, in which case (or if no response is received in time) the returned future is completed exceptionally
+     * with a {@link DeadlineExceededException} or a {@link com.ibasco.agql.core.exceptions.ReadTimeoutException}.</p>
+     *
+     * @param request
+     *         An instance of {@link AbstractRequest}
+     * @param priority
+     *         The {@link RequestPriority}
+     * @param timeout
+     *         The time allotted to the request, zero for no deadline (the session manager's default read timeout then
+     *         applies)
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @return A {@link CompletableFuture} containing a {@link AbstractResponse} from the server if available.
+     */
+    public CompletableFuture<B> send(A request, RequestPriority priority, long timeout, TimeUnit unit) {
+        final Object key = coalescingKey(request, priority, unit.toNanos(timeout));
+        if (key != null)
+            return coalescer.coalesce(key, () -> enqueue(request, priority, timeout, unit));
+        return enqueue(request, priority, timeout, unit);
+    }
+
+    private CompletableFuture<B> enqueue(A request, RequestPriority priority, long timeout, TimeUnit unit) {
         log.debug("Adding request '{}' to queue", request.getClass().getSimpleName());
         CompletableFuture<B> promise = new CompletableFuture<>();
-        requestQueue.add(new RequestDetails<>(request, promise, priority, this.transport));
-        start(); //start if not yet started
+        final long start = System.nanoTime();
+        final RequestDetails<A, B> requestDetails = createRequestDetails(request, promise, priority, start, unit.toNanos(timeout));
+        try {
+            boolean admitted = queueDepth.tryAcquire();
+            if (!admitted) {
+                if (deferAdmission(requestDetails))
+                    return promise;
+                admitted = admit(requestDetails);
+            }
+            if (!admitted) {
+                promise.completeExceptionally(rejection(requestDetails));
+                return promise;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            promise.completeExceptionally(new RequestRejectedException("Interrupted while waiting for space in the request queue", e));
+            return promise;
+        } finally {
+            recordEnqueueTime(System.nanoTime() - start);
+        }
+        final Lane lane = laneFor(request.recipient());
+        lane.requestQueue.add(requestDetails);
+        lane.signalDispatch();
         return promise;
     }
 
+    private RequestDetails<A, B> createRequestDetails(A request, CompletableFuture<B> promise, RequestPriority priority, long now, long timeout) {
+        final RequestDetails<A, B> requestDetails = new RequestDetails<>(request, promise, priority, this.transport);
+        if (timeout > 0)
+            requestDetails.setDeadline(now + timeout);
+        if (metrics.isStatusTimingEnabled())
+            requestDetails.setMetrics(metrics);
+        metrics.recordSubmitted();
+        promise.whenComplete((response, error) -> metrics.recordCompletion(error));
+        return requestDetails;
+    }
+
     /**
-     * <p>Called by the transport when a response has been received from the server</p>
+     * @return The exception reported for a request which could not be admitted to the queue
+     */
+    private Throwable rejection(RequestDetails<A, B> requestDetails) {
+        if (requestDetails.isExpired())
+            return new DeadlineExceededException("Deadline exceeded while waiting for space in the request queue");
+        return new RequestRejectedException(String.format("Request queue is full (Max Depth: %d)", queueDepth.getLimit()));
+    }
+
+    /**
+     * Sends a group of requests using the default priority
      *
-     * @param response
-     *         The response received from the server
-     * @param error
-     *         Error thrown by the transport while processing the request. Otherwise null.
+     * @param requests
+     *         A {@link Stream} of requests to be sent
+     * @param callback
+     *         A {@link TriConsumer} invoked with the request and its response (or error) upon completion
+     *
+     * @return A {@link CompletableFuture} which is completed once every request has completed and its callback
+     * has been invoked
+     *
+     * @see #sendAll(Iterator, RequestPriority, TriConsumer)
      */
     @Override
-    public void accept(B response, Throwable error) {
-        log.debug("Receiving response '{}'", response, error);
+    public CompletableFuture<Void> sendAll(Stream<? extends A> requests, TriConsumer<A, B, Throwable> callback) {
+        return sendAll(requests.iterator(), DEFAULT_REQUEST_PRIORITY, callback);
+    }
 
-        synchronized (this) {
-            if (error != null && error instanceof ResponseException) {
-                ResponseException ex = (ResponseException) error;
-                if (ex.getOriginatingRequest() != null) {
-                    SessionId id = sessionManager.getId(ex.getOriginatingRequest());
-                    SessionValue<A, B> session = sessionManager.getSession(id);
-                    if (session != null) {
-                        final CompletableFuture<B> clientPromise = session.getClientPromise();
-                        clientPromise.completeExceptionally(ex);
-                    }
+    /**
+     * <p>Sends a group of requests, notifying the callback as each of them completes. Requests are grouped per lane
+     * and added to the queue in batches of up to {@link #getDispatchBatchSize()}, each batch taking the queue lock and
+     * waking up the dispatcher only once.</p>
+     *
+     * <p>The {@link AdmissionPolicy} is applied to each request. Requests which are rejected are reported to the
+     * callback with a {@link RequestRejectedException}. Each request is assigned the default timeout of the
+     * messenger (see {@link #setDefaultTimeout(long, TimeUnit)}), starting from the moment it is taken from the
+     * iterator.</p>
+     *
+     * @param requests
+     *         An {@link Iterator} of requests to be sent
+     * @param priority
+     *         The {@link RequestPriority} of the requests
+     * @param callback
+     *         A {@link TriConsumer} invoked with the request and its response (or error) upon completion
+     *
+     * @return A {@link CompletableFuture} which is completed once every request has completed and its callback
+     * has been invoked
+     */
+    public CompletableFuture<Void> sendAll(Iterator<? extends A> requests, RequestPriority priority, TriConsumer<A, B, Throwable> callback) {
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        //Start with one pending count for the submission itself, so we do not complete before all requests are added
+        final AtomicInteger pending = new AtomicInteger(1);
+        final List<List<RequestDetails<A, B>>> batches = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++)
+            batches.add(new ArrayList<>());
+        final int batchSize = dispatchBatchSize;
+        final long timeout = defaultTimeout;
+        int batched = 0;
+
+        while (requests.hasNext()) {
+            final A request = requests.next();
+            pending.incrementAndGet();
+            final BiConsumer<B, Throwable> handler = (response, error) -> {
+                try {
+                    callback.accept(request, response, error);
+                } catch (Exception e) {
+                    log.error("Error thrown by the callback of request " + request, e);
+                } finally {
+                    if (pending.decrementAndGet() == 0)
+                        completion.complete(null);
                 }
-                return;
+            };
+            //Attach to an identical request which is already pending
+            final Object key = coalescingKey(request, priority, timeout);
+            final CompletableFuture<B> shared = (key != null) ? coalescer.attach(key) : null;
+            if (shared != null) {
+                shared.whenComplete(handler);
+                continue;
             }
+            final CompletableFuture<B> promise = new CompletableFuture<>();
+            promise.whenComplete(handler);
+            if (key != null)
+                coalescer.track(key, promise);
 
-            //Retrieve the existing session for this response
-            final SessionValue<A, B> session = sessionManager.getSession(response);
-            if (session != null) {
-                //1) Retrieve our client promise from the session
-                final CompletableFuture<B> clientPromise = session.getClientPromise();
+            final long start = System.nanoTime();
+            final RequestDetails<A, B> requestDetails = createRequestDetails(request, promise, priority, start, timeout);
+            boolean admitted = queueDepth.tryAcquire();
+            if (!admitted) {
+                //Submit what we have so far before applying the policy, we might have to wait for these to be processed
+                submitBatches(batches);
+                batched = 0;
+                if (deferAdmission(requestDetails)) {
+                    recordEnqueueTime(System.nanoTime() - start);
+                    continue;
+                }
+                try {
+                    admitted = admit(requestDetails);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    promise.completeExceptionally(new RequestRejectedException("Interrupted while waiting for space in the request queue", e));
+                    continue;
+                }
+            }
+            recordEnqueueTime(System.nanoTime() - start);
+            if (!admitted) {
+                promise.completeExceptionally(rejection(requestDetails));
+                continue;
+            }
 
-                //2) Notify the client that we have successfully received a response from the server
-                if (clientPromise.complete(response)) {
-                    log.debug("Notified client of completion event : {}", session.getId());
-                } else
-                    log.debug("Unable to transition session to completion state : {}", session.getId());
-            } else {
-                log.debug("No associated session is found for Response '{}'", response);
+            batches.get(laneIndex(request.recipient())).add(requestDetails);
+            if (++batched >= batchSize) {
+                submitBatches(batches);
+                batched = 0;
             }
         }
+        submitBatches(batches);
+
+        if (pending.decrementAndGet() == 0)
+            completion.complete(null);
+        return completion;
     }
 
     /**
-     * A Function that process requests synchronously
+     * Adds the pending batch of each lane to its queue then wakes up the dispatcher of the lane
      *
-     * @param requestQueue
-     *         A {@link PriorityBlockingQueue} containing {@link RequestDetails}
+     * @param batches
+     *         The pending batches, indexed by lane. Each batch is cleared once submitted.
      */
-    private void processSync(PriorityBlockingQueue<RequestDetails<A, B>> requestQueue) {
-        //Since we are processing synchronously, we will not remove the head of the queue immediately but rather
-        //only remove the head once it completes
-        final RequestDetails<A, B> requestDetails = requestQueue.peek();
+    private void submitBatches(List<List<RequestDetails<A, B>>> batches) {
+        for (int i = 0; i < lanes.length; i++) {
+            final List<RequestDetails<A, B>> batch = batches.get(i);
+            if (batch.isEmpty())
+                continue;
+            lanes[i].requestQueue.addAll(batch);
+            batch.clear();
+            lanes[i].signalDispatch();
+        }
+    }
 
-        try {
-            //Do we have any requests to process?
+    /**
+     * Reserves a slot in the request queue based on the current {@link AdmissionPolicy}. If the request has a
+     * deadline, the caller waits no longer than the remaining time.
+     *
+     * @param requestDetails
+     *         The {@link RequestDetails} of the request to be admitted
+     *
+     * @return <code>true</code> if a slot has been reserved for the request
+     *
+     * @throws InterruptedException
+     *         When the calling thread is interrupted while waiting for a slot
+     */
+    private boolean admit(RequestDetails<A, B> requestDetails) throws InterruptedException {
+        if (queueDepth.tryAcquire())
+            return true;
+        switch (admissionPolicy) {
+            case AWAIT:
+                return queueDepth.acquire(requestDetails.getRemainingTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            case DROP_LOWEST_PRIORITY:
+                return evictLowerPriority(requestDetails.getPriority());
+            case FAIL_FAST:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * <p>Defers the admission of a request if the queue is full, the {@link AdmissionPolicy#AWAIT} policy applies and
+     * the caller runs on an event loop. Blocking an event loop could prevent the responses which free up the queue
+     * from being processed, so the request is instead added to the queue as soon as a slot is released.</p>
+     *
+     * @param requestDetails
+     *         The {@link RequestDetails} of the request to be admitted
+     *
+     * @return <code>true</code> if the admission has been deferred
+     */
+    private boolean deferAdmission(RequestDetails<A, B> requestDetails) {
+        if (admissionPolicy != AdmissionPolicy.AWAIT || !inEventLoop())
+            return false;
+        log.debug("Queue is full, deferring the admission of request '{}'", requestDetails);
+        deferredAdmissions.add(requestDetails);
+        if (requestDetails.hasDeadline()) {
+            laneFor(requestDetails.getRequest().recipient()).executor.schedule(() -> {
+                if (deferredAdmissions.remove(requestDetails))
+                    requestDetails.getClientPromise().completeExceptionally(rejection(requestDetails));
+            }, requestDetails.getRemainingTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+        //A slot may have been released in the meantime
+        admitDeferred();
+        return true;
+    }
+
+    /**
+     * Adds the deferred requests to their queue as long as slots are available
+     */
+    private void admitDeferred() {
+        while (!deferredAdmissions.isEmpty() && queueDepth.tryAcquire()) {
+            final RequestDetails<A, B> requestDetails = deferredAdmissions.poll();
             if (requestDetails == null) {
-                ConcurrentUtils.sleepUninterrupted(50);
+                queueDepth.release();
                 return;
             }
+            if (requestDetails.getClientPromise().isDone() || requestDetails.isExpired()) {
+                queueDepth.release();
+                requestDetails.getClientPromise().completeExceptionally(rejection(requestDetails));
+                continue;
+            }
+            final Lane lane = laneFor(requestDetails.getRequest().recipient());
+            lane.requestQueue.add(requestDetails);
+            lane.signalDispatch();
+        }
+    }
 
-            final RequestStatus status = requestDetails.getStatus();
-
-            //Only process new REQUESTS
-            if (status == RequestStatus.NEW) {
-                log.debug("Processing NEW request from Queue: {}", requestDetails);
-                requestDetails.setStatus(RequestStatus.ACCEPTED);
-
-                //Register the request to the session manager
-                final SessionId id = sessionManager.register(requestDetails);
-
-                //Update the status to registered
-                requestDetails.setStatus(RequestStatus.REGISTERED);
-
-                final CompletableFuture<Void> writeFuture = transport.send(requestDetails.getRequest());
-
-                requestDetails.setStatus(RequestStatus.AWAIT);
-
-                //Perform actions upon write completion
-                writeFuture.whenComplete((aVoid, writeError) -> {
-                    //If we encounter a write error, notify the listeners then immediately remove it from the queue
-                    if (writeError != null) {
-                        requestDetails.setStatus(RequestStatus.DONE);
-                        requestDetails.getClientPromise().completeExceptionally(writeError);
-                        requestQueue.remove(requestDetails);
-                        performSessionCleanup(id);
-                        log.debug("Error sending request : {}", requestDetails.getRequest());
-                    }
-                    //Write operation successful
-                    else {
-                        log.debug("Request Successfully Sent to the Transport : {}", requestDetails.getRequest());
-                        //Update status to SENT
-                        requestDetails.setStatus(RequestStatus.SENT);
+    /**
+     * Releases a slot of the request queue, handing it over to a deferred request if there is one
+     */
+    private void releaseSlot() {
+        queueDepth.release();
+        if (!deferredAdmissions.isEmpty())
+            admitDeferred();
+    }
 
-                        //Requests will only be removed from the queue when it completes
-                        requestDetails.getClientPromise().whenComplete((res, error) -> {
-                            requestDetails.setStatus(RequestStatus.DONE);
-                            //Only remove from the queue once the task completes
-                            requestQueue.remove(requestDetails);
-                            //Perform session cleanup
-                            performSessionCleanup(id);
-                        });
-                    }
-                });
+    /**
+     * @return <code>true</code> if the current thread is one of the event loops used by this messenger
+     */
+    private boolean inEventLoop() {
+        if (transport instanceof NettyTransport) {
+            final EventLoopGroup group = ((NettyTransport) transport).getEventLoopGroup();
+            if (group != null) {
+                for (EventExecutor executor : group) {
+                    if (executor.inEventLoop())
+                        return true;
+                }
             }
-        } catch (Exception e) {
-            if (requestDetails != null && requestDetails.getClientPromise() != null)
-                requestDetails.getClientPromise().completeExceptionally(e);
         }
+        for (Lane lane : lanes) {
+            if (lane.executor instanceof EventExecutor && ((EventExecutor) lane.executor).inEventLoop())
+                return true;
+        }
+        return false;
     }
 
     /**
-     * A Function that process requests asynchronously
+     * Evicts the most recent queued request having the lowest priority, provided that it is lower than the specified
+     * priority. The slot of the evicted request is handed over to the new request.
+     *
+     * @param priority
+     *         The {@link RequestPriority} of the request to be admitted
      *
-     * @param requestQueue
-     *         A {@link PriorityBlockingQueue} containing {@link RequestDetails}
+     * @return <code>true</code> if a request has been evicted
      */
-    private void processAsync(PriorityBlockingQueue<RequestDetails<A, B>> requestQueue) {
-        //Remove the head of the queue immediately and process accordingly
-        final RequestDetails<A, B> requestDetails = requestQueue.poll();
-
-        //Only process new requests
-        if (requestDetails != null && requestDetails.getStatus() == RequestStatus.NEW) {
-            try {
-                //Set status to ACCEPTED
-                requestDetails.setStatus(RequestStatus.ACCEPTED);
-
-                //Register the session immediately, duplicate requests will be queued in the order they are sent.
-                final SessionId id = sessionManager.register(requestDetails);
-
-                //Perform session cleanup operations on completion
-                requestDetails.getClientPromise().whenComplete((response, throwable) -> performSessionCleanup(id));
-
-                //Send then listen for the write completion status
-                transport.send(requestDetails.getRequest()).whenComplete((aVoid, writeError) -> {
-                    if (writeError != null) {
-                        //If the write operation failed, we need to unregister from the session
-                        log.error("Write operation failed, unregistering from session : {} = {}", id, writeError);
-                        requestDetails.setStatus(RequestStatus.DONE);
-                        //Notify listeners
-                        if (requestDetails.getClientPromise() != null)
-                            requestDetails.getClientPromise().completeExceptionally(writeError);
-                    } else {
-                        //Update the request status
-                        requestDetails.setStatus(RequestStatus.SENT);
-                    }
-                });
-                requestDetails.setStatus(RequestStatus.AWAIT);
-            } catch (Exception e) {
-                requestDetails.getClientPromise().completeExceptionally(e);
+    private boolean evictLowerPriority(RequestPriority priority) {
+        final RequestPriority[] priorities = RequestPriority.values();
+        //Lower priorities have a greater ordinal, take the victim from the tail of the lowest non-empty level
+        for (int level = priorities.length - 1; level > priority.ordinal(); level--) {
+            for (Lane lane : lanes) {
+                final RequestDetails<A, B> victim = lane.requestQueue.pollLast(priorities[level], details -> details.getStatus() == RequestStatus.NEW);
+                if (victim == null)
+                    continue;
+                log.debug("Evicted request '{}' in favor of a request with priority {}", victim, priority);
+                victim.setStatus(RequestStatus.DONE);
+                victim.getClientPromise().completeExceptionally(new RequestRejectedException("Request has been evicted from the queue in favor of a request with a higher priority"));
+                return true;
             }
         }
+        return queueDepth.tryAcquire();
+    }
 
-        //return null;
+    private void recordEnqueueTime(long elapsed) {
+        enqueueTimeTotal.add(elapsed);
+        enqueueCount.increment();
+        long max;
+        while (elapsed > (max = enqueueTimeMax.get()) && !enqueueTimeMax.compareAndSet(max, elapsed)) ;
     }
 
     /**
-     * Unregister from the session
+     * <p>Called by the transport when a response has been received from the server</p>
      *
-     * @param id
-     *         The {@link SessionId} to unregister
+     * @param response
+     *         The response received from the server
+     * @param error
+     *         Error thrown by the transport while processing the request. Otherwise null.
      */
-    private void performSessionCleanup(SessionId id) {
-        final SessionValue session = sessionManager.getSession(id);
-        if (session != null) {
-            sessionManager.unregister(session);
+    @Override
+    public void accept(B response, Throwable error) {
+        log.debug("Receiving response '{}'", response, error);
+        if (error != null && error instanceof ResponseException) {
+            final AbstractRequest request = ((ResponseException) error).getOriginatingRequest();
+            laneFor((request != null) ? request.recipient() : null).accept(response, error);
+            return;
         }
+        laneFor((response != null) ? response.sender() : null).accept(response, error);
     }
 
     /**
-     * Retrieve the internal request queue
+     * Retrieve a snapshot of the internal request queue, ordered by priority. If the messenger is sharded, this is
+     * the queue of the first lane.
      *
-     * @return A {@link PriorityBlockingQueue} instance
+     * @return A {@link PriorityBlockingQueue} instance. Changes made to it are not reflected in the messenger.
+     *
+     * @deprecated The requests are held by a {@link RequestScheduler}, use {@link #getRequestScheduler()} instead
      */
+    @Deprecated
     public PriorityBlockingQueue<RequestDetails<A, B>> getRequestQueue() {
-        return requestQueue;
+        final RequestScheduler<A, B> scheduler = lanes[0].requestQueue;
+        final PriorityBlockingQueue<RequestDetails<A, B>> snapshot = new PriorityBlockingQueue<>(Math.max(1, scheduler.size()), Comparator.comparing(RequestDetails::getPriority));
+        snapshot.addAll(scheduler);
+        return snapshot;
+    }
+
+    /**
+     * Retrieve the internal request scheduler. If the messenger is sharded, this is the scheduler of the first lane.
+     *
+     * @return A {@link RequestScheduler} instance
+     */
+    public RequestScheduler<A, B> getRequestScheduler() {
+        return lanes[0].requestQueue;
+    }
+
+    /**
+     * @return The number of lanes the requests are sharded onto
+     */
+    public int getLaneCount() {
+        return lanes.length;
     }
 
     /**
@@ -346,44 +740,1107 @@ abstract public class AbstractMessenger<A extends AbstractRequest, B extends Abs
     }
 
     /**
-     * Returns the number of remaining requests in the session
+     * @return The maximum number of requests processed by the dispatcher per wake-up
+     */
+    public int getDispatchBatchSize() {
+        return dispatchBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of requests the dispatcher will process per wake-up before yielding the executor.
      *
-     * @return A {@link Collection} of {@link java.util.Map.Entry}<{@link SessionId},{@link SessionValue}>
+     * @param dispatchBatchSize
+     *         A positive number representing the batch size
      */
-    public Collection<Map.Entry<SessionId, SessionValue<A, B>>> getRemaining() {
-        return sessionManager.getSessionEntries();
+    public void setDispatchBatchSize(int dispatchBatchSize) {
+        if (dispatchBatchSize < 1)
+            throw new IllegalArgumentException("Dispatch batch size must be greater than zero");
+        this.dispatchBatchSize = dispatchBatchSize;
     }
 
     /**
-     * <p>Gracefully close/shutdown all expensive resources this messenger utilizes</p>
+     * @return The {@link DestinationRateLimiter} used for pacing the requests per destination. Null if pacing is
+     * disabled.
+     */
+    public DestinationRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the {@link DestinationRateLimiter} used for pacing the requests per destination.
      *
-     * @throws IOException
-     *         Thrown when an attempt to close the resources managed by this Messenger has failed.
+     * @param rateLimiter
+     *         The {@link DestinationRateLimiter} to use or <code>null</code> to disable pacing
      */
-    @Override
-    public void close() throws IOException {
-        if (!requestQueue.isEmpty()) {
-            log.warn("Request queue is not yet empty");
-        }
-        if (!messengerService.isTerminated())
-            processRequests.set(false);
-        try {
-            messengerService.shutdown();
-            messengerService.awaitTermination(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            log.error("Error on close", e);
-        }
-        sessionManager.close();
-        transport.close();
+    public void setRateLimiter(DestinationRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * @return The {@link RttEstimator} used for deriving the read timeout of each destination. Null if the default
+     * read timeout of the session manager applies.
+     */
+    public RttEstimator getRttEstimator() {
+        return rttEstimator;
+    }
+
+    /**
+     * Sets the {@link RttEstimator} used for deriving the read timeout of each destination from its measured round
+     * trip times. Only the first attempt of a request is measured, since the response of a retried request cannot be
+     * attributed to a specific attempt.
+     *
+     * @param rttEstimator
+     *         The {@link RttEstimator} to use or <code>null</code> to use the default read timeout of the session
+     *         manager
+     */
+    public void setRttEstimator(RttEstimator rttEstimator) {
+        this.rttEstimator = rttEstimator;
+    }
+
+    /**
+     * @return The {@link LateResponseTracker} recording the responses which arrived after their request timed out.
+     * Null if late responses are dropped.
+     */
+    public LateResponseTracker<A, B> getLateResponseTracker() {
+        return lateResponseTracker;
     }
 
     /**
-     * Comparator class to be used by our priority queue for the natural ordering of requests
+     * Sets the {@link LateResponseTracker} which remembers the recently expired sessions, so that responses arriving
+     * after the timeout are counted (and handed to its listener) instead of being dropped.
+     *
+     * @param lateResponseTracker
+     *         The {@link LateResponseTracker} to use or <code>null</code> to drop late responses
      */
-    private static class RequestComparator implements Comparator<RequestDetails> {
-        @Override
-        public int compare(RequestDetails o1, RequestDetails o2) {
-            return o2.getPriority().compareTo(o1.getPriority());
+    public void setLateResponseTracker(LateResponseTracker<A, B> lateResponseTracker) {
+        this.lateResponseTracker = lateResponseTracker;
+    }
+
+    /**
+     * Sets the listener notified of the responses which arrived after their request timed out, e.g. to fill a result
+     * cache
+     *
+     * @param listener
+     *         The {@link LateResponseListener} to notify or <code>null</code> to only count late responses
+     *
+     * @throws IllegalStateException
+     *         If late responses are not tracked
+     */
+    public void setLateResponseListener(LateResponseListener<A, B> listener) {
+        final LateResponseTracker<A, B> tracker = lateResponseTracker;
+        if (tracker == null)
+            throw new IllegalStateException("Late responses are not tracked, a LateResponseTracker has to be set first");
+        tracker.setListener(listener);
+    }
+
+    /**
+     * @return The maximum number of requests which can be awaiting a response at the same time
+     */
+    public int getMaxInFlight() {
+        return inFlight.getLimit();
+    }
+
+    /**
+     * Sets the maximum number of requests which can be awaiting a response at the same time. Once the limit is
+     * reached, the remaining requests are held in the queue until a slot frees up.
+     *
+     * @param maxInFlight
+     *         A positive number representing the size of the in-flight window
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        inFlight.setLimit(maxInFlight);
+        signalAll();
+    }
+
+    /**
+     * @return The number of requests currently awaiting a response
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The maximum number of requests which can be held by the request queue
+     */
+    public int getMaxQueueDepth() {
+        return queueDepth.getLimit();
+    }
+
+    /**
+     * Sets the maximum number of requests which can be held by the request queue. What happens to the requests
+     * exceeding this limit is determined by the {@link AdmissionPolicy}.
+     *
+     * @param maxQueueDepth
+     *         A positive number representing the maximum depth of the queue
+     */
+    public void setMaxQueueDepth(int maxQueueDepth) {
+        queueDepth.setLimit(maxQueueDepth);
+        admitDeferred();
+    }
+
+    /**
+     * @return The number of requests currently held by the request queue
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return The {@link AdmissionPolicy} applied when the request queue is full
+     */
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    /**
+     * <p>Sets the {@link AdmissionPolicy} applied when the request queue is full.</p>
+     *
+     * <p>Note: With {@link AdmissionPolicy#AWAIT}, a request issued from one of the event loops of the messenger
+     * (e.g. from the callback of another request) does not block the event loop, since that loop may be the one which
+     * has to process the responses freeing up the queue. The returned future is returned right away and the request is
+     * added to the queue once a slot is released, or failed with a {@link DeadlineExceededException} if its deadline
+     * passes first.</p>
+     *
+     * @param admissionPolicy
+     *         The {@link AdmissionPolicy} to use
+     */
+    public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        if (admissionPolicy == null)
+            throw new IllegalArgumentException("Admission policy must not be null");
+        this.admissionPolicy = admissionPolicy;
+    }
+
+    /**
+     * @return The average time (in nanoseconds) spent by callers of {@link #send(AbstractRequest, RequestPriority)}
+     * before their request has been admitted to (or rejected from) the queue
+     */
+    public long getAverageEnqueueTime() {
+        final long count = enqueueCount.sum();
+        return (count == 0) ? 0 : enqueueTimeTotal.sum() / count;
+    }
+
+    /**
+     * @return The longest time (in nanoseconds) spent by a caller of {@link #send(AbstractRequest, RequestPriority)}
+     * before its request has been admitted to (or rejected from) the queue
+     */
+    public long getMaxEnqueueTime() {
+        return enqueueTimeMax.get();
+    }
+
+    /**
+     * @return The default time (in nanoseconds) allotted to each request, zero if requests have no deadline by default
+     */
+    public long getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Sets the default time allotted to requests which are sent without an explicit timeout. The deadline of each
+     * request is computed when it is submitted.
+     *
+     * @param timeout
+     *         The timeout, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     */
+    public void setDefaultTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("Timeout must not be negative");
+        this.defaultTimeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * @return The {@link RetryPolicy} applied to request types without a specific policy, <code>null</code> if these
+     * are not retried
+     */
+    public RetryPolicy getDefaultRetryPolicy() {
+        return defaultRetryPolicy;
+    }
+
+    /**
+     * Sets the {@link RetryPolicy} applied to request types which have not been assigned a specific policy
+     *
+     * @param retryPolicy
+     *         The {@link RetryPolicy} to use or <code>null</code> to disable retries by default
+     */
+    public void setDefaultRetryPolicy(RetryPolicy retryPolicy) {
+        this.defaultRetryPolicy = retryPolicy;
+    }
+
+    /**
+     * @param requestType
+     *         The class of the request
+     *
+     * @return The {@link RetryPolicy} applied to the request type, <code>null</code> if requests of this type are not
+     * retried
+     */
+    public RetryPolicy getRetryPolicy(Class<?> requestType) {
+        final RetryPolicy retryPolicy = retryPolicies.get(requestType);
+        return (retryPolicy != null) ? retryPolicy : defaultRetryPolicy;
+    }
+
+    /**
+     * <p>Sets the {@link RetryPolicy} of a request type. Requests of this type which timed out or could not be written
+     * by the transport are put back in the queue (keeping their priority and client promise) after the backoff
+     * delay of the policy, until the maximum number of attempts or the deadline of the request is reached.</p>
+     *
+     * @param requestType
+     *         The class of the request
+     * @param retryPolicy
+     *         The {@link RetryPolicy} to use or <code>null</code> to fall back to the default policy
+     */
+    public void setRetryPolicy(Class<? extends A> requestType, RetryPolicy retryPolicy) {
+        if (retryPolicy == null)
+            retryPolicies.remove(requestType);
+        else
+            retryPolicies.put(requestType, retryPolicy);
+    }
+
+    /**
+     * @param requestType
+     *         The class of the request
+     *
+     * @return <code>true</code> if identical requests of this type are coalesced
+     */
+    public boolean isCoalescing(Class<?> requestType) {
+        return coalescedTypes.contains(requestType);
+    }
+
+    /**
+     * <p>Enables or disables the coalescing of a request type. While a request of this type is pending, identical
+     * requests (see {@link #getCoalescingKey(AbstractRequest)}) are attached to it instead of being sent again.</p>
+     *
+     * <p>Coalescing is opt-in per request type, since only requests whose response does not depend on the caller
+     * (e.g. server info queries) can be shared. Only callers using the same priority and timeout share a request, the
+     * later callers inheriting the deadline of the first one. Cancelling the future of a caller does not cancel the
+     * shared request.</p>
+     *
+     * @param requestType
+     *         The class of the request
+     * @param enabled
+     *         <code>true</code> to coalesce identical requests of this type
+     */
+    public void setCoalescing(Class<? extends A> requestType, boolean enabled) {
+        if (enabled)
+            coalescedTypes.add(requestType);
+        else
+            coalescedTypes.remove(requestType);
+    }
+
+    /**
+     * @return The number of requests which have been attached to an identical pending request rather than being sent
+     */
+    public long getCoalescedCount() {
+        return coalescer.getCoalescedCount();
+    }
+
+    /**
+     * @return The key under which the request is coalesced, made of its {@link #getCoalescingKey(AbstractRequest)
+     * coalescing key}, priority and timeout, or <code>null</code> if the request is not coalesced
+     */
+    private Object coalescingKey(A request, RequestPriority priority, long timeout) {
+        final Object key = getCoalescingKey(request);
+        return (key != null) ? Arrays.asList(key, priority, timeout) : null;
+    }
+
+    /**
+     * <p>Identifies the requests which can share a single response. By default, requests of the same type sent to
+     * the same destination are considered identical. Sub-classes may refine the key with the parameters of the
+     * request.</p>
+     *
+     * @param request
+     *         The request about to be sent
+     *
+     * @return The key identifying identical requests or <code>null</code> if the request is not coalesced
+     *
+     * @see #setCoalescing(Class, boolean)
+     */
+    protected Object getCoalescingKey(A request) {
+        if (coalescedTypes.isEmpty() || !coalescedTypes.contains(request.getClass()))
+            return null;
+        return Arrays.asList(request.getClass(), request.recipient());
+    }
+
+    /**
+     * @param requestType
+     *         The class of the request
+     *
+     * @return The {@link HedgingPolicy} applied to the request type, <code>null</code> if requests of this type are
+     * not hedged
+     */
+    public HedgingPolicy getHedgingPolicy(Class<?> requestType) {
+        return hedgingPolicies.get(requestType);
+    }
+
+    /**
+     * <p>Sets the {@link HedgingPolicy} of a request type. If no response has been received once the hedge delay of
+     * the policy has elapsed, the request is sent again over the same session. The first response completes the
+     * request, the responses to the other copies find no session and are discarded.</p>
+     *
+     * <p>Hedging is opt-in per request type, since only idempotent requests whose responses cannot be told apart
+     * (e.g. server info queries) can safely be sent more than once. Note that a late duplicate may be matched to a
+     * newer request for the same destination, which is harmless for such requests.</p>
+     *
+     * @param requestType
+     *         The class of the request
+     * @param hedgingPolicy
+     *         The {@link HedgingPolicy} to use or <code>null</code> to disable hedging for the request type
+     */
+    public void setHedgingPolicy(Class<? extends A> requestType, HedgingPolicy hedgingPolicy) {
+        if (hedgingPolicy == null)
+            hedgingPolicies.remove(requestType);
+        else
+            hedgingPolicies.put(requestType, hedgingPolicy);
+    }
+
+    /**
+     * @return The time (in nanoseconds) a queued request has to wait before being promoted to the next priority level
+     */
+    public long getAgingInterval() {
+        return lanes[0].requestQueue.getAgingInterval();
+    }
+
+    /**
+     * Sets the time a queued request has to wait before being promoted to the next priority level. This prevents
+     * requests of lower priority from starving under a sustained load of higher priority requests.
+     *
+     * @param interval
+     *         The aging interval, zero to disable aging
+     * @param unit
+     *         The {@link TimeUnit} of the interval
+     */
+    public void setAgingInterval(long interval, TimeUnit unit) {
+        for (Lane lane : lanes)
+            lane.requestQueue.setAgingInterval(interval, unit);
+    }
+
+    /**
+     * @return The {@link ExpiryMode} used by the session managers of this messenger
+     */
+    public ExpiryMode getExpiryMode() {
+        return lanes[0].sessionManager.getExpiryMode();
+    }
+
+    /**
+     * Sets how the session managers detect requests which did not receive a response in time. {@link
+     * ExpiryMode#SWEEP} avoids allocating a timer task per request, at the cost of a coarser expiry.
+     *
+     * @param expiryMode
+     *         The {@link ExpiryMode} to use
+     *
+     * @throws UnsupportedOperationException
+     *         If the session manager does not support the mode
+     */
+    public void setExpiryMode(ExpiryMode expiryMode) {
+        for (Lane lane : lanes)
+            lane.sessionManager.setExpiryMode(expiryMode);
+    }
+
+    /**
+     * <p>Returns the metrics of this messenger: queue depth per {@link RequestPriority}, in-flight requests and
+     * sessions, outcome of the requests, orphan and late responses as well as the time spent in each {@link
+     * RequestStatus}. Register a {@link com.ibasco.agql.core.messenger.metrics.MetricsExporter} to publish them.</p>
+     *
+     * @return The {@link MessengerMetrics} of this messenger
+     */
+    public MessengerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of remaining requests in the session
+     *
+     * @return A {@link Collection} of {@link java.util.Map.Entry}<{@link SessionId},{@link SessionValue}>
+     */
+    public Collection<Map.Entry<SessionId, SessionValue<A, B>>> getRemaining() {
+        if (lanes.length == 1)
+            return lanes[0].sessionManager.getSessionEntries();
+        final List<Map.Entry<SessionId, SessionValue<A, B>>> entries = new ArrayList<>();
+        for (Lane lane : lanes)
+            entries.addAll(lane.sessionManager.getSessionEntries());
+        return entries;
+    }
+
+    /**
+     * Wakes up the dispatcher of every lane having pending requests
+     */
+    private void signalAll() {
+        for (Lane lane : lanes) {
+            if (!lane.requestQueue.isEmpty())
+                lane.signalDispatch();
+        }
+    }
+
+    /**
+     * <p>Gracefully close/shutdown all expensive resources this messenger utilizes</p>
+     *
+     * @throws IOException
+     *         Thrown when an attempt to close the resources managed by this Messenger has failed.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Lane lane : lanes) {
+            if (!lane.requestQueue.isEmpty()) {
+                log.warn("Request queue is not yet empty");
+                break;
+            }
+        }
+        processRequests.set(false);
+        for (Lane lane : lanes) {
+            //Event loops are owned by their group (e.g. the transport) and are shutdown along with it
+            if (lane.executor instanceof EventExecutor || lane.executor.isShutdown())
+                continue;
+            try {
+                lane.executor.shutdown();
+                lane.executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                log.error("Error on close", e);
+            }
+        }
+        for (Lane lane : lanes)
+            lane.sessionManager.close();
+        metrics.close();
+        transport.close();
+    }
+
+    /**
+     * <p>An independent dispatch unit of the messenger. A lane owns a subset of the destinations along with their
+     * queued requests and sessions.</p>
+     */
+    private final class Lane {
+        private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+        private final RequestScheduler<A, B> requestQueue;
+        private final SessionManager<A, B> sessionManager;
+        private final ScheduledExecutorService executor;
+        private final BooleanSupplier requestProcessor;
+        private final Map<Object, ArrayDeque<RequestDetails<A, B>>> serialized = new HashMap<>();
+
+        private Lane(SessionManager<A, B> sessionManager, ScheduledExecutorService executor, int initQueueCapacity) {
+            this.sessionManager = sessionManager;
+            this.executor = executor;
+            this.requestQueue = new RequestScheduler<>(initQueueCapacity);
+            this.requestProcessor = (processingMode == ProcessingMode.SYNCHRONOUS) ? this::processSync : this::processAsync;
+            this.sessionManager.setTimeoutHandler(this::retryOnTimeout);
+        }
+
+        /**
+         * <p>Wakes up the dispatcher. A drain task is submitted to the lane executor only if one is not yet pending,
+         * so calling this repeatedly (e.g. once per enqueued request) is cheap.</p>
+         */
+        private void signalDispatch() {
+            if (!processRequests.get() || executor.isShutdown())
+                return;
+            if (dispatchScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drainRequests);
+                } catch (RejectedExecutionException e) {
+                    dispatchScheduled.set(false);
+                    log.debug("Dispatch task rejected, messenger is shutting down");
+                }
+            }
+        }
+
+        /**
+         * <p>Processes up to {@link #getDispatchBatchSize()} requests from the queue. If the batch limit is reached,
+         * another drain task is re-submitted (rather than looping indefinitely) so other tasks sharing the executor
+         * get a chance to run. The dispatcher goes idle once the processor has nothing left to do and is woken up
+         * again by {@link #signalDispatch()}.</p>
+         */
+        private void drainRequests() {
+            int processed = 0;
+            try {
+                final int batchSize = dispatchBatchSize;
+                while (processRequests.get() && processed < batchSize && requestProcessor.getAsBoolean())
+                    processed++;
+            } catch (Exception e) {
+                log.error("Unexpected error during request dispatch", e);
+            } finally {
+                dispatchScheduled.set(false);
+            }
+            //Re-arm if the batch limit has been reached or if a new request slipped in while we were going idle. If the
+            //in-flight window is full, the dispatcher will be signalled again once a request completes.
+            if (processed >= dispatchBatchSize || (hasDispatchableRequest() && inFlight.hasCapacity()))
+                signalDispatch();
+        }
+
+        /**
+         * @return <code>true</code> if the head of the queue is a request which has not yet been processed or is due
+         * for a retry
+         */
+        private boolean hasDispatchableRequest() {
+            final RequestDetails<A, B> head = requestQueue.peek();
+            return head != null && (head.getStatus() == RequestStatus.NEW || head.getStatus() == RequestStatus.RETRY);
+        }
+
+        /**
+         * <p>Reserves a slot in the in-flight window for an accepted request. The slot is released once the client
+         * promise completes.</p>
+         *
+         * @param requestDetails
+         *         The accepted {@link RequestDetails}
+         */
+        private void trackInFlight(RequestDetails<A, B> requestDetails) {
+            requestDetails.getClientPromise().whenComplete((res, error) -> releaseInFlight());
+        }
+
+        /**
+         * Releases an in-flight slot and wakes up the dispatcher(s) which may be waiting for it
+         */
+        private void releaseInFlight() {
+            //If the window was full, other lanes may be waiting on this slot as well
+            if (inFlight.release() >= inFlight.getLimit() - 1 && lanes.length > 1)
+                signalAll();
+            else if (!requestQueue.isEmpty())
+                signalDispatch();
+        }
+
+        /**
+         * <p>Handles a response (or error) for a destination owned by this lane</p>
+         *
+         * @param response
+         *         The response received from the server
+         * @param error
+         *         Error thrown by the transport while processing the request. Otherwise null.
+         */
+        private void accept(B response, Throwable error) {
+            //The session manager, the client promise and the latency trackers are thread-safe, no lock is needed
+            if (error != null && error instanceof ResponseException) {
+                ResponseException ex = (ResponseException) error;
+                if (ex.getOriginatingRequest() != null) {
+                    SessionValue<A, B> session = sessionManager.getSession(ex.getOriginatingRequest());
+                    if (session != null) {
+                        final CompletableFuture<B> clientPromise = session.getClientPromise();
+                        clientPromise.completeExceptionally(ex);
+                    }
+                }
+                return;
+            }
+
+            //Retrieve the existing session for this response
+            final SessionValue<A, B> session = sessionManager.getSession(response);
+            if (session != null) {
+                //1) Retrieve our client promise from the session
+                final CompletableFuture<B> clientPromise = session.getClientPromise();
+
+                //2) Notify the client that we have successfully received a response from the server
+                if (clientPromise.complete(response)) {
+                    log.debug("Notified client of completion event : {}", session.getId());
+                    recordRtt(session);
+                } else
+                    log.debug("Unable to transition session to completion state : {}", session.getId());
+            } else if (!acceptLate(response)) {
+                log.debug("No associated session is found for Response '{}'", response);
+                metrics.recordOrphanResponse();
+            }
+        }
+
+        /**
+         * Matches a response without session against the sessions which recently expired
+         *
+         * @param response
+         *         The response received from the server
+         *
+         * @return <code>true</code> if the response belongs to an expired session
+         */
+        private boolean acceptLate(B response) {
+            final LateResponseTracker<A, B> tracker = lateResponseTracker;
+            if (tracker == null)
+                return false;
+            final long latency = tracker.lateResponse(sessionManager.getSessionIdFactory().createId(response), response);
+            if (latency < 0)
+                return false;
+            log.debug("Received late response '{}' after {} ns", response, latency);
+            metrics.recordLateResponse();
+            return true;
+        }
+
+        /**
+         * <p>A Function that process requests synchronously. Requests are serialized per destination (see {@link
+         * #getSerializationKey(AbstractRequest)}): while a request is in-flight, subsequent requests for the same
+         * destination are parked and dispatched one at a time as their predecessors complete. Requests for other
+         * destinations are not held back.</p>
+         *
+         * @return <code>true</code> if a request has been processed and the next one can be processed immediately
+         */
+        private boolean processSync() {
+            //The in-flight window is full, we will be signalled once a slot becomes available
+            if (!inFlight.tryAcquire())
+                return false;
+
+            final RequestDetails<A, B> requestDetails = requestQueue.poll();
+
+            if (requestDetails == null) {
+                inFlight.release();
+                return false;
+            }
+
+            //A retried request still owns its in-flight slot and its destination from the previous attempt
+            if (requestDetails.compareAndSetStatus(RequestStatus.RETRY, RequestStatus.ACCEPTED)) {
+                inFlight.release();
+                releaseSlot();
+                dispatchPaced(requestDetails, this::dispatchSync);
+                return true;
+            }
+
+            //Only process new requests, setting their status to ACCEPTED
+            if (!requestDetails.compareAndSetStatus(RequestStatus.NEW, RequestStatus.ACCEPTED)) {
+                inFlight.release();
+                releaseSlot();
+                return true;
+            }
+
+            log.debug("Processing NEW request from Queue: {}", requestDetails);
+
+            final Object key = getSerializationKey(requestDetails.getRequest());
+            synchronized (serialized) {
+                final ArrayDeque<RequestDetails<A, B>> parked = serialized.get(key);
+                //Another request for this destination is still in-flight, wait for our turn
+                if (parked != null) {
+                    log.debug("Parking request '{}' until the in-flight request for '{}' completes", requestDetails, key);
+                    parked.add(requestDetails);
+                    inFlight.release();
+                    return true;
+                }
+                serialized.put(key, new ArrayDeque<>());
+            }
+            startSync(requestDetails, key);
+            return true;
+        }
+
+        /**
+         * Dispatches a request once its destination is free. The caller must own an in-flight slot on behalf of the
+         * request.
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} to be sent
+         * @param key
+         *         The serialization key of the request
+         */
+        private void startSync(RequestDetails<A, B> requestDetails, Object key) {
+            releaseSlot();
+            requestDetails.getClientPromise().whenComplete((res, error) -> completeSync(key));
+            if (!requestDetails.getClientPromise().isDone())
+                dispatchPaced(requestDetails, this::dispatchSync);
+        }
+
+        /**
+         * Called once the in-flight request of a destination completes. The in-flight slot is handed over to the next
+         * parked request of the same destination, if any.
+         *
+         * @param key
+         *         The serialization key of the completed request
+         */
+        private void completeSync(Object key) {
+            final RequestDetails<A, B> next;
+            synchronized (serialized) {
+                next = serialized.get(key).poll();
+                if (next == null)
+                    serialized.remove(key);
+            }
+            if (next == null) {
+                releaseInFlight();
+                return;
+            }
+            try {
+                executor.execute(() -> startSync(next, key));
+            } catch (RejectedExecutionException e) {
+                next.setStatus(RequestStatus.DONE);
+                next.getClientPromise().completeExceptionally(e);
+                startSync(next, key);
+            }
+        }
+
+        /**
+         * Sends a request which has been accepted by {@link #processSync()}.
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} to be sent
+         */
+        private void dispatchSync(RequestDetails<A, B> requestDetails) {
+            if (expire(requestDetails))
+                return;
+            try {
+                assignReadTimeout(requestDetails);
+
+                //Register the request to the session manager
+                final SessionId id = sessionManager.register(requestDetails);
+
+                //Update the status to registered
+                requestDetails.setStatus(RequestStatus.REGISTERED);
+
+                //Perform session cleanup on completion. Every attempt shares the same session id, so this is only done once.
+                if (requestDetails.getRetries() == 0) {
+                    requestDetails.getClientPromise().whenComplete((res, error) -> {
+                        requestDetails.setStatus(RequestStatus.DONE);
+                        performSessionCleanup(id, requestDetails);
+                    });
+                }
+
+                requestDetails.setStatus(RequestStatus.AWAIT);
+
+                //Perform actions upon write completion
+                transport.send(requestDetails.getRequest()).whenComplete((aVoid, writeError) -> {
+                    //If we encounter a write error, retry or notify the listeners
+                    if (writeError != null) {
+                        log.debug("Error sending request : {}", requestDetails.getRequest());
+                        metrics.recordWriteFailure();
+                        final long backoff = getRetryBackoff(requestDetails);
+                        if (backoff >= 0) {
+                            performSessionCleanup(id, requestDetails);
+                            scheduleRetry(requestDetails, backoff, writeError);
+                            return;
+                        }
+                        requestDetails.setStatus(RequestStatus.DONE);
+                        requestDetails.getClientPromise().completeExceptionally(writeError);
+                    }
+                    //Write operation successful
+                    else {
+                        log.debug("Request Successfully Sent to the Transport : {}", requestDetails.getRequest());
+                        //Update status to SENT
+                        requestDetails.setStatus(RequestStatus.SENT);
+                    }
+                });
+
+                scheduleHedge(requestDetails, requestDetails.getRetries(), 0);
+            } catch (Exception e) {
+                requestDetails.setStatus(RequestStatus.DONE);
+                if (requestDetails.getClientPromise() != null)
+                    requestDetails.getClientPromise().completeExceptionally(e);
+            }
+        }
+
+        /**
+         * A Function that process requests asynchronously
+         *
+         * @return <code>true</code> if a request has been dispatched and the next one can be processed immediately
+         */
+        private boolean processAsync() {
+            //The in-flight window is full, we will be signalled once a slot becomes available
+            if (!inFlight.tryAcquire())
+                return false;
+
+            //Remove the head of the queue immediately and process accordingly
+            final RequestDetails<A, B> requestDetails = requestQueue.poll();
+
+            if (requestDetails == null) {
+                inFlight.release();
+                return false;
+            }
+            releaseSlot();
+
+            //A retried request still owns its in-flight slot from the previous attempt
+            if (requestDetails.compareAndSetStatus(RequestStatus.RETRY, RequestStatus.ACCEPTED)) {
+                inFlight.release();
+                dispatchPaced(requestDetails, this::dispatchAsync);
+            }
+            //Only process new requests, setting their status to ACCEPTED
+            else if (requestDetails.compareAndSetStatus(RequestStatus.NEW, RequestStatus.ACCEPTED)) {
+                trackInFlight(requestDetails);
+                dispatchPaced(requestDetails, this::dispatchAsync);
+            } else {
+                inFlight.release();
+            }
+            return true;
+        }
+
+        /**
+         * Sends a request which has been accepted by {@link #processAsync()}
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} to be sent
+         */
+        private void dispatchAsync(RequestDetails<A, B> requestDetails) {
+            if (expire(requestDetails))
+                return;
+            try {
+                assignReadTimeout(requestDetails);
+
+                //Register the session immediately, duplicate requests will be queued in the order they are sent.
+                final SessionId id = sessionManager.register(requestDetails);
+
+                //Perform session cleanup operations on completion. Every attempt shares the same session id, so this is only done once.
+                if (requestDetails.getRetries() == 0) {
+                    requestDetails.getClientPromise().whenComplete((response, throwable) -> {
+                        requestDetails.setStatus(RequestStatus.DONE);
+                        performSessionCleanup(id, requestDetails);
+                    });
+                }
+
+                requestDetails.setStatus(RequestStatus.AWAIT);
+
+                //Send then listen for the write completion status
+                transport.send(requestDetails.getRequest()).whenComplete((aVoid, writeError) -> {
+                    if (writeError != null) {
+                        //If the write operation failed, we need to unregister from the session
+                        log.error("Write operation failed, unregistering from session : {} = {}", id, writeError);
+                        metrics.recordWriteFailure();
+                        final long backoff = getRetryBackoff(requestDetails);
+                        if (backoff >= 0) {
+                            performSessionCleanup(id, requestDetails);
+                            scheduleRetry(requestDetails, backoff, writeError);
+                            return;
+                        }
+                        requestDetails.setStatus(RequestStatus.DONE);
+                        //Notify listeners
+                        if (requestDetails.getClientPromise() != null)
+                            requestDetails.getClientPromise().completeExceptionally(writeError);
+                    } else {
+                        //Update the request status
+                        requestDetails.setStatus(RequestStatus.SENT);
+                    }
+                });
+
+                scheduleHedge(requestDetails, requestDetails.getRetries(), 0);
+            } catch (Exception e) {
+                requestDetails.getClientPromise().completeExceptionally(e);
+            }
+        }
+
+        /**
+         * <p>Consults the {@link DestinationRateLimiter} (if any) before handing the request over to the dispatch
+         * function. If the destination has exhausted its budget, the dispatch is scheduled on the lane executor
+         * rather than blocking, so requests for other destinations are not held back.</p>
+         *
+         * <p>Requests which have already been completed (e.g. cancelled by the client) are discarded, as well as
+         * requests whose deadline has passed or would pass before the end of the pacing delay.</p>
+         *
+         * @param requestDetails
+         *         The accepted {@link RequestDetails}
+         * @param dispatcher
+         *         The function which performs the actual dispatch
+         */
+        private void dispatchPaced(RequestDetails<A, B> requestDetails, Consumer<RequestDetails<A, B>> dispatcher) {
+            if (requestDetails.getClientPromise().isDone()) {
+                requestDetails.setStatus(RequestStatus.DONE);
+                return;
+            }
+            if (expire(requestDetails))
+                return;
+            final DestinationRateLimiter limiter = rateLimiter;
+            final long delay = (limiter != null) ? limiter.reserve(requestDetails.getRequest().recipient()) : 0;
+            if (delay <= 0) {
+                dispatcher.accept(requestDetails);
+                return;
+            }
+            if (delay >= requestDetails.getRemainingTime(TimeUnit.NANOSECONDS)) {
+                fail(requestDetails, new DeadlineExceededException(String.format("Deadline would be exceeded while pacing request '%s'", requestDetails)));
+                return;
+            }
+            log.debug("Pacing request '{}' for {} ns", requestDetails, delay);
+            try {
+                executor.schedule(() -> dispatcher.accept(requestDetails), delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                requestDetails.setStatus(RequestStatus.DONE);
+                requestDetails.getClientPromise().completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Assigns the read timeout of the next attempt from the {@link RttEstimator} (if any)
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} about to be sent
+         */
+        private void assignReadTimeout(RequestDetails<A, B> requestDetails) {
+            final RttEstimator estimator = rttEstimator;
+            requestDetails.setReadTimeout((estimator != null) ? estimator.getTimeout(requestDetails.getRequest().recipient()) : 0);
+        }
+
+        /**
+         * Feeds the round trip time of a completed session to the {@link RttEstimator} and the {@link HedgingPolicy}
+         * (if any). Retried and hedged requests are not fed to the estimator since the response could belong to any of
+         * the copies (Karn's algorithm). The hedging policy on the other hand needs the slow part of the distribution:
+         * a hedged request is measured from the original send of the attempt, which is when its session has been
+         * registered, and a retried request is recorded as taking at least the current hedge delay.
+         *
+         * @param session
+         *         The completed {@link SessionValue}
+         */
+        private void recordRtt(SessionValue<A, B> session) {
+            final RequestDetails<A, B> requestDetails = session.getRequestDetails();
+            final long rtt = System.nanoTime() - session.getRegistrationTime();
+            final boolean retried = requestDetails.getRetries() > 0;
+            final RttEstimator estimator = rttEstimator;
+            if (estimator != null && !retried && requestDetails.getHedges() == 0)
+                estimator.recordSample(session.getRequest().recipient(), rtt);
+            final HedgingPolicy hedgingPolicy = getHedgingPolicy(session.getRequest().getClass());
+            if (hedgingPolicy != null)
+                hedgingPolicy.recordLatency(retried ? Math.max(rtt, hedgingPolicy.getHedgeDelay()) : rtt);
+        }
+
+        /**
+         * Sends another copy of the request once the hedge delay of its {@link HedgingPolicy} (if any) has elapsed,
+         * unless a response has been received by then. The copy shares the session of the attempt, so no additional
+         * session is registered.
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} which has just been sent
+         * @param attempt
+         *         The attempt being hedged (its number of retries), a copy is not sent once the request is retried
+         * @param hedges
+         *         The number of copies already sent for this attempt
+         */
+        private void scheduleHedge(RequestDetails<A, B> requestDetails, int attempt, int hedges) {
+            final HedgingPolicy hedgingPolicy = getHedgingPolicy(requestDetails.getRequest().getClass());
+            if (hedgingPolicy == null || !hedgingPolicy.canHedge(hedges))
+                return;
+            final long delay = hedgingPolicy.getHedgeDelay();
+            if (delay >= requestDetails.getRemainingTime(TimeUnit.NANOSECONDS))
+                return;
+            try {
+                executor.schedule(() -> hedge(requestDetails, attempt, hedges + 1), delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Hedge rejected, messenger is shutting down");
+            }
+        }
+
+        private void hedge(RequestDetails<A, B> requestDetails, int attempt, int hedges) {
+            if (!isHedgeable(requestDetails, attempt))
+                return;
+            final DestinationRateLimiter limiter = rateLimiter;
+            final long delay = (limiter != null) ? limiter.reserve(requestDetails.getRequest().recipient()) : 0;
+            if (delay > 0) {
+                try {
+                    executor.schedule(() -> sendHedge(requestDetails, attempt, hedges), delay, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    log.debug("Hedge rejected, messenger is shutting down");
+                }
+            } else {
+                sendHedge(requestDetails, attempt, hedges);
+            }
+        }
+
+        private void sendHedge(RequestDetails<A, B> requestDetails, int attempt, int hedges) {
+            if (!isHedgeable(requestDetails, attempt))
+                return;
+            requestDetails.incrementHedges();
+            metrics.recordHedge();
+            log.debug("Hedging request '{}' (Hedge: {})", requestDetails, hedges);
+            transport.send(requestDetails.getRequest()).whenComplete((aVoid, writeError) -> {
+                //The original copy is still pending, its own timeout applies
+                if (writeError != null)
+                    log.debug("Unable to send hedge of request '{}' : {}", requestDetails, writeError.getMessage());
+            });
+            scheduleHedge(requestDetails, attempt, hedges);
+        }
+
+        /**
+         * @return <code>true</code> if the attempt is still awaiting a response
+         */
+        private boolean isHedgeable(RequestDetails<A, B> requestDetails, int attempt) {
+            if (!processRequests.get() || requestDetails.getClientPromise().isDone() || requestDetails.getRetries() != attempt || requestDetails.isExpired())
+                return false;
+            final RequestStatus status = requestDetails.getStatus();
+            return status == RequestStatus.AWAIT || status == RequestStatus.SENT;
+        }
+
+        /**
+         * Invoked by the session manager when no response has been received in time for a session
+         *
+         * @param session
+         *         The expired {@link SessionValue}
+         * @param error
+         *         The timeout exception
+         *
+         * @return <code>true</code> if the request is going to be retried
+         */
+        private boolean retryOnTimeout(SessionValue<A, B> session, Throwable error) {
+            final RequestDetails<A, B> requestDetails = session.getRequestDetails();
+            final RttEstimator estimator = rttEstimator;
+            if (estimator != null)
+                estimator.recordTimeout(requestDetails.getRequest().recipient());
+            final long backoff = getRetryBackoff(requestDetails);
+            if (backoff < 0) {
+                final LateResponseTracker<A, B> tracker = lateResponseTracker;
+                if (tracker != null && !requestDetails.getClientPromise().isDone())
+                    tracker.expired(session);
+                return false;
+            }
+            sessionManager.unregister(session);
+            scheduleRetry(requestDetails, backoff, error);
+            return true;
+        }
+
+        /**
+         * @param requestDetails
+         *         The {@link RequestDetails} of the failed attempt
+         *
+         * @return The time (in nanoseconds) to wait before retrying the request or -1 if it should not be retried
+         * (no {@link RetryPolicy}, attempts exhausted or the retry would not complete before the deadline)
+         */
+        private long getRetryBackoff(RequestDetails<A, B> requestDetails) {
+            final RetryPolicy retryPolicy = getRetryPolicy(requestDetails.getRequest().getClass());
+            if (retryPolicy == null || !processRequests.get() || requestDetails.getClientPromise().isDone())
+                return -1;
+            final int retry = requestDetails.getRetries() + 1;
+            if (!retryPolicy.canRetry(retry))
+                return -1;
+            final long backoff = retryPolicy.getBackoff(retry);
+            return (backoff < requestDetails.getRemainingTime(TimeUnit.NANOSECONDS)) ? backoff : -1;
+        }
+
+        /**
+         * Puts the request back in the queue once the backoff delay has elapsed. The request keeps its client promise,
+         * its priority and its in-flight slot.
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} to be retried
+         * @param backoff
+         *         The delay (in nanoseconds) before the request is put back in the queue
+         * @param cause
+         *         The error which caused the previous attempt to fail
+         */
+        private void scheduleRetry(RequestDetails<A, B> requestDetails, long backoff, Throwable cause) {
+            final int retry = requestDetails.incrementRetry() + 1;
+            metrics.recordRetry();
+            log.debug("Retrying request '{}' in {} ns (Retry: {}, Cause: {})", requestDetails, backoff, retry, cause.getMessage());
+            try {
+                executor.schedule(() -> {
+                    requestDetails.setStatus(RequestStatus.RETRY);
+                    queueDepth.forceAcquire();
+                    requestQueue.add(requestDetails);
+                    signalDispatch();
+                }, backoff, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(requestDetails, cause);
+            }
+        }
+
+        /**
+         * Fails the request if its deadline has passed, so that it is not sent needlessly
+         *
+         * @param requestDetails
+         *         The {@link RequestDetails} about to be sent
+         *
+         * @return <code>true</code> if the request has expired
+         */
+        private boolean expire(RequestDetails<A, B> requestDetails) {
+            if (!requestDetails.isExpired())
+                return false;
+            log.debug("Dropping expired request '{}'", requestDetails);
+            fail(requestDetails, new DeadlineExceededException(String.format("Deadline exceeded before request '%s' could be sent", requestDetails)));
+            return true;
+        }
+
+        private void fail(RequestDetails<A, B> requestDetails, Throwable error) {
+            requestDetails.setStatus(RequestStatus.DONE);
+            requestDetails.getClientPromise().completeExceptionally(error);
+        }
+
+        /**
+         * Unregister the request from the session
+         *
+         * @param id
+         *         The {@link SessionId} to unregister
+         * @param requestDetails
+         *         The {@link RequestDetails} of the session to unregister, other sessions sharing the same id are left
+         *         untouched
+         */
+        private void performSessionCleanup(SessionId id, RequestDetails<A, B> requestDetails) {
+            final SessionValue<A, B> session = sessionManager.getSession(id, requestDetails);
+            if (session != null) {
+                sessionManager.unregister(session);
+            }
         }
     }
 }
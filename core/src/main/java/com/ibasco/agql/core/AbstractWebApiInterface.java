@@ -27,8 +27,11 @@ package com.ibasco.agql.core;
 import com.google.gson.*;
 import com.ibasco.agql.core.client.AbstractRestClient;
 import com.ibasco.agql.core.exceptions.*;
+import com.ibasco.agql.core.reactive.RequestPublisher;
+import com.ibasco.agql.core.reactive.RequestResult;
 import com.ibasco.agql.core.reflect.types.CollectionParameterizedType;
 import io.netty.handler.codec.http.HttpStatusClass;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +40,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * <p>An API Interface containing a set/group of methods that are usually defined by the publisher</p>
@@ -51,6 +56,7 @@ abstract public class AbstractWebApiInterface<T extends AbstractRestClient,
     private T client;
     private GsonBuilder gsonBuilder = new GsonBuilder();
     private Gson jsonBuilder;
+    private volatile boolean coalescing;
 
     /**
      * Used by the underlying concrete classes for api versioning
@@ -136,10 +142,57 @@ abstract public class AbstractWebApiInterface<T extends AbstractRestClient,
      */
     @SuppressWarnings("unchecked")
     protected <A> CompletableFuture<A> sendRequest(Req request) {
+        if (coalescing)
+            request.setCoalescable(true);
         CompletableFuture<Res> responseFuture = client.sendRequest(request);
         return responseFuture.whenComplete(this::interceptResponse).thenApply(this::postProcessConversion);
     }
 
+    /**
+     * @return <code>true</code> if identical GET requests issued by this interface are coalesced
+     */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * <p>Enables or disables the coalescing of the GET requests issued by this interface. While a GET request is
+     * pending, identical requests (same normalized url and headers) are attached to it and share its response instead
+     * of being sent again. Only enable this for interfaces whose responses do not depend on anything else than the url
+     * and headers. Disabled by default.</p>
+     *
+     * @param coalescing
+     *         <code>true</code> to coalesce identical GET requests
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * <p>Invokes an api method of this interface for each input as demanded by the subscriber of the returned {@link
+     * Publisher}. A call is only issued once the subscriber has requested its result, so a slow subscriber limits the
+     * number of outstanding web requests.</p>
+     *
+     * <pre>
+     * steamUser.publish(steamIds, steamUser::getPlayerProfile).subscribe(subscriber);
+     * </pre>
+     *
+     * @param inputs
+     *         A {@link Stream} of inputs (e.g. steam ids). The stream is consumed lazily and the returned {@link
+     *         Publisher} only allows a single subscriber.
+     * @param method
+     *         The api method to invoke for each input
+     * @param <I>
+     *         The type of the input
+     * @param <V>
+     *         The type returned by the api method
+     *
+     * @return A {@link Publisher} emitting a {@link RequestResult} per input, in completion order
+     */
+    public <I, V> Publisher<RequestResult<I, V>> publish(Stream<I> inputs, Function<? super I, CompletableFuture<V>> method) {
+        return RequestPublisher.fromStream(inputs, method);
+    }
+
     /**
      * <p>Override this method if you need to perform additional configurations against the builder (e.g. Register custom deserializers)</p>
      *
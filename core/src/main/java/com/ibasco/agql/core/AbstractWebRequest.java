@@ -40,6 +40,8 @@ abstract public class AbstractWebRequest extends AbstractRequest<Request> {
 
     private RequestBuilder requestBuilder;
 
+    private boolean coalescable;
+
     public AbstractWebRequest() {
         super(null);
         requestBuilder = new RequestBuilder();
@@ -80,6 +82,24 @@ abstract public class AbstractWebRequest extends AbstractRequest<Request> {
         return null;
     }
 
+    /**
+     * @return <code>true</code> if this request may share the response of an identical pending GET request
+     */
+    public boolean isCoalescable() {
+        return coalescable;
+    }
+
+    /**
+     * Marks this request as safe to be coalesced with an identical pending GET request (same normalized url and
+     * headers) and share its response.
+     *
+     * @param coalescable
+     *         <code>true</code> if the request may be coalesced
+     */
+    public void setCoalescable(boolean coalescable) {
+        this.coalescable = coalescable;
+    }
+
     public final RequestBuilder request() {
         return requestBuilder;
     }
@@ -24,9 +24,14 @@
 
 package com.ibasco.agql.core;
 
+import com.ibasco.agql.core.functions.TriConsumer;
+
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 /**
  * {@link Messenger} is responsible for sending and receiving messages from clients.
@@ -34,4 +39,53 @@ import java.util.function.BiConsumer;
 public interface Messenger<Req extends AbstractRequest, Response extends AbstractResponse>
         extends BiConsumer<Response, Throwable>, Closeable {
     CompletableFuture<Response> send(Req request);
+
+    /**
+     * Sends a group of requests, notifying the callback as each of them completes
+     *
+     * @param requests
+     *         A {@link Collection} of requests to be sent
+     * @param callback
+     *         A {@link TriConsumer} invoked with the request and its response (or error) upon completion
+     *
+     * @return A {@link CompletableFuture} which is completed once every request has completed and its callback
+     * has been invoked
+     *
+     * @see #sendAll(Stream, TriConsumer)
+     */
+    default CompletableFuture<Void> sendAll(Collection<? extends Req> requests, TriConsumer<Req, Response, Throwable> callback) {
+        return sendAll(requests.stream(), callback);
+    }
+
+    /**
+     * Sends a group of requests, notifying the callback as each of them completes. The default implementation
+     * simply calls {@link #send(AbstractRequest)} for each request, implementations are encouraged to submit them in
+     * bulk.
+     *
+     * @param requests
+     *         A {@link Stream} of requests to be sent
+     * @param callback
+     *         A {@link TriConsumer} invoked with the request and its response (or error) upon completion
+     *
+     * @return A {@link CompletableFuture} which is completed once every request has completed and its callback
+     * has been invoked
+     */
+    default CompletableFuture<Void> sendAll(Stream<? extends Req> requests, TriConsumer<Req, Response, Throwable> callback) {
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        requests.forEach(request -> {
+            pending.incrementAndGet();
+            send(request).whenComplete((response, error) -> {
+                try {
+                    callback.accept(request, response, error);
+                } finally {
+                    if (pending.decrementAndGet() == 0)
+                        completion.complete(null);
+                }
+            });
+        });
+        if (pending.decrementAndGet() == 0)
+            completion.complete(null);
+        return completion;
+    }
 }
@@ -34,22 +34,37 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.function.BiPredicate;
 
 public class ReadRequestTimeoutTimerTask implements TimerTask {
     private static final Logger log = LoggerFactory.getLogger(ReadRequestTimeoutTimerTask.class);
     private SessionId id;
     private SessionManager sessionManager;
+    private SessionValue sessionValue;
 
     public ReadRequestTimeoutTimerTask(SessionId sessionId, SessionManager sessionManager) {
         this.id = sessionId;
         this.sessionManager = sessionManager;
     }
 
+    /**
+     * Creates a timeout task bound to a specific session, rather than to the head session of its id
+     *
+     * @param sessionValue
+     *         The {@link SessionValue} to expire
+     * @param sessionManager
+     *         The {@link SessionManager} the session is registered with
+     */
+    public ReadRequestTimeoutTimerTask(SessionValue sessionValue, SessionManager sessionManager) {
+        this(sessionValue.getId(), sessionManager);
+        this.sessionValue = sessionValue;
+    }
+
     @Override
     public void run(Timeout timeout) throws Exception {
         log.debug("Timeout occured for Session {}", id);
         //Notify the listener that timeout has occured
-        final SessionValue session = sessionManager.getSession(id);
+        final SessionValue session = (sessionValue != null) ? sessionValue : sessionManager.getSession(id);
 
         //Do not proceed if the session is null
         if (session == null) {
@@ -57,10 +72,31 @@ public class ReadRequestTimeoutTimerTask implements TimerTask {
             return;
         }
 
+        if (!timeout.isCancelled())
+            expire(sessionManager, session);
+    }
+
+    /**
+     * Notifies the client that no response has been received in time for the session, unless the timeout handler of
+     * the session manager (if any) recovers from it (e.g. by retrying the request).
+     *
+     * @param sessionManager
+     *         The {@link SessionManager} the session is registered with
+     * @param session
+     *         The expired {@link SessionValue}
+     */
+    @SuppressWarnings("unchecked")
+    public static void expire(SessionManager sessionManager, SessionValue session) {
         //Check first if the promise has been completed
-        if (session.getClientPromise() != null && !session.getClientPromise().isDone() && !session.getClientPromise().isCancelled() && !timeout.isCancelled()) {
-            //Send a ReadTimeoutException to the client
-            session.getClientPromise().completeExceptionally(new ReadTimeoutException(id, String.format("Timeout occured for '%s' Started: %f seconds ago", id, ((double) Duration.ofMillis(System.currentTimeMillis() - session.getTimeRegistered()).toMillis() / 1000.0))));
-        }
+        if (session.getClientPromise() == null || session.getClientPromise().isDone())
+            return;
+        final SessionId id = session.getId();
+        final ReadTimeoutException error = new ReadTimeoutException(id, String.format("Timeout occured for '%s' Started: %f seconds ago", id, ((double) Duration.ofMillis(System.currentTimeMillis() - session.getTimeRegistered()).toMillis() / 1000.0)));
+        //Give the handler (if any) a chance to recover, e.g. by retrying the request
+        final BiPredicate<SessionValue, Throwable> handler = sessionManager.getTimeoutHandler();
+        if (handler != null && handler.test(session, error))
+            return;
+        //Send a ReadTimeoutException to the client
+        session.getClientPromise().completeExceptionally(error);
     }
 }
@@ -26,29 +26,45 @@ package com.ibasco.agql.core;
 
 import com.ibasco.agql.core.enums.RequestPriority;
 import com.ibasco.agql.core.enums.RequestStatus;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.ibasco.agql.core.messenger.metrics.MessengerMetrics;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
- * Contains all the properties associated with this request
+ * <p>Contains all the properties associated with this request.</p>
+ *
+ * <p>Instances are compared by identity: each one stands for a single submission of a request, even if the same
+ * request is submitted more than once. They have no natural ordering, the order in which requests are dispatched is
+ * decided by the {@link com.ibasco.agql.core.messenger.scheduling.RequestScheduler}. The fields describing the
+ * request are final and the mutable state (status, attempt counters and timing) is updated atomically without
+ * locking.</p>
  */
-public class RequestDetails<Req extends AbstractRequest, Res extends AbstractResponse> implements Comparable<RequestDetails> {
-    private static final Logger log = LoggerFactory.getLogger(RequestDetails.class);
-    private Req request;
-    private CompletableFuture<Res> clientPromise;
-    private RequestStatus status;
-    private RequestPriority priority;
-    private Transport<Req> transport;
-    private Class<Res> expectedResponseClass;
-    private AtomicInteger retries = new AtomicInteger(0);
-    private long timeCreated;
+public class RequestDetails<Req extends AbstractRequest, Res extends AbstractResponse> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<RequestDetails, RequestStatus> STATUS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(RequestDetails.class, RequestStatus.class, "status");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<RequestDetails> RETRIES_UPDATER = AtomicIntegerFieldUpdater.newUpdater(RequestDetails.class, "retries");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<RequestDetails> HEDGES_UPDATER = AtomicIntegerFieldUpdater.newUpdater(RequestDetails.class, "hedges");
+
+    private final Req request;
+    private final CompletableFuture<Res> clientPromise;
+    private final RequestPriority priority;
+    private final Transport<Req> transport;
+    private final long timeCreated;
+    private volatile RequestStatus status;
+    private volatile int retries;
+    private volatile int hedges;
+    private volatile boolean hasDeadline;
+    private volatile long deadline;
+    private volatile long readTimeout;
+    private volatile long statusTime;
+    private volatile MessengerMetrics metrics;
 
     public RequestDetails(Req request, CompletableFuture<Res> clientPromise, RequestPriority priority, Transport<Req> transport) {
         this.status = RequestStatus.NEW;
@@ -69,100 +85,184 @@ public class RequestDetails<Req extends AbstractRequest, Res extends AbstractRes
         this.clientPromise = requestDetails.getClientPromise();
         this.status = requestDetails.getStatus();
         this.priority = requestDetails.getPriority();
-        this.retries = new AtomicInteger(requestDetails.getRetries());
-        this.expectedResponseClass = requestDetails.getExpectedResponseClass();
+        this.transport = requestDetails.getTransport();
+        this.timeCreated = requestDetails.getTimeCreated();
+        this.retries = requestDetails.getRetries();
+        this.hedges = requestDetails.getHedges();
+        this.hasDeadline = requestDetails.hasDeadline();
+        this.deadline = requestDetails.getDeadline();
+        this.readTimeout = requestDetails.getReadTimeout();
     }
 
-    public Class<Res> getExpectedResponseClass() {
-        return expectedResponseClass;
+    public CompletableFuture<Res> getClientPromise() {
+        return clientPromise;
     }
 
-    public void setExpectedResponseClass(Class<Res> expectedResponseClass) {
-        this.expectedResponseClass = expectedResponseClass;
+    public RequestPriority getPriority() {
+        return priority;
     }
 
-    public synchronized CompletableFuture<Res> getClientPromise() {
-        return clientPromise;
+    public int getRetries() {
+        return retries;
     }
 
-    public synchronized void setClientPromise(CompletableFuture<Res> clientPromise) {
-        this.clientPromise = clientPromise;
+    public Req getRequest() {
+        return request;
     }
 
-    public synchronized RequestPriority getPriority() {
-        return priority;
+    public RequestStatus getStatus() {
+        return this.status;
     }
 
-    public synchronized void setPriority(RequestPriority priority) {
-        this.priority = priority;
+    public void setStatus(RequestStatus status) {
+        final RequestStatus previous = STATUS_UPDATER.getAndSet(this, status);
+        if (metrics != null && previous != status)
+            recordStatusTime(previous);
     }
 
-    public int getRetries() {
-        return retries.get();
+    /**
+     * Atomically updates the status of the request, provided that it has not been changed in the meantime
+     *
+     * @param expect
+     *         The expected current status
+     * @param status
+     *         The new status
+     *
+     * @return <code>true</code> if the status has been updated
+     */
+    public boolean compareAndSetStatus(RequestStatus expect, RequestStatus status) {
+        if (!STATUS_UPDATER.compareAndSet(this, expect, status))
+            return false;
+        if (metrics != null && expect != status)
+            recordStatusTime(expect);
+        return true;
     }
 
-    public synchronized void setRequest(Req request) {
-        this.request = request;
+    private void recordStatusTime(RequestStatus previous) {
+        final MessengerMetrics metrics = this.metrics;
+        if (metrics == null)
+            return;
+        final long now = System.nanoTime();
+        metrics.recordStatusTime(previous, now - statusTime);
+        statusTime = now;
     }
 
-    public synchronized Req getRequest() {
-        return request;
+    /**
+     * @param metrics
+     *         The {@link MessengerMetrics} recording the time this request spends in each status, <code>null</code>
+     *         to disable recording
+     */
+    public void setMetrics(MessengerMetrics metrics) {
+        this.statusTime = System.nanoTime();
+        this.metrics = metrics;
     }
 
-    public synchronized RequestStatus getStatus() {
-        return this.status;
+    public int incrementRetry() {
+        return RETRIES_UPDATER.getAndIncrement(this);
     }
 
-    public synchronized void setStatus(RequestStatus status) {
-        this.status = status;
+    /**
+     * @return The number of extra copies of this request which have been sent, over all attempts
+     */
+    public int getHedges() {
+        return hedges;
     }
 
-    public int incrementRetry() {
-        return this.retries.getAndAdd(1);
+    public int incrementHedges() {
+        return HEDGES_UPDATER.getAndIncrement(this);
     }
 
     public Transport<Req> getTransport() {
         return transport;
     }
 
-    public void setTransport(Transport transport) {
-        this.transport = transport;
-    }
-
     public long getTimeCreated() {
         return timeCreated;
     }
 
-    public void setTimeCreated(long timeCreated) {
-        this.timeCreated = timeCreated;
+    /**
+     * @return <code>true</code> if a deadline has been assigned to this request
+     */
+    public boolean hasDeadline() {
+        return hasDeadline;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (o == null)
-            return false;
-        if (!(o instanceof RequestDetails))
-            return false;
-        final RequestDetails rhs = (RequestDetails) o;
-        return new EqualsBuilder()
-                .append(this.getClass(), rhs.getClass())
-                .append(this.getRequest(), rhs.getRequest())
-                .append(this.getTimeCreated(), rhs.getTimeCreated())
-                .isEquals();
+    /**
+     * @return The absolute deadline of the request, in terms of {@link System#nanoTime()}. Only meaningful if {@link
+     * #hasDeadline()} returns <code>true</code>.
+     */
+    public long getDeadline() {
+        return deadline;
     }
 
-    @Override
-    public int hashCode() {
-        return new HashCodeBuilder(327, 993)
-                .append(this.getClass())
-                .append(this.getRequest())
-                .append(this.getTimeCreated())
-                .toHashCode();
+    /**
+     * Sets the absolute deadline of the request. Once the deadline has passed, the request is no longer sent and the
+     * client is notified with a {@link com.ibasco.agql.core.exceptions.DeadlineExceededException}.
+     *
+     * @param deadline
+     *         The deadline, in terms of {@link System#nanoTime()}
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
     }
 
-    @Override
-    public int compareTo(RequestDetails o) {
-        return this.priority.compareTo(o.getPriority());
+    /**
+     * Sets the deadline of the request relative to the current time
+     *
+     * @param timeout
+     *         The time the request is allowed to take, starting from now
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     */
+    public void setDeadline(long timeout, TimeUnit unit) {
+        setDeadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Removes the deadline of this request
+     */
+    public void clearDeadline() {
+        this.hasDeadline = false;
+    }
+
+    /**
+     * @param unit
+     *         The {@link TimeUnit} of the returned value
+     *
+     * @return The time left before the deadline is reached (zero or negative if it has already passed) or {@link
+     * Long#MAX_VALUE} if the request has no deadline
+     */
+    public long getRemainingTime(TimeUnit unit) {
+        if (!hasDeadline)
+            return Long.MAX_VALUE;
+        return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return <code>true</code> if the request has a deadline and it has already passed
+     */
+    public boolean isExpired() {
+        return hasDeadline && deadline - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return The time (in nanoseconds) to wait for a response to the current attempt, zero if the default read
+     * timeout of the session manager applies
+     */
+    public long getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Sets the time to wait for a response to the current attempt. The read timeout never extends past the deadline
+     * of the request (if any).
+     *
+     * @param readTimeout
+     *         The read timeout in nanoseconds, zero to use the default read timeout of the session manager
+     */
+    public void setReadTimeout(long readTimeout) {
+        this.readTimeout = readTimeout;
     }
 
     @Override
@@ -28,6 +28,8 @@ import com.ibasco.agql.core.AbstractClient;
 import com.ibasco.agql.core.AbstractGameServerRequest;
 import com.ibasco.agql.core.AbstractGameServerResponse;
 import com.ibasco.agql.core.messenger.GameServerMessenger;
+import com.ibasco.agql.core.transport.FlushPolicy;
+import com.ibasco.agql.core.transport.udp.UdpReceiveProfile;
 
 abstract public class AbstractGameServerClient<Req extends AbstractGameServerRequest,
         Res extends AbstractGameServerResponse,
@@ -36,4 +38,45 @@ abstract public class AbstractGameServerClient<Req extends AbstractGameServerReq
     public AbstractGameServerClient(M messenger) {
         super(messenger);
     }
+
+    /**
+     * Changes how datagrams are read by the underlying messenger. This has to be called before the first request is
+     * sent.
+     *
+     * @param profile
+     *         The {@link UdpReceiveProfile} to apply
+     *
+     * @see GameServerMessenger#setReceiveProfile(UdpReceiveProfile)
+     */
+    public void setReceiveProfile(UdpReceiveProfile profile) {
+        getMessenger().setReceiveProfile(profile);
+    }
+
+    /**
+     * Changes when the datagrams written by the underlying messenger are flushed. This has to be called before the
+     * first request is sent.
+     *
+     * @param flushPolicy
+     *         The {@link FlushPolicy} to use
+     *
+     * @see GameServerMessenger#setFlushPolicy(FlushPolicy)
+     */
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        getMessenger().setFlushPolicy(flushPolicy);
+    }
+
+    /**
+     * Spreads the requests of the underlying messenger across several sockets, each of them being serviced by a
+     * different event loop. This has to be called before the first request is sent.
+     *
+     * @param socketCount
+     *         The number of sockets, typically the number of event loops of the runtime
+     * @param reusePort
+     *         <code>true</code> to bind every socket to the same port with <code>SO_REUSEPORT</code> (epoll only)
+     *
+     * @see GameServerMessenger#setSocketFanout(int, boolean)
+     */
+    public void setSocketFanout(int socketCount, boolean reusePort) {
+        getMessenger().setSocketFanout(socketCount, reusePort);
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.enums;
+
+/**
+ * Indicates what the messenger should do with a new request once its queue is full
+ */
+public enum AdmissionPolicy {
+    /**
+     * Block the calling thread until space becomes available in the queue. Requests issued from one of the event
+     * loops of the messenger (e.g. inside a <code>thenCompose</code> callback) do not block, since the event loop may
+     * have to process the responses which free up the queue. These are added to the queue asynchronously once space
+     * becomes available.
+     */
+    AWAIT,
+    /**
+     * Immediately fail the request with a {@link com.ibasco.agql.core.exceptions.RequestRejectedException}
+     */
+    FAIL_FAST,
+    /**
+     * Evict the most recently queued request with the lowest {@link RequestPriority} to make room for the new one.
+     * If no queued request has a lower priority than the new request, the new request is rejected instead.
+     */
+    DROP_LOWEST_PRIORITY
+}
@@ -29,7 +29,8 @@ package com.ibasco.agql.core.enums;
  */
 public enum ProcessingMode {
     /**
-     * Wait for the head of the queue to complete before processing the next
+     * Wait for the in-flight request of a destination to complete before processing the next one for the same
+     * destination. Requests for different destinations are processed concurrently.
      */
     SYNCHRONOUS,
     /**
@@ -37,8 +37,8 @@ public enum RequestStatus {
      */
     ACCEPTED,
     /**
-     * Request could not be sent at this time, if marked for RETRY,
-     * it will be placed on the bottom of the queue and scheduled for re-processing.
+     * A previous attempt of the request has timed out or could not be written. The request has been placed back in
+     * the queue (keeping its priority) and is scheduled for re-processing, see {@link com.ibasco.agql.core.messenger.retry.RetryPolicy}.
      */
     RETRY,
     /**
@@ -28,8 +28,17 @@ import com.ibasco.agql.core.AbstractGameServerRequest;
 import com.ibasco.agql.core.AbstractGameServerResponse;
 import com.ibasco.agql.core.AbstractMessenger;
 import com.ibasco.agql.core.enums.ProcessingMode;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.session.AbstractSessionIdFactory;
 import com.ibasco.agql.core.session.SessionManager;
+import com.ibasco.agql.core.transport.FlushPolicy;
+import com.ibasco.agql.core.transport.NettyTransport;
+import com.ibasco.agql.core.transport.udp.NettyBasicUdpTransport;
+import com.ibasco.agql.core.transport.udp.NettyMultiSocketUdpTransport;
+import com.ibasco.agql.core.transport.udp.NettyPooledUdpTransport;
+import com.ibasco.agql.core.transport.udp.UdpReceiveProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -39,6 +48,8 @@ import java.util.concurrent.ScheduledExecutorService;
 abstract public class GameServerMessenger<A extends AbstractGameServerRequest, B extends AbstractGameServerResponse>
         extends AbstractMessenger<A, B> {
 
+    private static final Logger log = LoggerFactory.getLogger(GameServerMessenger.class);
+
     public GameServerMessenger(ProcessingMode processingMode) {
         super(processingMode);
     }
@@ -47,7 +58,92 @@ abstract public class GameServerMessenger<A extends AbstractGameServerRequest, B
         super(keyFactory, processingMode);
     }
 
+    public GameServerMessenger(AbstractSessionIdFactory keyFactory, ProcessingMode processingMode, int laneCount) {
+        super(keyFactory, processingMode, laneCount);
+    }
+
+    public GameServerMessenger(SharedRuntime runtime, AbstractSessionIdFactory keyFactory, ProcessingMode processingMode, int laneCount) {
+        super(runtime, keyFactory, processingMode, laneCount);
+    }
+
     public GameServerMessenger(SessionManager sessionManager, ProcessingMode processingMode, int initQueueCapacity, ScheduledExecutorService executorService) {
         super(sessionManager, processingMode, initQueueCapacity, executorService);
     }
+
+    /**
+     * <p>Changes how datagrams are read from the sockets of the transport, e.g. {@link
+     * UdpReceiveProfile#HIGH_THROUGHPUT} when scanning a large number of servers. This only applies to the sockets
+     * opened afterwards, so it has to be called before the first request is sent.</p>
+     *
+     * <p>If the datagram size of the profile is smaller than the one required by the protocol (see {@link
+     * #getMinDatagramSize()}), the required size is used instead so that responses are not truncated.</p>
+     *
+     * @param profile
+     *         The {@link UdpReceiveProfile} to apply
+     *
+     * @throws IllegalStateException
+     *         If the transport of this messenger is not a UDP transport
+     */
+    @SuppressWarnings("unchecked")
+    public void setReceiveProfile(UdpReceiveProfile profile) {
+        if (profile == null)
+            throw new IllegalArgumentException("Receive profile cannot be null");
+        if (!(getTransport() instanceof NettyPooledUdpTransport) && !(getTransport() instanceof NettyBasicUdpTransport) && !(getTransport() instanceof NettyMultiSocketUdpTransport))
+            throw new IllegalStateException("Receive profiles only apply to UDP transports");
+        final int minDatagramSize = getMinDatagramSize();
+        if (profile.getMaxDatagramSize() < minDatagramSize) {
+            log.debug("Keeping the datagram size of {} bytes instead of the {} bytes of the receive profile", minDatagramSize, profile.getMaxDatagramSize());
+            profile = profile.withDatagramSize(minDatagramSize);
+        }
+        profile.applyTo((NettyTransport<A>) getTransport());
+    }
+
+    /**
+     * @return The smallest size (in bytes) of the receive buffer of a datagram for this protocol, the datagrams of a
+     * receive profile are never made smaller than this
+     */
+    public int getMinDatagramSize() {
+        return UdpReceiveProfile.DEFAULT_DATAGRAM_SIZE;
+    }
+
+    /**
+     * <p>Changes when the datagrams written to the sockets of the transport are flushed. UDP transports consolidate
+     * their flushes by default, use {@link FlushPolicy#IMMEDIATE} to flush every request on its own. This only applies
+     * to the sockets opened afterwards, so it has to be called before the first request is sent.</p>
+     *
+     * @param flushPolicy
+     *         The {@link FlushPolicy} to use
+     *
+     * @throws IllegalStateException
+     *         If the transport of this messenger is not a netty transport
+     */
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        if (!(getTransport() instanceof NettyTransport))
+            throw new IllegalStateException("Flush policies only apply to netty transports");
+        ((NettyTransport) getTransport()).setFlushPolicy(flushPolicy);
+    }
+
+    /**
+     * <p>Changes the number of sockets the requests are spread across, each of them being serviced by a different event
+     * loop of the runtime. This has to be called before the first request is sent.</p>
+     *
+     * @param socketCount
+     *         The number of sockets, typically the number of event loops of the runtime
+     * @param reusePort
+     *         <code>true</code> to bind every socket to the same port with <code>SO_REUSEPORT</code> (epoll only),
+     *         <code>false</code> to bind each of them to a distinct ephemeral port
+     *
+     * @throws IllegalStateException
+     *         If the transport of this messenger does not support multiple sockets, or if its sockets have already
+     *         been bound
+     * @see NettyMultiSocketUdpTransport
+     */
+    @SuppressWarnings("unchecked")
+    public void setSocketFanout(int socketCount, boolean reusePort) {
+        if (!(getTransport() instanceof NettyMultiSocketUdpTransport))
+            throw new IllegalStateException("The transport of this messenger does not support multiple sockets");
+        final NettyMultiSocketUdpTransport<A> transport = (NettyMultiSocketUdpTransport<A>) getTransport();
+        transport.setSocketCount(socketCount);
+        transport.setReusePort(reusePort);
+    }
 }
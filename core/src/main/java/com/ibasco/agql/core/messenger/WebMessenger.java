@@ -24,20 +24,32 @@
 
 package com.ibasco.agql.core.messenger;
 
+import com.ibasco.agql.core.AbstractWebApiInterface;
 import com.ibasco.agql.core.AbstractWebRequest;
 import com.ibasco.agql.core.AbstractWebResponse;
 import com.ibasco.agql.core.Messenger;
 import com.ibasco.agql.core.Transport;
+import com.ibasco.agql.core.messenger.coalescing.RequestCoalescer;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.transport.http.AsyncHttpTransport;
 import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.cookie.Cookie;
 import org.asynchttpclient.DefaultAsyncHttpClientConfig;
 import org.asynchttpclient.Request;
 import org.asynchttpclient.Response;
 import org.asynchttpclient.filter.ThrottleRequestFilter;
+import org.asynchttpclient.uri.Uri;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
@@ -50,15 +62,34 @@ public class WebMessenger<Req extends AbstractWebRequest, Res extends AbstractWe
     private static final Logger log = LoggerFactory.getLogger(WebMessenger.class);
     private Transport<Request> transport;
     private Function<Response, Res> responseFactory;
+    private final RequestCoalescer<String, Res> coalescer = new RequestCoalescer<>();
+    private volatile boolean coalescing;
+    private SharedRuntime runtime;
 
     public WebMessenger(Function<Response, Res> responseFactory) {
-        this(responseFactory, null);
+        this(responseFactory, (SharedRuntime) null);
+    }
+
+    /**
+     * Creates a messenger whose http client is served by the event loops and the timer of the specified runtime. The
+     * runtime is retained until the messenger is closed.
+     *
+     * @param responseFactory
+     *         The factory creating the web response from the raw http response
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     */
+    public WebMessenger(Function<Response, Res> responseFactory, SharedRuntime runtime) {
+        this.runtime = (runtime != null) ? runtime.retain() : SharedRuntime.acquire();
+        DefaultAsyncHttpClientConfig.Builder configBuilder = createConfig();
+        configBuilder.setEventLoopGroup(this.runtime.getEventLoopGroup());
+        configBuilder.setNettyTimer(this.runtime.getTimer());
+        this.transport = new AsyncHttpTransport(configBuilder.build());
+        this.responseFactory = responseFactory;
     }
 
     public WebMessenger(Function<Response, Res> responseFactory, EventLoopGroup eventLoopGroup) {
-        DefaultAsyncHttpClientConfig.Builder configBuilder = new DefaultAsyncHttpClientConfig.Builder();
-        configBuilder.setKeepAlive(true);
-        configBuilder.addRequestFilter(new ThrottleRequestFilter(40));
+        DefaultAsyncHttpClientConfig.Builder configBuilder = createConfig();
         if (eventLoopGroup != null) {
             configBuilder.setEventLoopGroup(eventLoopGroup);
         }
@@ -66,14 +97,119 @@ public class WebMessenger<Req extends AbstractWebRequest, Res extends AbstractWe
         this.responseFactory = responseFactory;
     }
 
+    private static DefaultAsyncHttpClientConfig.Builder createConfig() {
+        DefaultAsyncHttpClientConfig.Builder configBuilder = new DefaultAsyncHttpClientConfig.Builder();
+        configBuilder.setKeepAlive(true);
+        configBuilder.addRequestFilter(new ThrottleRequestFilter(40));
+        return configBuilder;
+    }
+
+    /**
+     * Sends the request. If coalescing is enabled for this messenger (see {@link #setCoalescing(boolean)}) or for the
+     * request (see {@link AbstractWebRequest#setCoalescable(boolean)}), identical GET requests (same normalized url and
+     * headers) are attached to a pending one instead of being sent again.
+     *
+     * @param request
+     *         The {@link AbstractWebRequest} to be sent
+     *
+     * @return A {@link CompletableFuture} containing the response
+     */
     @Override
     public CompletableFuture<Res> send(Req request) {
-        log.debug("Sending request with url : {}", request.getMessage().getUri());
-        CompletableFuture<Response> res = transport.send(request.getMessage());
+        final Request message = request.getMessage();
+        if ((coalescing || request.isCoalescable()) && "GET".equalsIgnoreCase(message.getMethod()))
+            return coalescer.coalesce(coalescingKey(message), () -> send(message));
+        return send(message);
+    }
+
+    private CompletableFuture<Res> send(Request message) {
+        log.debug("Sending request with url : {}", message.getUri());
+        CompletableFuture<Response> res = transport.send(message);
         //transform the raw Response type to an instance of AbstractWebResponse using the supplied factory method
         return res.thenApply(responseFactory);
     }
 
+    /**
+     * Builds the key identifying equivalent GET requests: the normalized url followed by the request headers and
+     * cookies, since these may change the response (e.g. Authorization or Accept-Language).
+     *
+     * @param message
+     *         The http request
+     *
+     * @return The coalescing key
+     */
+    static String coalescingKey(Request message) {
+        final StringBuilder key = new StringBuilder(normalizeUrl(message.getUri()));
+        final HttpHeaders headers = message.getHeaders();
+        if (headers != null && !headers.isEmpty()) {
+            final List<Map.Entry<String, String>> entries = new ArrayList<>(headers.entries());
+            entries.sort(Comparator.comparing(e -> e.getKey().toLowerCase(Locale.ROOT)));
+            for (Map.Entry<String, String> header : entries)
+                key.append('\n').append(header.getKey().toLowerCase(Locale.ROOT)).append(": ").append(header.getValue());
+        }
+        final List<Cookie> cookies = message.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies)
+                key.append("\ncookie: ").append(cookie.name()).append('=').append(cookie.value());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Normalizes the url so that equivalent urls are considered identical: the scheme and host are lower-cased, the
+     * port is made explicit, the fragment is dropped and the query parameters are sorted by name. Parameters sharing a
+     * name keep their original order, as it may be significant to the server.
+     *
+     * @param uri
+     *         The {@link Uri} of the request
+     *
+     * @return The normalized url
+     */
+    static String normalizeUrl(Uri uri) {
+        final StringBuilder url = new StringBuilder()
+                .append(uri.getScheme().toLowerCase(Locale.ROOT)).append("://")
+                .append(uri.getHost().toLowerCase(Locale.ROOT)).append(':').append(uri.getExplicitPort())
+                .append(uri.getNonEmptyPath());
+        final String query = uri.getQuery();
+        if (query != null && !query.isEmpty()) {
+            final String[] params = query.split("&");
+            Arrays.sort(params, Comparator.comparing(WebMessenger::parameterName));
+            url.append('?').append(String.join("&", params));
+        }
+        return url.toString();
+    }
+
+    private static String parameterName(String parameter) {
+        final int separator = parameter.indexOf('=');
+        return separator < 0 ? parameter : parameter.substring(0, separator);
+    }
+
+    /**
+     * @return <code>true</code> if identical GET requests are coalesced regardless of the interface that issued them
+     */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Enables or disables the coalescing of GET requests. While a GET request is pending, identical requests are
+     * attached to it and share its response instead of being sent again. Disabled by default, in which case only the
+     * requests marked as coalescable (see {@link AbstractWebApiInterface#setCoalescing(boolean)}) are coalesced.
+     *
+     * @param coalescing
+     *         <code>true</code> to coalesce identical GET requests
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * @return The number of requests which have been attached to an identical pending request rather than being sent
+     */
+    public long getCoalescedCount() {
+        return coalescer.getCoalescedCount();
+    }
+
     public Function<Response, Res> getResponseFactory() {
         return responseFactory;
     }
@@ -90,5 +226,10 @@ public class WebMessenger<Req extends AbstractWebRequest, Res extends AbstractWe
     @Override
     public void close() throws IOException {
         transport.close();
+        //The event loops are shared with other clients, only release our reference
+        if (runtime != null) {
+            runtime.release();
+            runtime = null;
+        }
     }
 }
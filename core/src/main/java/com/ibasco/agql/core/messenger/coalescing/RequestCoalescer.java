@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.coalescing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>Attaches identical requests to the one already in-flight instead of sending them again. Requests are identified
+ * by a key supplied by the caller (e.g. the request type and its destination). The key is released as soon as the
+ * pending request completes, so a request issued afterwards is sent again.</p>
+ *
+ * <p>Each caller receives its own {@link CompletableFuture}, completing (or cancelling) it does not affect the other
+ * callers nor the shared request.</p>
+ *
+ * @param <K>
+ *         The type of the key identifying identical requests
+ * @param <V>
+ *         The type of the result
+ */
+public class RequestCoalescer<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private final ConcurrentMap<K, CompletableFuture<V>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * Attaches the caller to the pending request identified by the key, or sends a new one if there is none
+     *
+     * @param key
+     *         The key identifying the request
+     * @param sender
+     *         Sends the request, only invoked if no identical request is pending
+     *
+     * @return A {@link CompletableFuture} completed with the result of the shared request
+     */
+    public CompletableFuture<V> coalesce(K key, Supplier<CompletableFuture<V>> sender) {
+        final CompletableFuture<V> existing = pending.get(key);
+        if (existing != null)
+            return attach(key, existing);
+        final CompletableFuture<V> shared = new CompletableFuture<>();
+        final CompletableFuture<V> previous = pending.putIfAbsent(key, shared);
+        if (previous != null)
+            return attach(key, previous);
+        final CompletableFuture<V> result;
+        try {
+            result = sender.get();
+        } catch (RuntimeException e) {
+            pending.remove(key, shared);
+            shared.completeExceptionally(e);
+            throw e;
+        }
+        forward(result, shared, key);
+        return dependent(shared);
+    }
+
+    /**
+     * @param key
+     *         The key identifying the request
+     *
+     * @return A {@link CompletableFuture} attached to the pending request identified by the key, <code>null</code> if
+     * there is none
+     */
+    public CompletableFuture<V> attach(K key) {
+        final CompletableFuture<V> existing = pending.get(key);
+        return (existing != null) ? attach(key, existing) : null;
+    }
+
+    /**
+     * Makes a request which has just been sent available to identical requests, unless another one is already
+     * pending
+     *
+     * @param key
+     *         The key identifying the request
+     * @param future
+     *         The {@link CompletableFuture} of the request
+     *
+     * @return <code>true</code> if the request is now the pending request of the key
+     */
+    public boolean track(K key, CompletableFuture<V> future) {
+        final CompletableFuture<V> shared = new CompletableFuture<>();
+        if (pending.putIfAbsent(key, shared) != null)
+            return false;
+        forward(future, shared, key);
+        return true;
+    }
+
+    /**
+     * @return The number of distinct requests currently pending
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return The number of requests which have been attached to a pending request rather than being sent
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    private CompletableFuture<V> attach(K key, CompletableFuture<V> shared) {
+        log.debug("Attaching request to the pending request '{}'", key);
+        coalescedCount.increment();
+        return dependent(shared);
+    }
+
+    /**
+     * Completes the shared future once the request completes. The key is released beforehand so callers notified of
+     * the result do not attach to a completed request.
+     */
+    private void forward(CompletableFuture<V> source, CompletableFuture<V> shared, K key) {
+        source.whenComplete((result, error) -> {
+            pending.remove(key, shared);
+            if (error != null)
+                shared.completeExceptionally(error);
+            else
+                shared.complete(result);
+        });
+    }
+
+    private CompletableFuture<V> dependent(CompletableFuture<V> shared) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        shared.whenComplete((result, error) -> {
+            if (error != null)
+                future.completeExceptionally(error);
+            else
+                future.complete(result);
+        });
+        return future;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.hedging;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Describes when a request which has not yet received a response is sent again (hedged). The hedge delay is a
+ * percentile of the latencies observed for the requests governed by this policy, so only the slowest requests (e.g.
+ * those whose datagram has been lost) are sent twice. The first response completes the request, the responses to the
+ * other copies are discarded.</p>
+ *
+ * <p>Until enough latencies have been observed, the initial delay is used. Hedging is only suitable for idempotent
+ * requests whose responses cannot be told apart (e.g. server info queries).</p>
+ */
+public class HedgingPolicy {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    public static final long DEFAULT_INITIAL_DELAY = TimeUnit.MILLISECONDS.toNanos(500);
+
+    public static final long DEFAULT_MIN_DELAY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * The number of latencies which have to be observed before the percentile is used
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * The number of recorded latencies after which the percentile is recomputed
+     */
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private static final int WINDOW_SIZE = 1024;
+
+    private final double percentile;
+
+    private final int maxHedges;
+
+    private final long initialDelay;
+
+    private final long minDelay;
+
+    private final long[] window = new long[WINDOW_SIZE];
+
+    /**
+     * The number of latencies held by the window, saturates at {@link #WINDOW_SIZE}
+     */
+    private int samples;
+
+    private int position;
+
+    /**
+     * The number of latencies recorded since the percentile has last been computed
+     */
+    private int sinceRecompute;
+
+    private volatile long hedgeDelay;
+
+    /**
+     * Creates a policy sending at most one extra copy of a request, once the 95th percentile of the observed latency
+     * has elapsed
+     */
+    public HedgingPolicy() {
+        this(DEFAULT_PERCENTILE, 1);
+    }
+
+    /**
+     * Creates a policy using the default initial delay (500 ms) and minimum delay (10 ms)
+     *
+     * @param percentile
+     *         The percentile of the observed latency after which a request is hedged, between 0 (exclusive) and 100
+     *         (exclusive)
+     * @param maxHedges
+     *         The maximum number of extra copies sent per attempt
+     */
+    public HedgingPolicy(double percentile, int maxHedges) {
+        this(percentile, maxHedges, DEFAULT_INITIAL_DELAY, DEFAULT_MIN_DELAY, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param percentile
+     *         The percentile of the observed latency after which a request is hedged, between 0 (exclusive) and 100
+     *         (exclusive)
+     * @param maxHedges
+     *         The maximum number of extra copies sent per attempt
+     * @param initialDelay
+     *         The hedge delay used until enough latencies have been observed
+     * @param minDelay
+     *         The lower bound of the hedge delay
+     * @param unit
+     *         The {@link TimeUnit} of the delays
+     */
+    public HedgingPolicy(double percentile, int maxHedges, long initialDelay, long minDelay, TimeUnit unit) {
+        if (percentile <= 0 || percentile >= 100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100 (exclusive)");
+        if (maxHedges < 1)
+            throw new IllegalArgumentException("Maximum number of hedges must be at least 1");
+        if (minDelay < 0 || initialDelay < minDelay)
+            throw new IllegalArgumentException("Minimum delay must not be negative and must not exceed the initial delay");
+        this.percentile = percentile;
+        this.maxHedges = maxHedges;
+        this.initialDelay = unit.toNanos(initialDelay);
+        this.minDelay = unit.toNanos(minDelay);
+        this.hedgeDelay = this.initialDelay;
+    }
+
+    /**
+     * Records the latency of a completed request. For a request which has been hedged, this is the time elapsed since
+     * the original copy has been sent. For a request whose latency is unknown (e.g. it has been retried), a lower bound
+     * such as the current hedge delay should be recorded, otherwise the percentile only reflects the fastest requests
+     * and the hedge delay keeps shrinking.
+     *
+     * @param latency
+     *         The latency in nanoseconds
+     */
+    public void recordLatency(long latency) {
+        if (latency < 0)
+            return;
+        synchronized (window) {
+            window[position] = latency;
+            position = (position + 1) % WINDOW_SIZE;
+            if (samples < WINDOW_SIZE)
+                samples++;
+            sinceRecompute++;
+            if (samples >= MIN_SAMPLES && (samples == MIN_SAMPLES || sinceRecompute >= RECOMPUTE_INTERVAL)) {
+                sinceRecompute = 0;
+                hedgeDelay = Math.max(minDelay, computePercentile());
+            }
+        }
+    }
+
+    private long computePercentile() {
+        final long[] sorted = Arrays.copyOf(window, samples);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * @param hedges
+     *         The number of extra copies sent so far
+     *
+     * @return <code>true</code> if another copy can be sent
+     */
+    public boolean canHedge(int hedges) {
+        return hedges < maxHedges;
+    }
+
+    /**
+     * @return The time (in nanoseconds) to wait for a response before sending another copy of the request
+     */
+    public long getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public int getMaxHedges() {
+        return maxHedges;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.NO_CLASS_NAME_STYLE)
+                .append("Percentile", percentile)
+                .append("MaxHedges", maxHedges)
+                .append("HedgeDelay", hedgeDelay)
+                .toString();
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibasco.agql.core.enums.RequestStatus;
+import com.ibasco.agql.core.exceptions.RequestRejectedException;
+import com.ibasco.agql.core.exceptions.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Collects the metrics of a messenger. Events are recorded on the hot path using striped counters ({@link
+ * LongAdder}), so recording never takes a lock. Gauges (e.g. the depth of the queue) are only sampled when a {@link
+ * MetricsSnapshot} is taken.</p>
+ *
+ * <p>Snapshots can be pulled with {@link #snapshot()} or pushed to the registered {@link MetricsExporter}s, either on
+ * demand ({@link #export()}) or periodically ({@link #startExport(long, TimeUnit)}).</p>
+ */
+public class MessengerMetrics implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MessengerMetrics.class);
+
+    private static final RequestStatus[] STATUSES = RequestStatus.values();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder writeFailures = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder orphanResponses = new LongAdder();
+
+    private final LongAdder lateResponses = new LongAdder();
+
+    private final LongAdder[] statusCount = new LongAdder[STATUSES.length];
+
+    private final LongAdder[] statusTime = new LongAdder[STATUSES.length];
+
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    private final CopyOnWriteArrayList<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    private volatile boolean statusTimingEnabled;
+
+    private ScheduledExecutorService exportExecutor;
+
+    private ScheduledFuture<?> exportTask;
+
+    public MessengerMetrics() {
+        for (int i = 0; i < STATUSES.length; i++) {
+            statusCount[i] = new LongAdder();
+            statusTime[i] = new LongAdder();
+        }
+    }
+
+    public void recordSubmitted() {
+        submitted.increment();
+    }
+
+    /**
+     * Records the outcome of a request. Read timeouts and exceeded deadlines are counted as timeouts.
+     *
+     * @param error
+     *         The error the request completed with, <code>null</code> if it completed successfully
+     */
+    public void recordCompletion(Throwable error) {
+        if (error == null)
+            completed.increment();
+        else if (error instanceof TimeoutException)
+            timeouts.increment();
+        else if (error instanceof RequestRejectedException)
+            rejected.increment();
+        else
+            failed.increment();
+    }
+
+    public void recordWriteFailure() {
+        writeFailures.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordHedge() {
+        hedges.increment();
+    }
+
+    /**
+     * Records a response which could not be matched to any request
+     */
+    public void recordOrphanResponse() {
+        orphanResponses.increment();
+    }
+
+    /**
+     * Records a response which arrived after its request timed out
+     */
+    public void recordLateResponse() {
+        lateResponses.increment();
+    }
+
+    /**
+     * Records the time a request spent in a status before moving on to the next one
+     *
+     * @param status
+     *         The {@link RequestStatus} the request is leaving
+     * @param elapsed
+     *         The time (in nanoseconds) spent in the status
+     */
+    public void recordStatusTime(RequestStatus status, long elapsed) {
+        statusCount[status.ordinal()].increment();
+        statusTime[status.ordinal()].add(elapsed);
+    }
+
+    /**
+     * @return <code>true</code> if the time spent by the requests in each status is recorded
+     */
+    public boolean isStatusTimingEnabled() {
+        return statusTimingEnabled;
+    }
+
+    /**
+     * Enables the recording of the time spent by the requests in each {@link RequestStatus}. This is disabled by
+     * default since it reads the clock on every status transition. Only requests submitted afterwards are timed.
+     *
+     * @param statusTimingEnabled
+     *         <code>true</code> to record the time spent in each status
+     */
+    public void setStatusTimingEnabled(boolean statusTimingEnabled) {
+        this.statusTimingEnabled = statusTimingEnabled;
+    }
+
+    /**
+     * Registers a value which is sampled each time a snapshot is taken
+     *
+     * @param name
+     *         The name of the metric
+     * @param gauge
+     *         Supplies the current value of the metric, must be thread-safe
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * @return A {@link MetricsSnapshot} of the current value of every metric
+     */
+    public MetricsSnapshot snapshot() {
+        final Map<String, Long> values = new TreeMap<>();
+        values.put("requests.submitted", submitted.sum());
+        values.put("requests.completed", completed.sum());
+        values.put("requests.failed", failed.sum());
+        values.put("requests.timeouts", timeouts.sum());
+        values.put("requests.rejected", rejected.sum());
+        values.put("requests.writeFailures", writeFailures.sum());
+        values.put("requests.retries", retries.sum());
+        values.put("requests.hedges", hedges.sum());
+        values.put("responses.orphaned", orphanResponses.sum());
+        values.put("responses.late", lateResponses.sum());
+        for (RequestStatus status : STATUSES) {
+            values.put("status." + status.name() + ".count", statusCount[status.ordinal()].sum());
+            values.put("status." + status.name() + ".timeNanos", statusTime[status.ordinal()].sum());
+        }
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            try {
+                values.put(gauge.getKey(), gauge.getValue().getAsLong());
+            } catch (Exception e) {
+                log.debug("Unable to sample gauge '{}'", gauge.getKey(), e);
+            }
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), values);
+    }
+
+    public void addExporter(MetricsExporter exporter) {
+        exporters.addIfAbsent(exporter);
+    }
+
+    public void removeExporter(MetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    /**
+     * Takes a snapshot and hands it over to every registered {@link MetricsExporter}
+     */
+    public void export() {
+        if (exporters.isEmpty())
+            return;
+        final MetricsSnapshot snapshot = snapshot();
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.export(snapshot);
+            } catch (Exception e) {
+                log.error("Error thrown by metrics exporter " + exporter, e);
+            }
+        }
+    }
+
+    /**
+     * Exports the metrics periodically from a dedicated daemon thread, replacing the previous schedule (if any)
+     *
+     * @param period
+     *         The time between two exports
+     * @param unit
+     *         The {@link TimeUnit} of the period
+     */
+    public synchronized void startExport(long period, TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Export period must be greater than zero");
+        stopExport();
+        if (exportExecutor == null)
+            exportExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("agql-metrics-%d").setDaemon(true).build());
+        exportTask = exportExecutor.scheduleAtFixedRate(this::export, period, period, unit);
+    }
+
+    /**
+     * Stops the periodic export, if any
+     */
+    public synchronized void stopExport() {
+        if (exportTask != null) {
+            exportTask.cancel(false);
+            exportTask = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        stopExport();
+        if (exportExecutor != null) {
+            exportExecutor.shutdown();
+            exportExecutor = null;
+        }
+    }
+}
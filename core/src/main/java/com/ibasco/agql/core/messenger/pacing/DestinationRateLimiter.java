@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.pacing;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.ibasco.agql.core.enums.PacingKey;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A non-blocking token bucket rate limiter keyed by destination. Instead of blocking the caller, {@link
+ * #reserve(InetSocketAddress)} returns the amount of time the request has to be delayed for, leaving it up to the
+ * messenger to schedule the dispatch accordingly.</p>
+ *
+ * <p>Each destination is allowed a burst of requests after which it is paced at the configured rate. Buckets of idle
+ * destinations are evicted automatically, so scanning a large number of hosts does not grow the limiter
+ * indefinitely.</p>
+ */
+public class DestinationRateLimiter {
+
+    public static final double DEFAULT_PERMITS_PER_SECOND = 100;
+
+    public static final int DEFAULT_BURST_SIZE = 10;
+
+    private final long intervalNanos;
+
+    private final long burstToleranceNanos;
+
+    private final PacingKey pacingKey;
+
+    private final LoadingCache<Object, AtomicLong> buckets;
+
+    /**
+     * Creates a rate limiter using the default rate and burst size, paced per ip address and port.
+     */
+    public DestinationRateLimiter() {
+        this(DEFAULT_PERMITS_PER_SECOND, DEFAULT_BURST_SIZE, PacingKey.ADDRESS);
+    }
+
+    /**
+     * @param permitsPerSecond
+     *         The number of requests per second allowed for a single destination
+     * @param burstSize
+     *         The number of requests that can be sent to an idle destination without any delay
+     * @param pacingKey
+     *         The {@link PacingKey} which determines how the destinations are grouped
+     */
+    public DestinationRateLimiter(double permitsPerSecond, int burstSize, PacingKey pacingKey) {
+        if (permitsPerSecond <= 0)
+            throw new IllegalArgumentException("Permits per second must be greater than zero");
+        if (burstSize < 1)
+            throw new IllegalArgumentException("Burst size must be at least 1");
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = intervalNanos * (burstSize - 1);
+        this.pacingKey = (pacingKey != null) ? pacingKey : PacingKey.ADDRESS;
+        //Once a bucket has been idle for this long it is equivalent to a fresh one, so it is safe to discard it
+        this.buckets = CacheBuilder.newBuilder()
+                .expireAfterAccess(burstToleranceNanos + intervalNanos + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS)
+                .build(CacheLoader.from(key -> new AtomicLong(System.nanoTime())));
+    }
+
+    /**
+     * <p>Reserves a permit for the destination.</p>
+     *
+     * @param destination
+     *         The {@link InetSocketAddress} of the recipient
+     *
+     * @return The number of nanoseconds the caller has to wait before the request can be sent. Zero if it can be sent
+     * immediately.
+     */
+    public long reserve(InetSocketAddress destination) {
+        if (destination == null)
+            return 0;
+        final AtomicLong arrivalTime = buckets.getUnchecked(createKey(destination));
+        final long now = System.nanoTime();
+        //Generic cell rate algorithm, the bucket only stores the theoretical arrival time of the next request
+        for (; ; ) {
+            final long current = arrivalTime.get();
+            final long start = Math.max(now, current - burstToleranceNanos);
+            final long next = Math.max(current, now) + intervalNanos;
+            if (arrivalTime.compareAndSet(current, next))
+                return start - now;
+        }
+    }
+
+    private Object createKey(InetSocketAddress destination) {
+        if (pacingKey == PacingKey.HOST && destination.getAddress() != null)
+            return destination.getAddress();
+        return destination;
+    }
+
+    /**
+     * @return The {@link PacingKey} used by this limiter
+     */
+    public PacingKey getPacingKey() {
+        return pacingKey;
+    }
+
+    /**
+     * @return The minimum interval (in nanoseconds) between two requests sent to the same destination
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * @return The number of destinations currently being tracked
+     */
+    public long size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.retry;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Determines how many times a request is attempted and how long the messenger waits between attempts. Requests
+ * are only retried when no response has been received in time or when the transport failed to write them, errors
+ * reported by the server are never retried.</p>
+ *
+ * <p>The delay before the n-th retry is <code>initialBackoff * multiplier^(n-1)</code>, capped to the maximum backoff.
+ * A random fraction of the delay (determined by the jitter factor) is then subtracted, so that requests which failed
+ * together (e.g. due to a burst of packet loss) do not all retry at the same time.</p>
+ */
+public class RetryPolicy {
+
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+
+    public static final double DEFAULT_JITTER = 0.5;
+
+    public static final long DEFAULT_MAX_BACKOFF = TimeUnit.SECONDS.toNanos(10);
+
+    private final int maxAttempts;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    /**
+     * Creates a policy using the default multiplier, jitter and maximum backoff
+     *
+     * @param maxAttempts
+     *         The maximum number of attempts, including the initial one
+     * @param initialBackoff
+     *         The delay before the first retry
+     * @param unit
+     *         The {@link TimeUnit} of the delay
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, TimeUnit unit) {
+        this(maxAttempts, unit.toNanos(initialBackoff), Math.max(DEFAULT_MAX_BACKOFF, unit.toNanos(initialBackoff)), TimeUnit.NANOSECONDS, DEFAULT_MULTIPLIER, DEFAULT_JITTER);
+    }
+
+    /**
+     * @param maxAttempts
+     *         The maximum number of attempts, including the initial one
+     * @param initialBackoff
+     *         The delay before the first retry
+     * @param maxBackoff
+     *         The upper bound of the delay between two attempts
+     * @param unit
+     *         The {@link TimeUnit} of the delays
+     * @param multiplier
+     *         The factor by which the delay grows after each retry, at least 1
+     * @param jitter
+     *         The maximum fraction of the delay which is randomly subtracted, between 0 (no jitter) and 1
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit unit, double multiplier, double jitter) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Maximum number of attempts must be at least 1");
+        if (initialBackoff < 0 || maxBackoff < initialBackoff)
+            throw new IllegalArgumentException("Backoff must not be negative and must not exceed the maximum backoff");
+        if (multiplier < 1)
+            throw new IllegalArgumentException("Multiplier must be at least 1");
+        if (jitter < 0 || jitter > 1)
+            throw new IllegalArgumentException("Jitter must be between 0 and 1");
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = unit.toNanos(initialBackoff);
+        this.maxBackoff = unit.toNanos(maxBackoff);
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    /**
+     * @param attempts
+     *         The number of attempts made so far
+     *
+     * @return <code>true</code> if another attempt is allowed
+     */
+    public boolean canRetry(int attempts) {
+        return attempts < maxAttempts;
+    }
+
+    /**
+     * @param retry
+     *         The retry about to be made, starting from 1
+     *
+     * @return The time (in nanoseconds) to wait before making the retry
+     */
+    public long getBackoff(int retry) {
+        final double backoff = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, Math.max(0, retry - 1)));
+        if (jitter == 0)
+            return (long) backoff;
+        return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.NO_CLASS_NAME_STYLE)
+                .append("MaxAttempts", maxAttempts)
+                .append("InitialBackoff", initialBackoff)
+                .append("MaxBackoff", maxBackoff)
+                .append("Multiplier", multiplier)
+                .append("Jitter", jitter)
+                .toString();
+    }
+}
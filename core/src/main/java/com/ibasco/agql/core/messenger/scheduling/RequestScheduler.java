@@ -0,0 +1,333 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.scheduling;
+
+import com.ibasco.agql.core.AbstractRequest;
+import com.ibasco.agql.core.AbstractResponse;
+import com.ibasco.agql.core.RequestDetails;
+import com.ibasco.agql.core.enums.RequestPriority;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * <p>A priority queue for {@link RequestDetails} which keeps the insertion order of requests sharing the same {@link
+ * RequestPriority} and prevents requests of lower priority from starving.</p>
+ *
+ * <p>Each priority level is backed by its own FIFO queue and every request is stamped with a sequence number upon
+ * insertion. While waiting in the queue, a request is promoted by one level for every elapsed aging interval, so
+ * a <code>LOW</code> request will eventually compete with (and, being older, win against) a steady stream of
+ * <code>HIGH</code> requests. Ties between levels are broken by the sequence number.</p>
+ *
+ * @param <A>
+ *         {@link AbstractRequest}
+ * @param <B>
+ *         {@link AbstractResponse}
+ */
+public class RequestScheduler<A extends AbstractRequest, B extends AbstractResponse> extends AbstractQueue<RequestDetails<A, B>> {
+
+    public static final long DEFAULT_AGING_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final List<ArrayDeque<Entry<A, B>>> levels;
+
+    private long sequence;
+
+    private int size;
+
+    private volatile long agingInterval = DEFAULT_AGING_INTERVAL;
+
+    public RequestScheduler() {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity
+     *         The initial capacity of the queue of each priority level
+     */
+    public RequestScheduler(int initialCapacity) {
+        levels = new ArrayList<>(PRIORITIES.length);
+        for (int i = 0; i < PRIORITIES.length; i++)
+            levels.add(new ArrayDeque<>(initialCapacity));
+    }
+
+    @Override
+    public boolean offer(RequestDetails<A, B> requestDetails) {
+        Objects.requireNonNull(requestDetails, "Request details must not be null");
+        lock.lock();
+        try {
+            levels.get(requestDetails.getPriority().ordinal()).offer(new Entry<>(requestDetails, sequence++, System.nanoTime()));
+            size++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all the requests under a single lock acquisition
+     *
+     * @param c
+     *         The {@link RequestDetails} to add
+     *
+     * @return <code>true</code> if the scheduler changed as a result of the call
+     */
+    @Override
+    public boolean addAll(Collection<? extends RequestDetails<A, B>> c) {
+        if (c == this)
+            throw new IllegalArgumentException("Cannot add a scheduler to itself");
+        lock.lock();
+        try {
+            final long now = System.nanoTime();
+            for (RequestDetails<A, B> requestDetails : c) {
+                Objects.requireNonNull(requestDetails, "Request details must not be null");
+                levels.get(requestDetails.getPriority().ordinal()).offer(new Entry<>(requestDetails, sequence++, now));
+                size++;
+            }
+            return !c.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RequestDetails<A, B> poll() {
+        lock.lock();
+        try {
+            final int level = nextLevel();
+            if (level < 0)
+                return null;
+            size--;
+            return levels.get(level).poll().details;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RequestDetails<A, B> peek() {
+        lock.lock();
+        try {
+            final int level = nextLevel();
+            return (level < 0) ? null : levels.get(level).peek().details;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Selects the level whose head has the highest effective priority. Since each level is a FIFO, its head is also
+     * the request that has aged the most.
+     *
+     * @return The index of the level or <code>-1</code> if the scheduler is empty
+     */
+    private int nextLevel() {
+        if (size == 0)
+            return -1;
+        final long interval = agingInterval;
+        final long now = System.nanoTime();
+        int selected = -1;
+        int selectedRank = Integer.MAX_VALUE;
+        long selectedSequence = Long.MAX_VALUE;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            final Entry<A, B> head = levels.get(i).peek();
+            if (head == null)
+                continue;
+            int rank = i;
+            if (interval > 0 && i > 0)
+                rank -= (int) Math.min(i, (now - head.timeEnqueued) / interval);
+            if (rank < selectedRank || (rank == selectedRank && head.sequence < selectedSequence)) {
+                selected = i;
+                selectedRank = rank;
+                selectedSequence = head.sequence;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof RequestDetails))
+            return false;
+        lock.lock();
+        try {
+            //Look into the level of the current priority first, then fall back to the others in case it has changed
+            final int expected = ((RequestDetails) o).getPriority().ordinal();
+            if (removeFrom(levels.get(expected), o))
+                return true;
+            for (int i = 0; i < levels.size(); i++) {
+                if (i != expected && removeFrom(levels.get(i), o))
+                    return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the most recently queued request of a priority level which satisfies the filter. The level is walked
+     * from its tail, so this is usually a constant time operation.
+     *
+     * @param priority
+     *         The base {@link RequestPriority} level to take the request from
+     * @param filter
+     *         A {@link Predicate} the request has to satisfy
+     *
+     * @return The removed {@link RequestDetails} or <code>null</code> if no request of this level satisfies the filter
+     */
+    public RequestDetails<A, B> pollLast(RequestPriority priority, Predicate<RequestDetails<A, B>> filter) {
+        lock.lock();
+        try {
+            final Iterator<Entry<A, B>> it = levels.get(priority.ordinal()).descendingIterator();
+            while (it.hasNext()) {
+                final RequestDetails<A, B> details = it.next().details;
+                if (filter.test(details)) {
+                    it.remove();
+                    size--;
+                    return details;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean removeFrom(ArrayDeque<Entry<A, B>> level, Object o) {
+        final Iterator<Entry<A, B>> it = level.iterator();
+        while (it.hasNext()) {
+            if (it.next().details.equals(o)) {
+                it.remove();
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            levels.forEach(ArrayDeque::clear);
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority
+     *         The {@link RequestPriority} level
+     *
+     * @return The number of queued requests having the specified base priority
+     */
+    public int size(RequestPriority priority) {
+        lock.lock();
+        try {
+            return levels.get(priority.ordinal()).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a snapshot of the queued requests ordered by their base priority, then by insertion order. The iterator
+     * does not support removal, use {@link #remove(Object)} instead.
+     *
+     * @return An {@link Iterator} over the queued {@link RequestDetails}
+     */
+    @Override
+    public Iterator<RequestDetails<A, B>> iterator() {
+        final List<RequestDetails<A, B>> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(size);
+            for (ArrayDeque<Entry<A, B>> level : levels) {
+                for (Entry<A, B> entry : level)
+                    snapshot.add(entry.details);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * @return The time (in nanoseconds) a request has to wait before being promoted to the next priority level. A
+     * value of zero means aging is disabled.
+     */
+    public long getAgingInterval() {
+        return agingInterval;
+    }
+
+    /**
+     * Sets the time a request has to wait before being promoted to the next priority level
+     *
+     * @param interval
+     *         The aging interval, zero to disable aging
+     * @param unit
+     *         The {@link TimeUnit} of the interval
+     */
+    public void setAgingInterval(long interval, TimeUnit unit) {
+        if (interval < 0)
+            throw new IllegalArgumentException("Aging interval must not be negative");
+        this.agingInterval = unit.toNanos(interval);
+    }
+
+    private static final class Entry<A extends AbstractRequest, B extends AbstractResponse> {
+        private final RequestDetails<A, B> details;
+        private final long sequence;
+        private final long timeEnqueued;
+
+        private Entry(RequestDetails<A, B> details, long sequence, long timeEnqueued) {
+            this.details = details;
+            this.sequence = sequence;
+            this.timeEnqueued = timeEnqueued;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.timing;
+
+import com.ibasco.agql.core.AbstractRequest;
+import com.ibasco.agql.core.AbstractResponse;
+
+/**
+ * A callback notified of responses which arrived after their request timed out
+ *
+ * @param <A>
+ *         The type of the request
+ * @param <B>
+ *         The type of the response
+ *
+ * @see LateResponseTracker
+ */
+@FunctionalInterface
+public interface LateResponseListener<A extends AbstractRequest, B extends AbstractResponse> {
+    /**
+     * @param request
+     *         The request which timed out
+     * @param response
+     *         The decoded response
+     * @param latency
+     *         The time (in nanoseconds) elapsed between the registration of the request and the arrival of the
+     *         response
+     */
+    void onLateResponse(A request, B response, long latency);
+}
@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.timing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.ibasco.agql.core.AbstractRequest;
+import com.ibasco.agql.core.AbstractResponse;
+import com.ibasco.agql.core.session.SessionId;
+import com.ibasco.agql.core.session.SessionValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Keeps a bounded, time-limited record of the sessions which expired without a response, so that responses
+ * arriving after the timeout can still be matched to their request instead of being dropped.</p>
+ *
+ * <p>Late responses are counted per destination along with the highest latency observed, which tells by how much
+ * the read timeout would have to be raised. Matched responses are also handed to the {@link LateResponseListener}
+ * (if any), e.g. to fill a result cache.</p>
+ *
+ * @param <A>
+ *         The type of the request
+ * @param <B>
+ *         The type of the response
+ */
+public class LateResponseTracker<A extends AbstractRequest, B extends AbstractResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(LateResponseTracker.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    public static final long DEFAULT_RETENTION = TimeUnit.SECONDS.toNanos(30);
+
+    private final Cache<SessionId, ArrayDeque<ExpiredRequest<A>>> expired;
+
+    private final LoadingCache<InetSocketAddress, LateStatistics> statistics;
+
+    private final LongAdder lateResponseCount = new LongAdder();
+
+    private volatile LateResponseListener<A, B> listener;
+
+    /**
+     * Creates a tracker remembering up to 10,000 expired sessions for 30 seconds
+     */
+    public LateResponseTracker() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_RETENTION, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param maxEntries
+     *         The maximum number of expired session ids remembered
+     * @param retention
+     *         The time an expired session is remembered
+     * @param unit
+     *         The {@link TimeUnit} of the retention
+     */
+    public LateResponseTracker(int maxEntries, long retention, TimeUnit unit) {
+        if (maxEntries < 1 || retention <= 0)
+            throw new IllegalArgumentException("Maximum number of entries and retention must be greater than zero");
+        this.expired = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(retention, unit)
+                .build();
+        this.statistics = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build(CacheLoader.from(key -> new LateStatistics()));
+    }
+
+    /**
+     * Records a session which expired without a response
+     *
+     * @param session
+     *         The expired {@link SessionValue}
+     */
+    public void expired(SessionValue<A, B> session) {
+        final ExpiredRequest<A> request = new ExpiredRequest<>(session.getRequest(), session.getRegistrationTime());
+        expired.asMap().compute(session.getId(), (id, requests) -> {
+            final ArrayDeque<ExpiredRequest<A>> queue = (requests != null) ? requests : new ArrayDeque<>(1);
+            queue.add(request);
+            return queue;
+        });
+    }
+
+    /**
+     * Matches a response which has no session against the expired sessions. Responses sharing the same id are matched
+     * to the oldest expired request first.
+     *
+     * @param id
+     *         The {@link SessionId} of the response
+     * @param response
+     *         The decoded response
+     *
+     * @return The latency (in nanoseconds) of the response or -1 if it does not belong to an expired session
+     */
+    public long lateResponse(SessionId id, B response) {
+        final AtomicReference<ExpiredRequest<A>> match = new AtomicReference<>();
+        expired.asMap().computeIfPresent(id, (key, requests) -> {
+            match.set(requests.poll());
+            return requests.isEmpty() ? null : requests;
+        });
+        final ExpiredRequest<A> request = match.get();
+        if (request == null)
+            return -1;
+        final long latency = System.nanoTime() - request.registrationTime;
+        lateResponseCount.increment();
+        if (request.request.recipient() != null)
+            statistics.getUnchecked(request.request.recipient()).record(latency);
+        final LateResponseListener<A, B> listener = this.listener;
+        if (listener != null) {
+            try {
+                listener.onLateResponse(request.request, response, latency);
+            } catch (Exception e) {
+                log.error("Error thrown by the late response listener", e);
+            }
+        }
+        return latency;
+    }
+
+    /**
+     * @return The total number of late responses received
+     */
+    public long getLateResponseCount() {
+        return lateResponseCount.sum();
+    }
+
+    /**
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     *
+     * @return The number of late responses received from the destination
+     */
+    public long getLateResponseCount(InetSocketAddress destination) {
+        final LateStatistics stats = statistics.getIfPresent(destination);
+        return (stats != null) ? stats.count.sum() : 0;
+    }
+
+    /**
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     *
+     * @return The highest latency (in nanoseconds) of the late responses received from the destination, zero if none
+     */
+    public long getMaxLatency(InetSocketAddress destination) {
+        final LateStatistics stats = statistics.getIfPresent(destination);
+        return (stats != null) ? stats.maxLatency.get() : 0;
+    }
+
+    /**
+     * @return The number of expired session ids currently remembered
+     */
+    public long size() {
+        return expired.size();
+    }
+
+    public LateResponseListener<A, B> getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener
+     *         The {@link LateResponseListener} notified of late responses or <code>null</code> to only count them
+     */
+    public void setListener(LateResponseListener<A, B> listener) {
+        this.listener = listener;
+    }
+
+    private static final class ExpiredRequest<A> {
+        private final A request;
+        private final long registrationTime;
+
+        private ExpiredRequest(A request, long registrationTime) {
+            this.request = request;
+            this.registrationTime = registrationTime;
+        }
+    }
+
+    private static final class LateStatistics {
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong maxLatency = new AtomicLong();
+
+        private void record(long latency) {
+            count.increment();
+            maxLatency.accumulateAndGet(latency, Math::max);
+        }
+    }
+}
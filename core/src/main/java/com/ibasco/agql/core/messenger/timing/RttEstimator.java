@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.messenger.timing;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Derives the read timeout of each destination from its measured round trip times, the same way TCP computes its
+ * retransmission timeout (RFC 6298). A smoothed round trip time (SRTT) and its variance (RTTVAR) are maintained per
+ * destination and the timeout is <code>SRTT + 4 * RTTVAR</code>, bounded by a floor and a ceiling.</p>
+ *
+ * <p>Destinations without any sample get the initial timeout. Each timeout doubles the timeout of the destination
+ * until a response is received again, so unreachable hosts quickly settle at the ceiling while the first attempt
+ * to them only costs the initial timeout.</p>
+ */
+public class RttEstimator {
+
+    public static final long DEFAULT_INITIAL_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+    public static final long DEFAULT_MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(200);
+
+    public static final long DEFAULT_MAX_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Lower bound of the variance term, this keeps the timeout of very stable destinations slightly above their RTT
+     */
+    private static final long MIN_VARIANCE = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final long initialTimeout;
+
+    private final long minTimeout;
+
+    private final long maxTimeout;
+
+    private final LoadingCache<InetSocketAddress, Estimate> estimates;
+
+    /**
+     * Creates an estimator using the default initial timeout (1 second), floor (200 ms) and ceiling (5 seconds)
+     */
+    public RttEstimator() {
+        this(DEFAULT_INITIAL_TIMEOUT, DEFAULT_MIN_TIMEOUT, DEFAULT_MAX_TIMEOUT, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param initialTimeout
+     *         The timeout of destinations which have not been measured yet
+     * @param minTimeout
+     *         The floor of the timeout
+     * @param maxTimeout
+     *         The ceiling of the timeout
+     * @param unit
+     *         The {@link TimeUnit} of the timeouts
+     */
+    public RttEstimator(long initialTimeout, long minTimeout, long maxTimeout, TimeUnit unit) {
+        if (minTimeout <= 0 || maxTimeout < minTimeout)
+            throw new IllegalArgumentException("Timeout floor must be greater than zero and must not exceed the ceiling");
+        this.minTimeout = unit.toNanos(minTimeout);
+        this.maxTimeout = unit.toNanos(maxTimeout);
+        this.initialTimeout = clamp(unit.toNanos(initialTimeout));
+        //Measurements of destinations which have not been contacted for a while are stale anyway
+        this.estimates = CacheBuilder.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build(CacheLoader.from(key -> new Estimate()));
+    }
+
+    /**
+     * Feeds a round trip time measurement. Measurements of retried requests should not be recorded, since it is not
+     * known which attempt the response belongs to.
+     *
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     * @param rtt
+     *         The round trip time in nanoseconds
+     */
+    public void recordSample(InetSocketAddress destination, long rtt) {
+        if (destination == null || rtt < 0)
+            return;
+        estimates.getUnchecked(destination).update(rtt);
+    }
+
+    /**
+     * Records that no response has been received in time from the destination, the timeout of the destination is
+     * doubled until the next sample.
+     *
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     */
+    public void recordTimeout(InetSocketAddress destination) {
+        if (destination == null)
+            return;
+        estimates.getUnchecked(destination).backoff();
+    }
+
+    /**
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     *
+     * @return The time (in nanoseconds) to wait for a response from the destination
+     */
+    public long getTimeout(InetSocketAddress destination) {
+        final Estimate estimate = (destination != null) ? estimates.getIfPresent(destination) : null;
+        return (estimate != null) ? estimate.timeout() : initialTimeout;
+    }
+
+    /**
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     *
+     * @return The smoothed round trip time (in nanoseconds) of the destination or -1 if it has not been measured
+     */
+    public long getSmoothedRtt(InetSocketAddress destination) {
+        final Estimate estimate = (destination != null) ? estimates.getIfPresent(destination) : null;
+        return (estimate != null) ? estimate.getSmoothedRtt() : -1;
+    }
+
+    /**
+     * @param destination
+     *         The {@link InetSocketAddress} of the remote peer
+     *
+     * @return The round trip time variance (in nanoseconds) of the destination or -1 if it has not been measured
+     */
+    public long getRttVariance(InetSocketAddress destination) {
+        final Estimate estimate = (destination != null) ? estimates.getIfPresent(destination) : null;
+        return (estimate != null) ? estimate.getRttVariance() : -1;
+    }
+
+    public long getInitialTimeout() {
+        return initialTimeout;
+    }
+
+    public long getMinTimeout() {
+        return minTimeout;
+    }
+
+    public long getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    /**
+     * @return The number of destinations currently being tracked
+     */
+    public long size() {
+        return estimates.size();
+    }
+
+    private long clamp(long timeout) {
+        return Math.max(minTimeout, Math.min(maxTimeout, timeout));
+    }
+
+    /**
+     * The estimate of a single destination
+     */
+    private final class Estimate {
+        private long smoothedRtt = -1;
+        private long rttVariance = -1;
+        private int backoffShift;
+
+        private synchronized void update(long rtt) {
+            if (smoothedRtt < 0) {
+                smoothedRtt = rtt;
+                rttVariance = rtt / 2;
+            } else {
+                //RTTVAR = 3/4 * RTTVAR + 1/4 * |SRTT - R|, SRTT = 7/8 * SRTT + 1/8 * R
+                rttVariance = rttVariance - (rttVariance >> 2) + (Math.abs(smoothedRtt - rtt) >> 2);
+                smoothedRtt = smoothedRtt - (smoothedRtt >> 3) + (rtt >> 3);
+            }
+            backoffShift = 0;
+        }
+
+        private synchronized void backoff() {
+            if (backoffShift < MAX_BACKOFF_SHIFT)
+                backoffShift++;
+        }
+
+        private synchronized long timeout() {
+            final long base = (smoothedRtt < 0) ? initialTimeout : smoothedRtt + Math.max(MIN_VARIANCE, 4 * rttVariance);
+            //Avoid overflowing while backing off, the ceiling is reached long before
+            return clamp((base > maxTimeout) ? base : base << backoffShift);
+        }
+
+        private synchronized long getSmoothedRtt() {
+            return smoothedRtt;
+        }
+
+        private synchronized long getRttVariance() {
+            return rttVariance;
+        }
+    }
+}
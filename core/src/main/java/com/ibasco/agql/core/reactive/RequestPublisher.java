@@ -0,0 +1,345 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.reactive;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * <p>A Reactive Streams {@link Publisher} which maps a sequence of inputs (e.g. server addresses) to asynchronous
+ * operations (e.g. {@code client::getServerInfo}) and emits a {@link RequestResult} for each of them as they
+ * complete.</p>
+ *
+ * <p>Operations are only started on demand: at most <code>n</code> operations are outstanding after a subscriber
+ * has requested <code>n</code> items, and the inputs are consumed lazily. As a result, a slow subscriber throttles
+ * the number of requests handed over to the messenger (and therefore to the socket) instead of letting them pile up
+ * in memory.</p>
+ *
+ * <p>Results are emitted in completion order, not in input order. Cancelling the subscription cancels the operations
+ * which are still outstanding. If the iterator of the inputs is {@link AutoCloseable}, it is closed once the
+ * subscription has been cancelled or terminated.</p>
+ *
+ * @param <T>
+ *         The type of the input
+ * @param <V>
+ *         The type of the result of each operation
+ */
+public class RequestPublisher<T, V> implements Publisher<RequestResult<T, V>> {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestPublisher.class);
+
+    private final Supplier<Iterator<? extends T>> inputs;
+
+    private final Function<? super T, CompletableFuture<V>> operation;
+
+    /**
+     * @param inputs
+     *         Supplies a fresh {@link Iterator} over the inputs for each subscriber
+     * @param operation
+     *         The asynchronous operation to perform for each input
+     */
+    public RequestPublisher(Supplier<Iterator<? extends T>> inputs, Function<? super T, CompletableFuture<V>> operation) {
+        this.inputs = Objects.requireNonNull(inputs, "Inputs must not be null");
+        this.operation = Objects.requireNonNull(operation, "Operation must not be null");
+    }
+
+    /**
+     * Creates a publisher which can be subscribed to multiple times, each subscriber iterating over the collection
+     *
+     * @param inputs
+     *         A {@link Collection} of inputs
+     * @param operation
+     *         The asynchronous operation to perform for each input
+     * @param <T>
+     *         The type of the input
+     * @param <V>
+     *         The type of the result of each operation
+     *
+     * @return A {@link RequestPublisher}
+     */
+    public static <T, V> RequestPublisher<T, V> fromCollection(Collection<? extends T> inputs, Function<? super T, CompletableFuture<V>> operation) {
+        return new RequestPublisher<>(inputs::iterator, operation);
+    }
+
+    /**
+     * Creates a publisher backed by a {@link Stream}. Since a stream can only be consumed once, only a single
+     * subscriber is allowed. The stream is closed once the subscription has been cancelled or terminated.
+     *
+     * @param inputs
+     *         A {@link Stream} of inputs
+     * @param operation
+     *         The asynchronous operation to perform for each input
+     * @param <T>
+     *         The type of the input
+     * @param <V>
+     *         The type of the result of each operation
+     *
+     * @return A {@link RequestPublisher}
+     */
+    public static <T, V> RequestPublisher<T, V> fromStream(Stream<? extends T> inputs, Function<? super T, CompletableFuture<V>> operation) {
+        final AtomicBoolean consumed = new AtomicBoolean();
+        return new RequestPublisher<>(() -> {
+            if (!consumed.compareAndSet(false, true))
+                throw new IllegalStateException("This publisher is backed by a stream and only allows a single subscriber");
+            return new StreamIterator<>(inputs);
+        }, operation);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super RequestResult<T, V>> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber must not be null");
+        final Iterator<? extends T> iterator;
+        try {
+            iterator = inputs.get();
+        } catch (Exception e) {
+            subscriber.onSubscribe(EmptySubscription.INSTANCE);
+            subscriber.onError(e);
+            return;
+        }
+        final RequestSubscription subscription = new RequestSubscription(subscriber, iterator);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    /**
+     * Tracks the demand of a single subscriber. All signals to the subscriber are serialized by the drain loop.
+     */
+    private final class RequestSubscription implements Subscription {
+
+        private final Subscriber<? super RequestResult<T, V>> subscriber;
+
+        private final Iterator<? extends T> iterator;
+
+        private final Queue<RequestResult<T, V>> completed = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final Set<CompletableFuture<V>> pending = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean cancelled;
+
+        private boolean disposed;
+
+        private Throwable invalidRequest;
+
+        /**
+         * The number of operations started but not yet emitted, only accessed from within the drain loop
+         */
+        private long outstanding;
+
+        private boolean exhausted;
+
+        private RequestSubscription(Subscriber<? super RequestResult<T, V>> subscriber, Iterator<? extends T> iterator) {
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Rule 3.9: Number of requested elements must be positive (Requested: " + n + ")");
+            } else {
+                long current, next;
+                do {
+                    current = requested.get();
+                    if (current == Long.MAX_VALUE)
+                        break;
+                    next = current + n;
+                    if (next < 0)
+                        next = Long.MAX_VALUE;
+                } while (!requested.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0)
+                return;
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    dispose();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    cancelled = true;
+                    dispose();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+
+                //Emit the completed operations. Demand has already been reserved when they were started.
+                RequestResult<T, V> result;
+                while ((result = completed.poll()) != null) {
+                    outstanding--;
+                    subscriber.onNext(result);
+                    if (cancelled) {
+                        dispose();
+                        return;
+                    }
+                }
+
+                //Start new operations as long as there is unreserved demand
+                while (!exhausted && !cancelled && requested.get() > 0) {
+                    final T input;
+                    try {
+                        if (!iterator.hasNext()) {
+                            exhausted = true;
+                            break;
+                        }
+                        input = iterator.next();
+                    } catch (Exception e) {
+                        cancelled = true;
+                        dispose();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    if (requested.get() != Long.MAX_VALUE)
+                        requested.decrementAndGet();
+                    outstanding++;
+                    start(input);
+                }
+
+                if (exhausted && outstanding == 0 && completed.isEmpty() && !cancelled) {
+                    cancelled = true;
+                    dispose();
+                    subscriber.onComplete();
+                    return;
+                }
+            } while ((missed = wip.addAndGet(-missed)) != 0);
+        }
+
+        private void start(T input) {
+            CompletableFuture<V> future;
+            try {
+                future = operation.apply(input);
+            } catch (Exception e) {
+                log.debug("Operation failed for input {}", input, e);
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            pending.add(future);
+            //The subscription may have been cancelled while the operation was being started
+            if (cancelled)
+                future.cancel(false);
+            final CompletableFuture<V> operationFuture = future;
+            future.whenComplete((value, error) -> {
+                pending.remove(operationFuture);
+                if (!cancelled)
+                    completed.offer(new RequestResult<>(input, value, error));
+                drain();
+            });
+        }
+
+        /**
+         * Releases the resources held by the subscription: the outstanding operations are cancelled and the inputs
+         * closed. Only called from within the drain loop.
+         */
+        private void dispose() {
+            if (disposed)
+                return;
+            disposed = true;
+            completed.clear();
+            for (CompletableFuture<V> future : pending)
+                future.cancel(false);
+            if (iterator instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) iterator).close();
+                } catch (Exception e) {
+                    log.debug("Failed to close the inputs", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * An {@link Iterator} over a {@link Stream} which closes the stream when it is closed
+     */
+    private static final class StreamIterator<T> implements Iterator<T>, AutoCloseable {
+
+        private final Stream<? extends T> stream;
+
+        private final Iterator<? extends T> iterator;
+
+        private StreamIterator(Stream<? extends T> stream) {
+            this.stream = stream;
+            this.iterator = stream.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+    }
+
+    private enum EmptySubscription implements Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.reactive;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * <p>The outcome of a single operation emitted by a {@link RequestPublisher}. Failures are emitted as items rather
+ * than terminating the stream, so that one unresponsive server does not abort an entire scan.</p>
+ *
+ * @param <T>
+ *         The type of the input (e.g. a server address)
+ * @param <V>
+ *         The type of the result
+ */
+public class RequestResult<T, V> {
+
+    private final T input;
+
+    private final V value;
+
+    private final Throwable error;
+
+    public RequestResult(T input, V value, Throwable error) {
+        this.input = input;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @return The input which produced this result
+     */
+    public T getInput() {
+        return input;
+    }
+
+    /**
+     * @return The result of the operation or <code>null</code> if it has failed
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * @return The error thrown by the operation or <code>null</code> if it has succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return <code>true</code> if the operation has completed without errors
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.NO_CLASS_NAME_STYLE)
+                .append("Input", input)
+                .append("Value", value)
+                .append("Error", error)
+                .toString();
+    }
+}
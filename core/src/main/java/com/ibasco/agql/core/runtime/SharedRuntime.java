@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.runtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibasco.agql.core.session.SharedTimer;
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.*;
+
+/**
+ * <p>The threads shared by the clients built on it: a single {@link EventLoopGroup} sized to the number of cores,
+ * used by the UDP, TCP and HTTP transports as well as by the dispatchers of the messengers, an executor for the
+ * (rare) tasks which have to block and the {@link SharedTimer}.</p>
+ *
+ * <p>The runtime is reference counted. Each transport built on it retains it and releases it once closed, the
+ * threads are shut down when the last reference is released. Clients which are not explicitly given a runtime share
+ * the default one, see {@link #acquire()}, so running several clients in the same process does not multiply the
+ * threads.</p>
+ *
+ * <pre>
+ * SharedRuntime runtime = new SharedRuntime();
+ * SourceQueryClient queryClient = new SourceQueryClient(runtime);
+ * MasterServerQueryClient masterClient = new MasterServerQueryClient(runtime);
+ * runtime.release(); //The clients hold their own references
+ * </pre>
+ */
+public final class SharedRuntime extends AbstractReferenceCounted {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedRuntime.class);
+
+    public static final int DEFAULT_EVENT_LOOP_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final long BLOCKING_THREAD_KEEP_ALIVE = 60;
+
+    private static final int MAX_BLOCKING_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final int MAX_BLOCKING_TASKS = 1024;
+
+    private static SharedRuntime defaultRuntime;
+
+    private final EventLoopGroup eventLoopGroup;
+
+    private final ExecutorService blockingExecutor;
+
+    /**
+     * Creates a runtime with one event loop per core
+     */
+    public SharedRuntime() {
+        this(DEFAULT_EVENT_LOOP_THREADS);
+    }
+
+    /**
+     * Creates a runtime. The caller owns the initial reference and has to {@link #release()} it once no longer
+     * needed.
+     *
+     * @param eventLoopThreads
+     *         The number of event loops
+     */
+    public SharedRuntime(int eventLoopThreads) {
+        if (eventLoopThreads < 1)
+            throw new IllegalArgumentException("The number of event loop threads must be greater than zero");
+        this.eventLoopGroup = createEventLoopGroup(eventLoopThreads, Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("agql-el-%d").setDaemon(true).build()));
+        final ThreadPoolExecutor blockingExecutor = new ThreadPoolExecutor(MAX_BLOCKING_THREADS, MAX_BLOCKING_THREADS, BLOCKING_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_BLOCKING_TASKS), new ThreadFactoryBuilder().setNameFormat("agql-blocking-%d").setDaemon(true).build());
+        blockingExecutor.allowCoreThreadTimeOut(true);
+        this.blockingExecutor = blockingExecutor;
+        log.debug("Created runtime with {} event loop(s)", eventLoopThreads);
+    }
+
+    /**
+     * Retains the default runtime, creating it if it does not exist yet or if it has been shut down after its last
+     * reference was released.
+     *
+     * @return The default {@link SharedRuntime}. The caller owns one reference and has to {@link #release()} it once
+     * no longer needed.
+     */
+    public static synchronized SharedRuntime acquire() {
+        if (defaultRuntime != null) {
+            try {
+                return defaultRuntime.retain();
+            } catch (IllegalReferenceCountException e) {
+                log.debug("The default runtime has been released, creating a new one");
+            }
+        }
+        defaultRuntime = new SharedRuntime();
+        return defaultRuntime;
+    }
+
+    /**
+     * <p>A factory method that manufactures {@link EventLoopGroup} for the channels of the transports. If the platform
+     * supports Epoll, it will return {@link EpollEventLoopGroup} instead of {@link NioEventLoopGroup}.</p>
+     *
+     * @param threads
+     *         The number of event loops
+     * @param executor
+     *         The {@link Executor} running the event loops
+     *
+     * @return The {@link EventLoopGroup}
+     *
+     * @see com.ibasco.agql.core.enums.ChannelType#getChannelClass()
+     */
+    public static EventLoopGroup createEventLoopGroup(int threads, Executor executor) {
+        if (Epoll.isAvailable()) {
+            log.debug("Using EpollEventLoopGroup");
+            return new EpollEventLoopGroup(threads, executor, DefaultSelectStrategyFactory.INSTANCE);
+        }
+        return new NioEventLoopGroup(threads, executor, SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE);
+    }
+
+    /**
+     * @return The {@link EventLoopGroup} shared by the transports and the messengers built on this runtime
+     */
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    /**
+     * @return The {@link ExecutorService} for tasks which block (e.g. waiting on a response). It runs at most one
+     * thread per core (and no less than four), created when needed and ended after being idle for a minute. At most
+     * 1024 tasks may be waiting for a thread, further tasks are rejected with a {@link RejectedExecutionException}.
+     */
+    public ExecutorService getBlockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /**
+     * @return The {@link Timer} used for timeouts, see {@link SharedTimer}
+     */
+    public Timer getTimer() {
+        return SharedTimer.get();
+    }
+
+    @Override
+    protected void deallocate() {
+        log.debug("Last reference released, shutting down runtime");
+        blockingExecutor.shutdown();
+        eventLoopGroup.shutdownGracefully();
+    }
+
+    @Override
+    public SharedRuntime retain() {
+        return (SharedRuntime) super.retain();
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        return this;
+    }
+}
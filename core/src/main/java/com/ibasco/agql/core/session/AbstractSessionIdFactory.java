@@ -28,7 +28,6 @@ import com.ibasco.agql.core.AbstractMessage;
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.AbstractResponse;
 
-import java.net.InetSocketAddress;
 import java.util.Map;
 
 abstract public class AbstractSessionIdFactory<
@@ -36,8 +35,6 @@ abstract public class AbstractSessionIdFactory<
         Res extends AbstractResponse>
         implements SessionIdFactory {
 
-    protected static final String DEFAULT_ID_FORMAT = "%s:%s:%s";
-
     private Map<Class<? extends Req>, Class<? extends Res>> lookup;
 
     protected Class<? extends Res> getResponseClass(Req request) {
@@ -49,32 +46,22 @@ abstract public class AbstractSessionIdFactory<
     }
 
     /**
-     * <p>Create a generic id based on the message</p>
+     * <p>Create a generic id based on the message. The id is made of the expected response type and the address of
+     * the remote peer: the recipient of a request or the sender of a response.</p>
      *
      * @param message The {@link AbstractMessage} instance to be converted to an Id
+     * @param tag An additional discriminator for exchanges with the same peer, zero if not used
      *
-     * @return A {@link String} id representation of the {@link AbstractMessage} provided
+     * @return A {@link SessionId} representation of the {@link AbstractMessage} provided
      */
-    protected String createIdStringFromMsg(AbstractMessage message) {
-        //Format: <response class name> : <ip address> : <port>
+    @SuppressWarnings("unchecked")
+    protected SessionId createIdFromMsg(AbstractMessage message, long tag) {
         if (message == null)
             throw new IllegalArgumentException("Message not specified");
 
-        InetSocketAddress address;
-        Class messageClass;
-
-        if (message instanceof AbstractRequest) {
-            messageClass = getResponseClass((Req) message);
-            address = message.recipient();
-        } else {
-            messageClass = message.getClass();
-            address = message.sender();
-        }
-
-        return String.format(DEFAULT_ID_FORMAT,
-                messageClass.getSimpleName(),
-                address.getAddress().getHostAddress(),
-                String.valueOf(address.getPort()));
+        if (message instanceof AbstractRequest)
+            return new SessionId(getResponseClass((Req) message), message.recipient(), tag);
+        return new SessionId(message.getClass(), message.sender(), tag);
     }
 
     public Map<Class<? extends Req>, Class<? extends Res>> getLookup() {
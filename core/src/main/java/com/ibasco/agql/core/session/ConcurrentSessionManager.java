@@ -0,0 +1,352 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.session;
+
+import com.ibasco.agql.core.*;
+import com.ibasco.agql.core.enums.ExpiryMode;
+import com.ibasco.agql.core.enums.RequestStatus;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * <p>A {@link SessionManager} backed by a {@link ConcurrentHashMap} of per-id FIFO queues. There is no global lock:
+ * lookups are a single lock-free map read and updates only lock the bin of the affected id.</p>
+ *
+ * <p>Sessions sharing the same id (e.g. duplicate requests to the same server) are chained through the {@link
+ * SessionValue} itself in registration order, so registering a session allocates nothing besides the session and
+ * its timeout. The head of the chain is the session a response is matched against.</p>
+ *
+ * <p>Sessions are expired through the {@link SharedTimer} by default. In {@link ExpiryMode#SWEEP} mode, no timeout is
+ * scheduled per session: the deadline is kept in the session and the manager periodically sweeps over its sessions
+ * instead.</p>
+ *
+ * @param <Req>
+ *         {@link AbstractRequest}
+ * @param <Res>
+ *         {@link AbstractResponse}
+ */
+public class ConcurrentSessionManager<Req extends AbstractRequest, Res extends AbstractResponse> implements SessionManager<Req, Res> {
+
+    public static final long DEFAULT_SWEEP_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentSessionManager.class);
+    private static final int DEFAULT_READ_TIMEOUT = 5;
+    private final Timer sessionTimer;
+    private final AbstractSessionIdFactory factory;
+    private final ConcurrentHashMap<SessionId, SessionValue<Req, Res>> sessions = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Req>, Class<? extends Res>> directory = new HashMap<>();
+    private final AtomicLong indexCounter = new AtomicLong();
+    private final LongAdder sessionCount = new LongAdder();
+    private volatile BiPredicate<SessionValue<Req, Res>, Throwable> timeoutHandler;
+    private volatile ExpiryMode expiryMode = ExpiryMode.TIMER;
+    private volatile long sweepInterval = DEFAULT_SWEEP_INTERVAL;
+    private Timeout sweepTimeout;
+    private volatile boolean closed;
+
+    public ConcurrentSessionManager(AbstractSessionIdFactory factory) {
+        this(factory, SharedTimer.get());
+    }
+
+    /**
+     * @param factory
+     *         The {@link AbstractSessionIdFactory} used to create the ids of the sessions
+     * @param sessionTimer
+     *         The {@link Timer} used for expiring the sessions. It is not stopped when this session manager is closed.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentSessionManager(AbstractSessionIdFactory factory, Timer sessionTimer) {
+        this.sessionTimer = sessionTimer;
+        this.factory = (factory != null) ? factory : new DefaultSessionIdFactory();
+        this.factory.setLookup(directory);
+    }
+
+    @Override
+    public SessionValue<Req, Res> getSession(SessionId id) {
+        return (id != null) ? sessions.get(id) : null;
+    }
+
+    @Override
+    public SessionValue<Req, Res> getSession(AbstractMessage message) {
+        return sessions.get(factory.createId(message));
+    }
+
+    @Override
+    public SessionValue<Req, Res> getSession(SessionId id, RequestDetails<Req, Res> requestDetails) {
+        for (SessionValue<Req, Res> value = getSession(id); value != null; value = value.next) {
+            if (value.getRequestDetails() == requestDetails)
+                return value;
+        }
+        return null;
+    }
+
+    @Override
+    public SessionId getId(AbstractMessage message) {
+        final SessionId id = factory.createId(message);
+        return sessions.containsKey(id) ? id : null;
+    }
+
+    @Override
+    public SessionId register(RequestDetails<Req, Res> requestDetails) {
+        final SessionId id = factory.createId(requestDetails.getRequest());
+        log.debug("Registering session with id '{}'", id);
+        final SessionValue<Req, Res> sessionValue = new SessionValue<>(id, requestDetails, findResponseClass(requestDetails.getRequest()), indexCounter.incrementAndGet());
+        final long readTimeout = getReadTimeout(requestDetails);
+        sessionValue.setExpiryTime(System.nanoTime() + readTimeout);
+        sessionValue.last = sessionValue;
+        //Become the head if no other session shares the id, otherwise append to the tail of the chain (the bin lock of
+        //the id serializes concurrent updates)
+        if (sessions.putIfAbsent(id, sessionValue) != null) {
+            sessions.compute(id, (key, head) -> {
+                if (head == null)
+                    return sessionValue;
+                head.last.next = sessionValue;
+                head.last = sessionValue;
+                return head;
+            });
+        }
+        sessionCount.increment();
+        //Only schedule the timeout once the session is published, a short timeout could otherwise expire it before it
+        //can be found (and unregistered)
+        if (expiryMode == ExpiryMode.TIMER) {
+            final Timeout timeout = sessionTimer.newTimeout(new ReadRequestTimeoutTimerTask(sessionValue, this), readTimeout, TimeUnit.NANOSECONDS);
+            sessionValue.setTimeout(timeout);
+            //The session may have completed in the meantime, in which case nobody is left to cancel the timeout
+            if (requestDetails.getClientPromise().isDone())
+                timeout.cancel();
+        }
+        requestDetails.setStatus(RequestStatus.REGISTERED);
+        return id;
+    }
+
+    /**
+     * @param requestDetails
+     *         The {@link RequestDetails} being registered
+     *
+     * @return The time (in nanoseconds) to wait for a response. This is the read timeout assigned to the request,
+     * bounded by the remaining budget of the request if it has a deadline. Without an assigned read timeout, the
+     * remaining budget (or the default read timeout if there is no deadline) is used.
+     */
+    private long getReadTimeout(RequestDetails<Req, Res> requestDetails) {
+        final long readTimeout = requestDetails.getReadTimeout();
+        if (requestDetails.hasDeadline()) {
+            final long remaining = Math.max(0, requestDetails.getRemainingTime(TimeUnit.NANOSECONDS));
+            return (readTimeout > 0) ? Math.min(readTimeout, remaining) : remaining;
+        }
+        return (readTimeout > 0) ? readTimeout : TimeUnit.SECONDS.toNanos(DEFAULT_READ_TIMEOUT);
+    }
+
+    @Override
+    public boolean unregister(SessionId id) {
+        final SessionValue<Req, Res> head = getSession(id);
+        return head != null && unregister(head);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean unregister(SessionValue sessionValue) {
+        if (sessionValue == null)
+            return false;
+        log.debug("Unregistering session {}", sessionValue.getId());
+        if (sessionValue.getTimeout() != null)
+            sessionValue.getTimeout().cancel();
+        final boolean[] removed = new boolean[1];
+        sessions.computeIfPresent(sessionValue.getId(), (key, head) -> {
+            if (head == sessionValue) {
+                removed[0] = true;
+                final SessionValue<Req, Res> next = head.next;
+                if (next != null)
+                    next.last = head.last;
+                return next;
+            }
+            for (SessionValue<Req, Res> previous = head; previous.next != null; previous = previous.next) {
+                if (previous.next == sessionValue) {
+                    removed[0] = true;
+                    previous.next = sessionValue.next;
+                    if (head.last == sessionValue)
+                        head.last = previous;
+                    break;
+                }
+            }
+            return head;
+        });
+        if (removed[0])
+            sessionCount.decrement();
+        return removed[0];
+    }
+
+    @Override
+    public boolean isRegistered(AbstractMessage message) {
+        return getId(message) != null;
+    }
+
+    @Override
+    public Collection<Map.Entry<SessionId, SessionValue<Req, Res>>> getSessionEntries() {
+        final List<Map.Entry<SessionId, SessionValue<Req, Res>>> entries = new ArrayList<>();
+        for (Map.Entry<SessionId, SessionValue<Req, Res>> entry : sessions.entrySet()) {
+            for (SessionValue<Req, Res> value = entry.getValue(); value != null; value = value.next)
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), value));
+        }
+        return entries;
+    }
+
+    @Override
+    public int getSessionCount() {
+        return sessionCount.intValue();
+    }
+
+    @Override
+    public Class<? extends Res> findResponseClass(Req request) {
+        return directory.get(request.getClass());
+    }
+
+    @Override
+    public Map<Class<? extends Req>, Class<? extends Res>> getLookupMap() {
+        return directory;
+    }
+
+    @Override
+    public SessionIdFactory getSessionIdFactory() {
+        return factory;
+    }
+
+    @Override
+    public void setTimeoutHandler(BiPredicate<SessionValue<Req, Res>, Throwable> timeoutHandler) {
+        this.timeoutHandler = timeoutHandler;
+    }
+
+    @Override
+    public BiPredicate<SessionValue<Req, Res>, Throwable> getTimeoutHandler() {
+        return timeoutHandler;
+    }
+
+    @Override
+    public void setExpiryMode(ExpiryMode expiryMode) {
+        if (expiryMode == null)
+            throw new IllegalArgumentException("Expiry mode must not be null");
+        this.expiryMode = expiryMode;
+        if (expiryMode == ExpiryMode.SWEEP)
+            scheduleSweep();
+    }
+
+    @Override
+    public ExpiryMode getExpiryMode() {
+        return expiryMode;
+    }
+
+    /**
+     * @return The time (in nanoseconds) between two sweeps in {@link ExpiryMode#SWEEP} mode
+     */
+    public long getSweepInterval() {
+        return sweepInterval;
+    }
+
+    /**
+     * Sets the time between two sweeps in {@link ExpiryMode#SWEEP} mode. Sessions are expired up to this much later
+     * than their deadline.
+     *
+     * @param sweepInterval
+     *         The interval between two sweeps
+     * @param unit
+     *         The {@link TimeUnit} of the interval
+     */
+    public void setSweepInterval(long sweepInterval, TimeUnit unit) {
+        if (sweepInterval <= 0)
+            throw new IllegalArgumentException("Sweep interval must be greater than zero");
+        this.sweepInterval = unit.toNanos(sweepInterval);
+    }
+
+    private synchronized void scheduleSweep() {
+        if (sweepTimeout == null && !closed)
+            sweepTimeout = sessionTimer.newTimeout(timeout -> sweep(), sweepInterval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Expires the overdue sessions which do not have a timeout of their own. The sweep is re-scheduled as long as the
+     * manager is in {@link ExpiryMode#SWEEP} mode or such sessions remain.
+     */
+    private void sweep() {
+        boolean pending = false;
+        try {
+            final long now = System.nanoTime();
+            for (SessionValue<Req, Res> head : sessions.values()) {
+                for (SessionValue<Req, Res> value = head; value != null; value = value.next) {
+                    if (value.getTimeout() != null)
+                        continue;
+                    pending = true;
+                    if (value.getExpiryTime() - now <= 0) {
+                        log.debug("Sweeping expired session {}", value.getId());
+                        ReadRequestTimeoutTimerTask.expire(this, value);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error while sweeping expired sessions", e);
+        } finally {
+            synchronized (this) {
+                sweepTimeout = null;
+            }
+            if (pending || expiryMode == ExpiryMode.SWEEP)
+                scheduleSweep();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!sessions.isEmpty()) {
+            log.debug("Request to shutdown has been initiated but the session manager still contains " +
+                    "pending entries that has not completed.");
+        }
+        //The timer is shared, only cancel what belongs to us
+        synchronized (this) {
+            closed = true;
+            if (sweepTimeout != null)
+                sweepTimeout.cancel();
+            sweepTimeout = null;
+        }
+        for (SessionValue<Req, Res> head : sessions.values()) {
+            for (SessionValue<Req, Res> value = head; value != null; value = value.next) {
+                if (value.getTimeout() != null)
+                    value.getTimeout().cancel();
+            }
+        }
+        sessions.clear();
+        sessionCount.reset();
+    }
+}
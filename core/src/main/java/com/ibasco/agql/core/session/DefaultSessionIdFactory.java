@@ -31,7 +31,7 @@ import com.ibasco.agql.core.AbstractResponse;
 public class DefaultSessionIdFactory extends AbstractSessionIdFactory<AbstractRequest, AbstractResponse> {
     @Override
     public SessionId createId(AbstractMessage message) {
-        return new SessionId(createIdStringFromMsg(message));
+        return createIdFromMsg(message, 0);
     }
 
     @Override
@@ -27,11 +27,9 @@ package com.ibasco.agql.core.session;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.TreeMultimap;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.ibasco.agql.core.*;
 import com.ibasco.agql.core.enums.RequestStatus;
-import io.netty.util.HashedWheelTimer;
-import org.apache.commons.lang3.builder.CompareToBuilder;
+import io.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +40,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
 
 public class DefaultSessionManager<Req extends AbstractRequest,
         Res extends AbstractResponse>
@@ -49,15 +48,16 @@ public class DefaultSessionManager<Req extends AbstractRequest,
 
     private static final Logger log = LoggerFactory.getLogger(DefaultSessionManager.class);
     private static final int DEFAULT_READ_TIMEOUT = 5;
-    private HashedWheelTimer sessionTimer;
+    private Timer sessionTimer;
     private AbstractSessionIdFactory factory;
     private final Multimap<SessionId, SessionValue<Req, Res>> session = Multimaps.synchronizedSortedSetMultimap(TreeMultimap.create(new SessionIdComparator(), new SessionValueComparator()));
     private Map<Class<? extends Req>, Class<? extends Res>> directory = null;
     private final AtomicLong indexCounter = new AtomicLong();
+    private volatile BiPredicate<SessionValue<Req, Res>, Throwable> timeoutHandler;
 
     @SuppressWarnings("unchecked")
     public DefaultSessionManager(AbstractSessionIdFactory factory) {
-        sessionTimer = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("timeout-%d").setDaemon(true).build());
+        sessionTimer = SharedTimer.get();
         directory = new HashMap<>();
         this.factory = (factory != null) ? factory : new DefaultSessionIdFactory();
         this.factory.setLookup(directory);
@@ -65,39 +65,48 @@ public class DefaultSessionManager<Req extends AbstractRequest,
 
     @Override
     public SessionValue<Req, Res> getSession(AbstractMessage message) {
-        final SessionId id = getId(message);
+        if (factory == null)
+            throw new IllegalStateException("No id factory assigned");
+        final SessionId id = factory.createId(message);
         log.debug("Retrieving Session for {}", id);
-        if (id != null)
-            return getSession(id);
-        return null;
+        return getSession(id);
     }
 
     @Override
     public SessionValue<Req, Res> getSession(SessionId id) {
-        final Collection<SessionValue<Req, Res>> c = session.get(id);
-        synchronized (this) {
-            return (id != null && c.size() > 0) ? c.iterator().next() : null;
+        if (id == null)
+            return null;
+        synchronized (session) {
+            final Collection<SessionValue<Req, Res>> c = session.get(id);
+            return !c.isEmpty() ? c.iterator().next() : null;
         }
     }
 
+    @Override
+    public SessionValue<Req, Res> getSession(SessionId id, RequestDetails<Req, Res> requestDetails) {
+        if (id == null)
+            return null;
+        synchronized (session) {
+            for (SessionValue<Req, Res> value : session.get(id)) {
+                if (value.getRequestDetails() == requestDetails)
+                    return value;
+            }
+        }
+        return null;
+    }
+
     @Override
     public SessionId getId(AbstractMessage message) {
         if (factory == null)
             throw new IllegalStateException("No id factory assigned");
         final SessionId id = factory.createId(message);
-        synchronized (this) {
-            log.debug("Checking if the Session Id is registered (id : {})", id);
-            if (!session.containsKey(id)) {
-                log.debug("Did not find session id '{}' in the map", id);
-                session.entries().forEach(e -> log.debug(" # {} = {}", e.getKey(), e.getValue()));
-                return null;
-            }
-
-            return session.keySet().stream()
-                    .filter(sessionId -> sessionId.equals(id))
-                    .findFirst()
-                    .orElse(null);
+        log.debug("Checking if the Session Id is registered (id : {})", id);
+        //Registered ids are equal to (and interchangeable with) the one we have just created
+        if (!session.containsKey(id)) {
+            log.debug("Did not find session id '{}' in the map", id);
+            return null;
         }
+        return id;
     }
 
     @Override
@@ -105,9 +114,8 @@ public class DefaultSessionManager<Req extends AbstractRequest,
         final SessionId id = factory.createId(requestDetails.getRequest());
         log.debug("Registering session with id '{}'", id);
         //Create our session store object and set it's properties
-        SessionValue<Req, Res> sessionValue = new SessionValue<>(id, requestDetails, indexCounter.incrementAndGet());
-        sessionValue.setExpectedResponse(findResponseClass(requestDetails.getRequest()));
-        sessionValue.setTimeout(sessionTimer.newTimeout(new ReadRequestTimeoutTimerTask(id, this), DEFAULT_READ_TIMEOUT, TimeUnit.SECONDS));
+        SessionValue<Req, Res> sessionValue = new SessionValue<>(id, requestDetails, findResponseClass(requestDetails.getRequest()), indexCounter.incrementAndGet());
+        sessionValue.setTimeout(sessionTimer.newTimeout(new ReadRequestTimeoutTimerTask(sessionValue, this), getReadTimeout(requestDetails), TimeUnit.NANOSECONDS));
         //Add to the registry
         synchronized (this) {
             if (session.put(id, sessionValue)) {
@@ -121,6 +129,23 @@ public class DefaultSessionManager<Req extends AbstractRequest,
         return id;
     }
 
+    /**
+     * @param requestDetails
+     *         The {@link RequestDetails} being registered
+     *
+     * @return The time (in nanoseconds) to wait for a response. This is the read timeout assigned to the request,
+     * bounded by the remaining budget of the request if it has a deadline. Without an assigned read timeout, the
+     * remaining budget (or the default read timeout if there is no deadline) is used.
+     */
+    private long getReadTimeout(RequestDetails<Req, Res> requestDetails) {
+        final long readTimeout = requestDetails.getReadTimeout();
+        if (requestDetails.hasDeadline()) {
+            final long remaining = Math.max(0, requestDetails.getRemainingTime(TimeUnit.NANOSECONDS));
+            return (readTimeout > 0) ? Math.min(readTimeout, remaining) : remaining;
+        }
+        return (readTimeout > 0) ? readTimeout : TimeUnit.SECONDS.toNanos(DEFAULT_READ_TIMEOUT);
+    }
+
     @Override
     public boolean unregister(SessionId id) {
         return unregister(getSession(id));
@@ -148,6 +173,11 @@ public class DefaultSessionManager<Req extends AbstractRequest,
         return session.entries();
     }
 
+    @Override
+    public synchronized int getSessionCount() {
+        return session.size();
+    }
+
     @Override
     public Class<? extends Res> findResponseClass(Req request) {
         return directory.get(request.getClass());
@@ -163,31 +193,43 @@ public class DefaultSessionManager<Req extends AbstractRequest,
         return this.factory;
     }
 
+    @Override
+    public void setTimeoutHandler(BiPredicate<SessionValue<Req, Res>, Throwable> timeoutHandler) {
+        this.timeoutHandler = timeoutHandler;
+    }
+
+    @Override
+    public BiPredicate<SessionValue<Req, Res>, Throwable> getTimeoutHandler() {
+        return timeoutHandler;
+    }
+
     @Override
     public void close() throws IOException {
         if (getSessionEntries().size() > 0) {
             log.debug("Request to shutdown has been initiated but the session manager still contains " +
                     "pending entries that has not completed.");
         }
-        sessionTimer.stop();
-        session.clear();
+        //The timer is shared, only cancel what belongs to us
+        synchronized (session) {
+            for (SessionValue<Req, Res> value : session.values()) {
+                if (value.getTimeout() != null)
+                    value.getTimeout().cancel();
+            }
+            session.clear();
+        }
     }
 
     private static class SessionIdComparator implements Comparator<SessionId> {
         @Override
         public int compare(SessionId o1, SessionId o2) {
-            return new CompareToBuilder()
-                    .append(o1.getId(), o2.getId())
-                    .toComparison();
+            return o1.compareTo(o2);
         }
     }
 
     private static class SessionValueComparator implements Comparator<SessionValue> {
         @Override
         public int compare(SessionValue o1, SessionValue o2) {
-            return new CompareToBuilder()
-                    .append(o1.getIndex(), o2.getIndex())
-                    .toComparison();
+            return Long.compare(o1.getIndex(), o2.getIndex());
         }
     }
 }
@@ -24,57 +24,203 @@
 
 package com.ibasco.agql.core.session;
 
-import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
-import org.apache.commons.lang3.builder.CompareToBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
 import java.io.Serializable;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * <p>Identifies a pending request/response exchange. A session id is made of the ordinal of the expected response
+ * type, the address and port of the remote peer and an optional tag (e.g. an rcon request id). Addresses are packed
+ * into two longs (IPv4 addresses are stored in their IPv4-mapped IPv6 form) and the hash code is computed once, so ids
+ * are cheap to create, compare and hash.</p>
+ */
 public final class SessionId implements Serializable, Comparable<SessionId> {
-    private String id;
+
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+
+    private static final List<Class<?>> types = new CopyOnWriteArrayList<>();
+
+    private static final ClassValue<Integer> typeOrdinals = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            synchronized (types) {
+                types.add(type);
+                return types.size() - 1;
+            }
+        }
+    };
+
+    private final int type;
+
+    private final long addressHigh;
+
+    private final long addressLow;
+
+    private final int port;
+
+    private final long tag;
+
+    private final int hash;
 
     public SessionId(SessionId id) {
-        this(id.getId());
+        this(id.type, id.addressHigh, id.addressLow, id.port, id.tag);
     }
 
-    public SessionId(String id) {
-        this.id = id;
+    /**
+     * @param type
+     *         The expected response type
+     * @param address
+     *         The address of the remote peer
+     * @param tag
+     *         An additional discriminator for exchanges with the same peer, zero if not used
+     */
+    public SessionId(Class<?> type, InetSocketAddress address, long tag) {
+        this(typeOrdinal(type), address, tag);
     }
 
-    public final String getId() {
-        return id;
+    /**
+     * @param type
+     *         The ordinal of the expected response type, see {@link #typeOrdinal(Class)}
+     * @param address
+     *         The address of the remote peer
+     * @param tag
+     *         An additional discriminator for exchanges with the same peer, zero if not used
+     */
+    public SessionId(int type, InetSocketAddress address, long tag) {
+        if (address == null || address.getAddress() == null)
+            throw new IllegalArgumentException("Address is not specified or could not be resolved: " + address);
+        final InetAddress inetAddress = address.getAddress();
+        this.type = type;
+        if (inetAddress instanceof Inet4Address) {
+            //The hash code of an Inet4Address is its address, this spares us the copy made by getAddress()
+            this.addressHigh = 0;
+            this.addressLow = IPV4_MAPPED_PREFIX | (inetAddress.hashCode() & 0xFFFFFFFFL);
+        } else {
+            final byte[] bytes = inetAddress.getAddress();
+            this.addressHigh = pack(bytes, 0);
+            this.addressLow = pack(bytes, 8);
+        }
+        this.port = address.getPort();
+        this.tag = tag;
+        this.hash = computeHash();
     }
 
-    public final void setId(String id) {
-        this.id = id;
+    public SessionId(int type, long addressHigh, long addressLow, int port, long tag) {
+        this.type = type;
+        this.addressHigh = addressHigh;
+        this.addressLow = addressLow;
+        this.port = port;
+        this.tag = tag;
+        this.hash = computeHash();
+    }
+
+    /**
+     * @param type
+     *         A message class
+     *
+     * @return A small number uniquely identifying the class within this JVM
+     */
+    public static int typeOrdinal(Class<?> type) {
+        return typeOrdinals.get(type);
+    }
+
+    private static long pack(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++)
+            value = (value << 8) | (bytes[i] & 0xFF);
+        return value;
+    }
+
+    private int computeHash() {
+        long h = type;
+        h = h * 31 + addressHigh;
+        h = h * 31 + addressLow;
+        h = h * 31 + port;
+        h = h * 31 + tag;
+        //Spread the bits, so that consecutive addresses/ports do not end up in neighbouring buckets only
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public long getAddressHigh() {
+        return addressHigh;
+    }
+
+    public long getAddressLow() {
+        return addressLow;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public long getTag() {
+        return tag;
+    }
+
+    /**
+     * @return A human readable representation of the id (Format: <code>&lt;response type&gt;:&lt;address&gt;:&lt;port&gt;[:&lt;tag&gt;]</code>).
+     * This is built on each call and is meant for diagnostics only.
+     */
+    public String getId() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append((type >= 0 && type < types.size()) ? types.get(type).getSimpleName() : String.valueOf(type)).append(':');
+        if (addressHigh == 0 && (addressLow >>> 32) == 0xFFFFL) {
+            builder.append((addressLow >>> 24) & 0xFF).append('.').append((addressLow >>> 16) & 0xFF).append('.')
+                    .append((addressLow >>> 8) & 0xFF).append('.').append(addressLow & 0xFF);
+        } else {
+            for (int i = 3; i >= 0; i--)
+                builder.append(Long.toHexString((addressHigh >>> (i * 16)) & 0xFFFF)).append(':');
+            for (int i = 3; i >= 0; i--)
+                builder.append(Long.toHexString((addressLow >>> (i * 16)) & 0xFFFF)).append((i > 0) ? ":" : "");
+        }
+        builder.append(':').append(port);
+        if (tag != 0)
+            builder.append(':').append(tag);
+        return builder.toString();
     }
 
     @Override
-    public final boolean equals(Object o) {
-        if (!(o instanceof SessionId || o instanceof String))
-            return false;
+    public boolean equals(Object o) {
         if (o == this)
             return true;
-        if (o instanceof String) {
-            return defaultIfNull(getId(), "").equalsIgnoreCase((String) o);
-        }
-        return defaultIfNull(getId(), "").equalsIgnoreCase(((SessionId) o).getId());
+        if (!(o instanceof SessionId))
+            return false;
+        final SessionId that = (SessionId) o;
+        return hash == that.hash && type == that.type && port == that.port && addressLow == that.addressLow
+                && addressHigh == that.addressHigh && tag == that.tag;
     }
 
     @Override
-    public final int hashCode() {
-        return new HashCodeBuilder(61, 235).append(getId()).hashCode();
+    public int hashCode() {
+        return hash;
     }
 
     @Override
     public String toString() {
         return "SessionId{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 '}';
     }
 
     @Override
     public int compareTo(SessionId o) {
-        return new CompareToBuilder().append(getId(), o.getId()).toComparison();
+        int result = Integer.compare(type, o.type);
+        if (result == 0)
+            result = Long.compare(addressHigh, o.addressHigh);
+        if (result == 0)
+            result = Long.compare(addressLow, o.addressLow);
+        if (result == 0)
+            result = Integer.compare(port, o.port);
+        if (result == 0)
+            result = Long.compare(tag, o.tag);
+        return result;
     }
 }
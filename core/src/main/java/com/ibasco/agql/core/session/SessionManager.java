@@ -28,10 +28,12 @@ import com.ibasco.agql.core.AbstractMessage;
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.AbstractResponse;
 import com.ibasco.agql.core.RequestDetails;
+import com.ibasco.agql.core.enums.ExpiryMode;
 
 import java.io.Closeable;
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.BiPredicate;
 
 public interface SessionManager<Req extends AbstractRequest, Res extends AbstractResponse> extends Closeable {
     /**
@@ -46,7 +48,26 @@ public interface SessionManager<Req extends AbstractRequest, Res extends Abstrac
     SessionValue<Req, Res> getSession(SessionId id);
 
     /**
-     * Get session based on the {@link AbstractMessage} instance
+     * Returns the {@link SessionValue} registered for a specific request. Unlike {@link #getSession(SessionId)}, this
+     * is not limited to the head element when multiple values exist for the same key.
+     *
+     * @param id The {@link SessionId} the request has been registered with
+     * @param requestDetails The {@link RequestDetails} of the request
+     *
+     * @return A {@link SessionValue} or NULL if the request is not registered
+     */
+    default SessionValue<Req, Res> getSession(SessionId id, RequestDetails<Req, Res> requestDetails) {
+        for (Map.Entry<SessionId, SessionValue<Req, Res>> entry : getSessionEntries()) {
+            if (entry.getValue().getRequestDetails() == requestDetails)
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Get session based on the {@link AbstractMessage} instance. This is the path used for correlating responses,
+     * implementations should resolve the pending session directly from the id of the message (without going through
+     * {@link #getId(AbstractMessage)} first).
      *
      * @param message The {@link AbstractMessage} instance to use for the lookup reference
      *
@@ -109,9 +130,58 @@ public interface SessionManager<Req extends AbstractRequest, Res extends Abstrac
      */
     Collection<Map.Entry<SessionId, SessionValue<Req, Res>>> getSessionEntries();
 
+    /**
+     * @return The number of registered sessions. Implementations should override this method if they can count their
+     * sessions without building a copy of the registry.
+     */
+    default int getSessionCount() {
+        return getSessionEntries().size();
+    }
+
     Class<? extends Res> findResponseClass(Req request);
 
     Map<Class<? extends Req>, Class<? extends Res>> getLookupMap();
 
     SessionIdFactory getSessionIdFactory();
+
+    /**
+     * <p>Sets the handler invoked when no response has been received in time for a session. If the handler returns
+     * <code>true</code>, the timeout is considered handled (e.g. the request is retried) and the client is not
+     * notified. Otherwise, the client promise is completed with a {@link com.ibasco.agql.core.exceptions.ReadTimeoutException}.</p>
+     *
+     * <p>The default implementation ignores the handler.</p>
+     *
+     * @param handler
+     *         A {@link BiPredicate} accepting the expired {@link SessionValue} and the timeout exception
+     */
+    default void setTimeoutHandler(BiPredicate<SessionValue<Req, Res>, Throwable> handler) {
+    }
+
+    /**
+     * Sets how sessions which did not receive a response in time are detected. Only affects sessions registered
+     * afterwards.
+     *
+     * @param expiryMode The {@link ExpiryMode} to use
+     *
+     * @throws UnsupportedOperationException If the session manager does not support the mode. The default
+     * implementation only supports {@link ExpiryMode#TIMER}.
+     */
+    default void setExpiryMode(ExpiryMode expiryMode) {
+        if (expiryMode != ExpiryMode.TIMER)
+            throw new UnsupportedOperationException("Expiry mode " + expiryMode + " is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * @return The {@link ExpiryMode} of the session manager
+     */
+    default ExpiryMode getExpiryMode() {
+        return ExpiryMode.TIMER;
+    }
+
+    /**
+     * @return The handler invoked when a session times out or <code>null</code> if none has been set
+     */
+    default BiPredicate<SessionValue<Req, Res>, Throwable> getTimeoutHandler() {
+        return null;
+    }
 }
@@ -29,31 +29,36 @@ import com.ibasco.agql.core.AbstractResponse;
 import com.ibasco.agql.core.RequestDetails;
 import com.ibasco.agql.core.Transport;
 import io.netty.util.Timeout;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Contains the details of the given Session
+ * <p>Contains the details of the given Session.</p>
+ *
+ * <p>Sessions are compared by identity, each one being a single registration of a {@link RequestDetails}.</p>
  */
 public class SessionValue<Req extends AbstractRequest, Res extends AbstractResponse> {
-    private static final Logger log = LoggerFactory.getLogger(SessionValue.class);
-
-    private Timeout timeout;
-    private SessionId id;
-    private RequestDetails<Req, Res> requestDetails;
-    private final long timeRegistered = System.currentTimeMillis();
-    private Class<? extends AbstractResponse> expectedResponse;
-    private long index = -1;
+    private final SessionId id;
+    private final RequestDetails<Req, Res> requestDetails;
+    private final Class<? extends AbstractResponse> expectedResponse;
+    private final long index;
+    private final long registrationTime = System.nanoTime();
+    private volatile Timeout timeout;
+    private volatile long expiryTime;
+    //Links used by ConcurrentSessionManager to chain the sessions sharing the same id, in registration order
+    volatile SessionValue<Req, Res> next;
+    volatile SessionValue<Req, Res> last;
 
     public SessionValue(SessionId id, RequestDetails<Req, Res> requestDetails, long index) {
+        this(id, requestDetails, null, index);
+    }
+
+    public SessionValue(SessionId id, RequestDetails<Req, Res> requestDetails, Class<? extends AbstractResponse> expectedResponse, long index) {
         this.id = id;
         this.requestDetails = requestDetails;
+        this.expectedResponse = expectedResponse;
         this.index = index;
     }
 
@@ -61,10 +66,6 @@ public class SessionValue<Req extends AbstractRequest, Res extends AbstractRespo
         return id;
     }
 
-    public void setId(SessionId id) {
-        this.id = id;
-    }
-
     public Timeout getTimeout() {
         return timeout;
     }
@@ -73,8 +74,30 @@ public class SessionValue<Req extends AbstractRequest, Res extends AbstractRespo
         this.timeout = timeout;
     }
 
+    /**
+     * @return The time (in terms of {@link System#nanoTime()}) after which the session is considered expired
+     */
+    public long getExpiryTime() {
+        return expiryTime;
+    }
+
+    public void setExpiryTime(long expiryTime) {
+        this.expiryTime = expiryTime;
+    }
+
+    /**
+     * @return The time (in milliseconds since the epoch) the session has been registered
+     */
     public long getTimeRegistered() {
-        return timeRegistered;
+        return System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - registrationTime);
+    }
+
+    /**
+     * @return The time (in terms of {@link System#nanoTime()}) the session has been registered, used for measuring
+     * the round trip time of the request
+     */
+    public long getRegistrationTime() {
+        return registrationTime;
     }
 
     public CompletableFuture<Res> getClientPromise() {
@@ -93,46 +116,14 @@ public class SessionValue<Req extends AbstractRequest, Res extends AbstractRespo
         return requestDetails;
     }
 
-    public void setRequestDetails(RequestDetails<Req, Res> requestDetails) {
-        this.requestDetails = requestDetails;
-    }
-
     public Class<? extends AbstractResponse> getExpectedResponse() {
         return expectedResponse;
     }
 
-    public void setExpectedResponse(Class<? extends AbstractResponse> expectedResponse) {
-        this.expectedResponse = expectedResponse;
-    }
-
     public long getIndex() {
         return index;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        log.info("Access equals for {}", this);
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-
-        final SessionValue<?, ?> that = (SessionValue<?, ?>) o;
-
-        return new EqualsBuilder()
-                .append(getId(), that.getId())
-                .append(getIndex(), that.getIndex())
-                .append(getRequest(), that.getRequest())
-                .isEquals();
-    }
-
-    @Override
-    public int hashCode() {
-        return new HashCodeBuilder(421, 743)
-                .append(getId())
-                .append(getIndex())
-                .append(getRequest())
-                .toHashCode();
-    }
-
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.NO_CLASS_NAME_STYLE)
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.session;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Provides the {@link Timer} shared by the session managers of every messenger for expiring their sessions, so
+ * that running several clients does not spawn one timer thread per client.</p>
+ *
+ * <p>The timer is created on first use. Its tick duration and wheel size can be changed through {@link
+ * #configure(long, TimeUnit, int)} before that.</p>
+ */
+public final class SharedTimer {
+
+    public static final long DEFAULT_TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private static long tickDuration = DEFAULT_TICK_DURATION;
+
+    private static int ticksPerWheel = DEFAULT_TICKS_PER_WHEEL;
+
+    private static volatile HashedWheelTimer timer;
+
+    private SharedTimer() {
+    }
+
+    /**
+     * Changes the settings of the shared timer. This has to be called before any messenger is created.
+     *
+     * @param tickDuration
+     *         The duration between ticks, which is the precision of the timeouts
+     * @param unit
+     *         The {@link TimeUnit} of the tick duration
+     * @param ticksPerWheel
+     *         The size of the wheel. Timeouts further away than <code>tickDuration * ticksPerWheel</code> are kept
+     *         in the wheel for several rounds, a larger wheel makes the ticks cheaper.
+     *
+     * @throws IllegalStateException
+     *         If the timer has already been started
+     */
+    public static synchronized void configure(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0)
+            throw new IllegalArgumentException("Tick duration and ticks per wheel must be greater than zero");
+        if (timer != null)
+            throw new IllegalStateException("The shared timer has already been started");
+        SharedTimer.tickDuration = unit.toNanos(tickDuration);
+        SharedTimer.ticksPerWheel = ticksPerWheel;
+    }
+
+    /**
+     * @return The shared {@link Timer}, created on the first call. Its thread is a daemon thread which lives as long
+     * as the application.
+     */
+    public static Timer get() {
+        HashedWheelTimer result = timer;
+        if (result == null) {
+            synchronized (SharedTimer.class) {
+                result = timer;
+                if (result == null) {
+                    timer = result = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("agql-timeout-%d").setDaemon(true).build(),
+                            tickDuration, TimeUnit.NANOSECONDS, ticksPerWheel);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.transport;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * <p>Decides when the messages written to a channel are flushed to the socket.</p>
+ *
+ * <p>A consolidating policy defers the flush of each write until the event loop has finished its current task (e.g.
+ * dispatching a batch of queued requests), or until a number of flushes are pending. The datagrams written in the
+ * meantime are handed to the socket together, which the epoll transport does with a single <code>sendmmsg</code> call
+ * instead of one <code>sendto</code> per datagram.</p>
+ *
+ * @see #CONSOLIDATED
+ * @see FlushConsolidationHandler
+ */
+public final class FlushPolicy {
+
+    public static final String HANDLER_NAME = "flushConsolidation";
+
+    /**
+     * Every write is flushed immediately
+     */
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(1);
+
+    /**
+     * Writes are flushed once the event loop has finished its current task, or after 64 pending flushes
+     */
+    public static final FlushPolicy CONSOLIDATED = new FlushPolicy(64);
+
+    private final int maxPendingFlushes;
+
+    /**
+     * @param maxPendingFlushes
+     *         The number of flushes which can be deferred before the writes are flushed regardless, one to flush every
+     *         write immediately
+     */
+    public FlushPolicy(int maxPendingFlushes) {
+        if (maxPendingFlushes < 1)
+            throw new IllegalArgumentException("The number of pending flushes must be greater than zero");
+        this.maxPendingFlushes = maxPendingFlushes;
+    }
+
+    public int getMaxPendingFlushes() {
+        return maxPendingFlushes;
+    }
+
+    /**
+     * @return <code>true</code> if every write is flushed immediately
+     */
+    public boolean isImmediate() {
+        return maxPendingFlushes == 1;
+    }
+
+    /**
+     * Installs the handler enforcing this policy in the pipeline of a newly created channel
+     *
+     * @param channel
+     *         The {@link Channel} to configure
+     */
+    public void applyTo(Channel channel) {
+        if (isImmediate() || channel.pipeline().get(HANDLER_NAME) != null)
+            return;
+        channel.pipeline().addFirst(HANDLER_NAME, createHandler());
+    }
+
+    private ChannelHandler createHandler() {
+        //Also consolidate the flushes issued outside of a read, i.e. when dispatching requests
+        return new FlushConsolidationHandler(maxPendingFlushes, true);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.NO_CLASS_NAME_STYLE)
+                .append("MaxPendingFlushes", maxPendingFlushes)
+                .toString();
+    }
+}
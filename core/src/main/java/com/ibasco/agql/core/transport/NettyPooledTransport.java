@@ -28,6 +28,7 @@ import com.ibasco.agql.core.AbstractMessage;
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.enums.ChannelType;
 import com.ibasco.agql.core.exceptions.ConnectException;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.transport.pool.MessageChannelPoolMap;
 import io.netty.channel.Channel;
 import io.netty.channel.pool.AbstractChannelPoolHandler;
@@ -37,6 +38,7 @@ import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
@@ -72,13 +74,18 @@ abstract public class NettyPooledTransport<M extends AbstractRequest, K> extends
     };
 
     public NettyPooledTransport(ChannelType channelType) {
-        super(channelType);
+        this(channelType, (SharedRuntime) null);
+    }
+
+    public NettyPooledTransport(ChannelType channelType, SharedRuntime runtime) {
+        super(channelType, runtime);
         //Initialize our pool map instance
         poolMap = new MessageChannelPoolMap<>(this::createKey, this::createChannelPool);
     }
 
     public NettyPooledTransport(ChannelType channelType, ExecutorService executor) {
         super(channelType, executor);
+        poolMap = new MessageChannelPoolMap<>(this::createKey, this::createChannelPool);
     }
 
     /**
@@ -154,7 +161,7 @@ abstract public class NettyPooledTransport<M extends AbstractRequest, K> extends
      *         The newly created {@link Channel}
      */
     protected void onChannelCreate(Channel ch) {
-        getChannelInitializer().initializeChannel(ch, this);
+        initializeChannel(ch);
     }
 
     /**
@@ -183,4 +190,16 @@ abstract public class NettyPooledTransport<M extends AbstractRequest, K> extends
      * @return A {@link ChannelPool} instance
      */
     abstract public ChannelPool createChannelPool(K key);
+
+    /**
+     * Closes the pooled channels before releasing the event loops, which may be shared with other transports
+     *
+     * @throws IOException
+     *         If the transport could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        poolMap.close();
+        super.close();
+    }
 }
@@ -24,29 +24,26 @@
 
 package com.ibasco.agql.core.transport;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.ibasco.agql.core.AbstractMessage;
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.Transport;
 import com.ibasco.agql.core.enums.ChannelType;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.ResourceLeakDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.spi.SelectorProvider;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @SuppressWarnings("unchecked")
 abstract public class NettyTransport<Msg extends AbstractRequest> implements Transport<Msg> {
@@ -56,13 +53,48 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
     private static final Logger log = LoggerFactory.getLogger(NettyTransport.class);
     private NettyChannelInitializer channelInitializer;
     private ExecutorService executorService;
+    private SharedRuntime runtime;
+    private volatile FlushPolicy flushPolicy = FlushPolicy.IMMEDIATE;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
+    /**
+     * Creates a transport on the default {@link SharedRuntime}
+     *
+     * @param channelType
+     *         The {@link ChannelType} of the transport
+     */
     public NettyTransport(ChannelType channelType) {
-        this(channelType, Executors.newFixedThreadPool(8, new ThreadFactoryBuilder().setNameFormat("transport-el-%d").setDaemon(true).build()));
+        this(channelType, (SharedRuntime) null);
     }
 
+    /**
+     * Creates a transport whose channels are served by the event loops of the specified runtime. The runtime is
+     * retained until the transport is closed.
+     *
+     * @param channelType
+     *         The {@link ChannelType} of the transport
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     */
+    public NettyTransport(ChannelType channelType, SharedRuntime runtime) {
+        this(channelType, (runtime != null) ? runtime.retain() : SharedRuntime.acquire(), null);
+    }
+
+    /**
+     * Creates a transport owning its event loops, which run on the specified executor
+     *
+     * @param channelType
+     *         The {@link ChannelType} of the transport
+     * @param executor
+     *         The {@link ExecutorService} running the event loops. It is shutdown along with the transport.
+     */
     public NettyTransport(ChannelType channelType, ExecutorService executor) {
-        executorService = executor;
+        this(channelType, null, executor);
+    }
+
+    private NettyTransport(ChannelType channelType, SharedRuntime runtime, ExecutorService executor) {
+        this.runtime = runtime;
+        this.executorService = executor;
         bootstrap = new Bootstrap();
 
         //Make sure we have a type set
@@ -70,9 +102,7 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
             throw new IllegalStateException("No channel type has been specified");
 
         //Pick the proper event loop group
-        if (eventLoopGroup == null) {
-            eventLoopGroup = createEventLoopGroup(channelType);
-        }
+        eventLoopGroup = (runtime != null) ? runtime.getEventLoopGroup() : createEventLoopGroup(channelType);
 
         //Default Channel Options
         addChannelOption(ChannelOption.ALLOCATOR, allocator);
@@ -111,12 +141,12 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
     }
 
     public final CompletableFuture<Void> send(Msg message, boolean flushImmediately) {
+        final CompletableFuture<Channel> channelFuture = getChannel(message);
+        //Write right away if the channel is readily available (e.g. persistent sockets)
+        if (channelFuture.isDone() && !channelFuture.isCompletedExceptionally())
+            return writeToChannel(channelFuture.join(), message, flushImmediately);
         //Obtain a channel then write to it once acquired
-        return getChannel(message).thenApply(this::applyDefaultChannelAttributes).thenCompose(channel -> writeToChannel(channel, message, flushImmediately));
-    }
-
-    private Channel applyDefaultChannelAttributes(Channel channel) {
-        return channel;
+        return channelFuture.thenCompose(channel -> writeToChannel(channel, message, flushImmediately));
     }
 
     /**
@@ -137,6 +167,11 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
         final CompletableFuture<Void> writeResultFuture = new CompletableFuture<>();
         log.debug("Writing data '{}' to channel : {}", data, channel);
         final ChannelFuture writeFuture = (flushImmediately) ? channel.writeAndFlush(data) : channel.write(data);
+        //The flush may be deferred by the flush policy, hand the channel back right away so that later writes may reuse it.
+        //Note that a pool only sees the channel as idle right away if we are on its event loop, otherwise the release is posted to it
+        final boolean releaseOnWrite = isReleaseOnWrite();
+        if (releaseOnWrite)
+            cleanupChannel(channel);
         writeFuture.addListener((ChannelFuture future) -> {
             try {
                 if (future.isSuccess())
@@ -144,12 +179,28 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
                 else
                     writeResultFuture.completeExceptionally(future.cause());
             } finally {
-                cleanupChannel(future.channel());
+                if (!releaseOnWrite)
+                    cleanupChannel(future.channel());
             }
         });
         return writeResultFuture;
     }
 
+    /**
+     * <p>Indicates whether a channel can be cleaned-up as soon as a message has been written to it, instead of waiting
+     * for the write to complete. This is only safe for channels which can carry the messages of several requests at
+     * the same time (e.g. datagram channels).</p>
+     *
+     * <p>Releasing early does not guarantee that the next request reuses the channel: a {@link
+     * io.netty.channel.pool.ChannelPool} performs a release issued outside of the channel's event loop asynchronously
+     * on that loop.</p>
+     *
+     * @return <code>true</code> if {@link #cleanupChannel(Channel)} is called right after the write has been queued
+     */
+    protected boolean isReleaseOnWrite() {
+        return false;
+    }
+
     /**
      * <p>Perform cleanupChannel operations on a channel after calling {@link #send(AbstractRequest, boolean)}</p>
      *
@@ -174,11 +225,7 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
         switch (type) {
             case NIO_TCP:
             case NIO_UDP:
-                if (Epoll.isAvailable()) {
-                    log.debug("Using EpollEventLoopGroup");
-                    return new EpollEventLoopGroup(8, executorService, DefaultSelectStrategyFactory.INSTANCE);
-                }
-                return new NioEventLoopGroup(8, executorService, SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE);
+                return SharedRuntime.createEventLoopGroup(8, executorService);
         }
         return null;
     }
@@ -210,8 +257,54 @@ abstract public class NettyTransport<Msg extends AbstractRequest> implements Tra
         this.eventLoopGroup = eventLoopGroup;
     }
 
+    /**
+     * @return The {@link FlushPolicy} applied to the channels of this transport
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    /**
+     * Sets when the messages written to the channels of this transport are flushed. This only applies to the channels
+     * created afterwards.
+     *
+     * @param flushPolicy
+     *         The {@link FlushPolicy} to use
+     */
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        if (flushPolicy == null)
+            throw new IllegalArgumentException("Flush policy cannot be null");
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * <p>Prepares a newly created channel, before it is used for the first time</p>
+     *
+     * @param channel
+     *         The newly created {@link Channel}
+     */
+    protected void initializeChannel(Channel channel) {
+        getChannelInitializer().initializeChannel(channel, this);
+        flushPolicy.applyTo(channel);
+    }
+
+    /**
+     * @return The {@link SharedRuntime} this transport is built on or <code>null</code> if it owns its event loops
+     */
+    public SharedRuntime getRuntime() {
+        return runtime;
+    }
+
     @Override
     public void close() throws IOException {
+        if (!closed.compareAndSet(false, true))
+            return;
+        //The event loops of a runtime are shared with other transports, only release our reference
+        if (runtime != null) {
+            log.debug("Releasing runtime of {}", this.getClass().getSimpleName());
+            runtime.release();
+            return;
+        }
         try {
             log.debug("Shutting down {} gracefully", this.getClass().getSimpleName());
             eventLoopGroup.shutdownGracefully();
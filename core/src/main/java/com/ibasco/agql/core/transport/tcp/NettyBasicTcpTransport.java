@@ -47,11 +47,10 @@ public class NettyBasicTcpTransport<M extends AbstractRequest> extends NettyTran
 
     public NettyBasicTcpTransport(ChannelType channelType) {
         super(channelType);
-        NettyTransport transport = this;
         getBootstrap().handler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) throws Exception {
-                getChannelInitializer().initializeChannel(ch, transport);
+                initializeChannel(ch);
             }
         });
     }
@@ -26,6 +26,7 @@ package com.ibasco.agql.core.transport.tcp;
 
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.enums.ChannelType;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.transport.ChannelAttributes;
 import com.ibasco.agql.core.transport.NettyPooledTransport;
 import io.netty.channel.Channel;
@@ -51,6 +52,10 @@ public class NettyPooledTcpTransport<M extends AbstractRequest> extends NettyPoo
         super(channelType);
     }
 
+    public NettyPooledTcpTransport(ChannelType channelType, SharedRuntime runtime) {
+        super(channelType, runtime);
+    }
+
     @Override
     public InetSocketAddress createKey(M message) {
         return message.recipient();
@@ -26,6 +26,7 @@ package com.ibasco.agql.core.transport.udp;
 
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.enums.ChannelType;
+import com.ibasco.agql.core.transport.FlushPolicy;
 import com.ibasco.agql.core.transport.NettyTransport;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -34,6 +35,7 @@ import io.netty.channel.socket.nio.NioDatagramChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
 public class NettyBasicUdpTransport<M extends AbstractRequest> extends NettyTransport<M> {
@@ -43,11 +45,11 @@ public class NettyBasicUdpTransport<M extends AbstractRequest> extends NettyTran
 
     public NettyBasicUdpTransport(ChannelType channelType) {
         super(channelType);
-        NettyTransport transport = this;
+        setFlushPolicy(FlushPolicy.CONSOLIDATED);
         getBootstrap().handler(new ChannelInitializer<NioDatagramChannel>() {
             @Override
             protected void initChannel(NioDatagramChannel ch) throws Exception {
-                getChannelInitializer().initializeChannel(ch, transport);
+                initializeChannel(ch);
             }
         });
     }
@@ -72,4 +74,12 @@ public class NettyBasicUdpTransport<M extends AbstractRequest> extends NettyTran
         }
         return cf;
     }
+
+    @Override
+    public void close() throws IOException {
+        //The event loops may be shared with other transports, close our own channel
+        if (channel != null)
+            channel.close();
+        super.close();
+    }
 }
@@ -0,0 +1,301 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.transport.udp;
+
+import com.ibasco.agql.core.AbstractRequest;
+import com.ibasco.agql.core.enums.ChannelType;
+import com.ibasco.agql.core.runtime.SharedRuntime;
+import com.ibasco.agql.core.transport.FlushPolicy;
+import com.ibasco.agql.core.transport.NettyTransport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.util.concurrent.EventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A udp transport which binds a fixed number of datagram sockets, each of them registered to a different event loop
+ * of the transport. The requests are spread across the sockets by hashing their recipient, so that the responses of a
+ * scan are received and decoded on every event loop instead of a single one.</p>
+ *
+ * <p>By default each socket is bound to its own ephemeral port, and the responses come back on the socket which sent
+ * the request. With <code>SO_REUSEPORT</code> (epoll only) every socket is bound to the same port and the kernel
+ * distributes the incoming datagrams across them by flow.</p>
+ *
+ * <p>The sockets are bound upon the first request, the socket settings have to be changed before that. They are kept
+ * for the lifetime of the transport and the requests are written to them directly: unlike {@link
+ * NettyPooledUdpTransport}, sending a request neither acquires nor releases a channel from a pool, and no socket is
+ * opened under load. A socket closed due to an error is replaced by a new one.</p>
+ *
+ * @param <M>
+ *         A type extending {@link AbstractRequest}
+ */
+public class NettyMultiSocketUdpTransport<M extends AbstractRequest> extends NettyTransport<M> {
+
+    private static final Logger log = LoggerFactory.getLogger(NettyMultiSocketUdpTransport.class);
+
+    private static final int REBIND_DELAY = 1;
+
+    private final List<EventLoop> eventLoops = new ArrayList<>();
+
+    private volatile int socketCount;
+
+    private volatile boolean reusePort;
+
+    private volatile CompletableFuture<Channel>[] sockets;
+
+    private CompletableFuture<CompletableFuture<Channel>[]> bindFuture;
+
+    private volatile boolean shared;
+
+    private volatile int sharedPort;
+
+    private volatile boolean closed;
+
+    public NettyMultiSocketUdpTransport(ChannelType channelType) {
+        this(channelType, null);
+    }
+
+    /**
+     * Creates a transport binding one socket per event loop of the runtime
+     *
+     * @param channelType
+     *         The {@link ChannelType} of the transport
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     */
+    public NettyMultiSocketUdpTransport(ChannelType channelType, SharedRuntime runtime) {
+        super(channelType, runtime);
+        for (EventExecutor executor : getEventLoopGroup())
+            eventLoops.add((EventLoop) executor);
+        this.socketCount = eventLoops.size();
+        setFlushPolicy(FlushPolicy.CONSOLIDATED);
+        getBootstrap().handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                initializeChannel(ch);
+            }
+        });
+    }
+
+    /**
+     * @return The number of sockets bound by this transport
+     */
+    public int getSocketCount() {
+        return socketCount;
+    }
+
+    /**
+     * Sets the number of sockets to bind. The sockets are assigned to the event loops of the transport in a
+     * round-robin fashion.
+     *
+     * @param socketCount
+     *         A positive number, typically the number of event loops
+     *
+     * @throws IllegalStateException
+     *         If the sockets have already been bound
+     */
+    public void setSocketCount(int socketCount) {
+        if (socketCount < 1)
+            throw new IllegalArgumentException("The number of sockets must be greater than zero");
+        checkNotBound();
+        this.socketCount = socketCount;
+    }
+
+    /**
+     * @return <code>true</code> if the sockets share the same port with <code>SO_REUSEPORT</code>
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    /**
+     * Binds every socket to the same port with <code>SO_REUSEPORT</code>, instead of a distinct ephemeral port each.
+     * This is only supported by the epoll transport, distinct ports are used otherwise.
+     *
+     * @param reusePort
+     *         <code>true</code> to share the same port
+     *
+     * @throws IllegalStateException
+     *         If the sockets have already been bound
+     */
+    public void setReusePort(boolean reusePort) {
+        checkNotBound();
+        this.reusePort = reusePort;
+    }
+
+    private synchronized void checkNotBound() {
+        if (bindFuture != null)
+            throw new IllegalStateException("The sockets of the transport have already been bound");
+    }
+
+    /**
+     * <p>Returns the socket sending the request, binding the sockets first if needed. Requests of the same recipient
+     * always go through the same socket.</p>
+     *
+     * @param message
+     *         The request to be sent
+     *
+     * @return An already completed {@link CompletableFuture} once the sockets are bound, which is shared by every
+     * request going through the same socket
+     */
+    @Override
+    public CompletableFuture<Channel> getChannel(M message) {
+        final CompletableFuture<Channel>[] sockets = this.sockets;
+        if (sockets != null)
+            return sockets[indexOf(message, sockets.length)];
+        return bindSockets().thenCompose(s -> s[indexOf(message, s.length)]);
+    }
+
+    private int indexOf(M message, int socketCount) {
+        final InetSocketAddress recipient = message.recipient();
+        final int hash = (recipient != null) ? recipient.hashCode() : 0;
+        return (hash & Integer.MAX_VALUE) % socketCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized CompletableFuture<CompletableFuture<Channel>[]> bindSockets() {
+        if (bindFuture != null)
+            return bindFuture;
+        if (closed) {
+            final CompletableFuture<CompletableFuture<Channel>[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("Transport has been closed"));
+            return failed;
+        }
+        shared = reusePort && Epoll.isAvailable();
+        if (reusePort && !shared)
+            log.warn("SO_REUSEPORT requires the epoll transport, binding the sockets to distinct ports instead");
+        final CompletableFuture<CompletableFuture<Channel>[]> future = new CompletableFuture<>();
+        bindFuture = future;
+        bindSockets(new CompletableFuture[socketCount], 0, future);
+        return future;
+    }
+
+    /**
+     * Binds the sockets one after the other, with <code>SO_REUSEPORT</code> the first one picks the port shared by
+     * the others
+     */
+    private void bindSockets(CompletableFuture<Channel>[] bound, int index, CompletableFuture<CompletableFuture<Channel>[]> future) {
+        bindSocket(index).addListener((ChannelFuture f) -> {
+            if (!f.isSuccess()) {
+                log.debug("Unable to bind socket #{}", index, f.cause());
+                for (int i = 0; i < index; i++)
+                    bound[i].join().close();
+                synchronized (this) {
+                    bindFuture = null;
+                }
+                future.completeExceptionally(f.cause());
+                return;
+            }
+            if (index == 0)
+                sharedPort = ((InetSocketAddress) f.channel().localAddress()).getPort();
+            bound[index] = CompletableFuture.completedFuture(f.channel());
+            if (index + 1 < bound.length) {
+                bindSockets(bound, index + 1, future);
+                return;
+            }
+            log.debug("Bound {} socket(s) (SO_REUSEPORT: {})", bound.length, shared);
+            sockets = bound;
+            for (int i = 0; i < bound.length; i++)
+                replaceOnClose(bound[i].join(), i);
+            //The transport may have been closed in the meantime
+            if (closed)
+                closeSockets();
+            future.complete(bound);
+        });
+    }
+
+    private ChannelFuture bindSocket(int index) {
+        final Bootstrap bootstrap = getBootstrap().clone(eventLoops.get(index % eventLoops.size()));
+        if (shared)
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        return bootstrap.bind(new InetSocketAddress(shared ? sharedPort : 0));
+    }
+
+    /**
+     * The sockets live as long as the transport, a socket closed due to an error is replaced by a new one on the same
+     * event loop
+     */
+    private void replaceOnClose(Channel channel, int index) {
+        channel.closeFuture().addListener(f -> {
+            if (closed)
+                return;
+            log.debug("Socket #{} has been closed, binding a new one", index);
+            rebindSocket(index);
+        });
+    }
+
+    private void rebindSocket(int index) {
+        bindSocket(index).addListener((ChannelFuture f) -> {
+            if (!f.isSuccess()) {
+                log.warn("Unable to bind a new socket #{}, retrying in {} second(s)", index, REBIND_DELAY, f.cause());
+                try {
+                    if (!closed)
+                        eventLoops.get(index % eventLoops.size()).schedule(() -> rebindSocket(index), REBIND_DELAY, TimeUnit.SECONDS);
+                } catch (RejectedExecutionException e) {
+                    log.debug("Event loop has been shutdown, socket #{} will not be replaced", index);
+                }
+                return;
+            }
+            synchronized (this) {
+                final CompletableFuture<Channel>[] sockets = this.sockets.clone();
+                sockets[index] = CompletableFuture.completedFuture(f.channel());
+                this.sockets = sockets;
+            }
+            replaceOnClose(f.channel(), index);
+            if (closed)
+                f.channel().close();
+        });
+    }
+
+    private void closeSockets() {
+        final CompletableFuture<Channel>[] sockets = this.sockets;
+        if (sockets == null)
+            return;
+        for (CompletableFuture<Channel> socket : sockets)
+            socket.join().close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        closeSockets();
+        super.close();
+    }
+}
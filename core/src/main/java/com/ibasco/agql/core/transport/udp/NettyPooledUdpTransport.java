@@ -26,6 +26,8 @@ package com.ibasco.agql.core.transport.udp;
 
 import com.ibasco.agql.core.AbstractRequest;
 import com.ibasco.agql.core.enums.ChannelType;
+import com.ibasco.agql.core.runtime.SharedRuntime;
+import com.ibasco.agql.core.transport.FlushPolicy;
 import com.ibasco.agql.core.transport.NettyPooledTransport;
 import com.ibasco.agql.core.transport.pool.ConnectionlessChannelPool;
 import io.netty.channel.pool.ChannelPool;
@@ -33,15 +35,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A pooled udp transport implementation
+ * <p>A pooled udp transport implementation</p>
+ *
+ * <p>Writes are flushed with the {@link FlushPolicy#CONSOLIDATED} policy by default, and channels are handed back to
+ * their pool as soon as a datagram has been written to them.</p>
+ *
+ * <p>Note: Handing a channel back only makes it available to the next request right away when the request is sent
+ * from the channel's own event loop. From any other thread the pool posts the release to the event loop while the
+ * next acquire polls the pool immediately, so a burst sent from an application thread usually spreads over several
+ * sockets. Each request also goes through a pool round trip, and a new socket is bound whenever the pool has no idle
+ * channel left. {@link NettyMultiSocketUdpTransport} keeps a fixed set of sockets instead.</p>
  *
  * @param <M> A type extending {@link AbstractRequest}
+ * @see NettyMultiSocketUdpTransport
  */
 public class NettyPooledUdpTransport<M extends AbstractRequest> extends NettyPooledTransport<M, Class<?>> {
     private static final Logger log = LoggerFactory.getLogger(NettyPooledUdpTransport.class);
 
     public NettyPooledUdpTransport(ChannelType channelType) {
-        super(channelType);
+        this(channelType, null);
+    }
+
+    public NettyPooledUdpTransport(ChannelType channelType, SharedRuntime runtime) {
+        super(channelType, runtime);
+        setFlushPolicy(FlushPolicy.CONSOLIDATED);
+    }
+
+    /**
+     * Datagram channels are not bound to a recipient, the channel can serve other requests while the write is pending
+     *
+     * @return Always <code>true</code>
+     */
+    @Override
+    protected boolean isReleaseOnWrite() {
+        return true;
     }
 
     @Override
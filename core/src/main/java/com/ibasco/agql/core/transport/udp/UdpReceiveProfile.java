@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.transport.udp;
+
+import com.ibasco.agql.core.transport.NettyTransport;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * <p>The settings governing how datagrams are read from the socket of a UDP transport.</p>
+ *
+ * <p>Each time the socket becomes readable, the event loop reads datagrams until the socket is drained or the
+ * maximum number of messages per read is reached, then goes back to waiting for readiness. Raising that limit lets a
+ * burst of responses be consumed in a single read cycle instead of one wake-up per handful of datagrams, and a larger
+ * socket receive buffer absorbs the bursts arriving while the event loop is busy decoding, instead of the kernel
+ * dropping them.</p>
+ *
+ * <p>Note: The kernel caps the receive buffer to <code>net.core.rmem_max</code>, which has to be raised for the larger
+ * buffers to take effect.</p>
+ *
+ * @see #HIGH_THROUGHPUT
+ */
+public final class UdpReceiveProfile {
+
+    /**
+     * The largest datagram sent by Source servers, larger responses are split into several packets. Messengers
+     * expecting larger datagrams keep their own size when a profile is applied, see {@link
+     * com.ibasco.agql.core.messenger.GameServerMessenger#getMinDatagramSize()}
+     */
+    public static final int DEFAULT_DATAGRAM_SIZE = 1400;
+
+    /**
+     * Suitable for occasional queries: 1 MiB receive buffer, up to 16 datagrams per read cycle
+     */
+    public static final UdpReceiveProfile DEFAULT = new UdpReceiveProfile(1048576, 16, DEFAULT_DATAGRAM_SIZE);
+
+    /**
+     * Suitable for scanning a large number of servers (tens of thousands of responses per second): 8 MiB receive
+     * buffer, up to 256 datagrams per read cycle
+     */
+    public static final UdpReceiveProfile HIGH_THROUGHPUT = new UdpReceiveProfile(1048576 * 8, 256, DEFAULT_DATAGRAM_SIZE);
+
+    private final int receiveBufferSize;
+
+    private final int maxMessagesPerRead;
+
+    private final int maxDatagramSize;
+
+    /**
+     * @param receiveBufferSize
+     *         The size (in bytes) of the socket receive buffer (SO_RCVBUF)
+     * @param maxMessagesPerRead
+     *         The maximum number of datagrams read each time the socket becomes readable
+     * @param maxDatagramSize
+     *         The size (in bytes) of the buffer allocated for each datagram, larger datagrams are truncated
+     */
+    public UdpReceiveProfile(int receiveBufferSize, int maxMessagesPerRead, int maxDatagramSize) {
+        if (receiveBufferSize <= 0 || maxMessagesPerRead <= 0 || maxDatagramSize <= 0)
+            throw new IllegalArgumentException("Receive buffer size, max messages per read and max datagram size must be greater than zero");
+        this.receiveBufferSize = receiveBufferSize;
+        this.maxMessagesPerRead = maxMessagesPerRead;
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getMaxMessagesPerRead() {
+        return maxMessagesPerRead;
+    }
+
+    public int getMaxDatagramSize() {
+        return maxDatagramSize;
+    }
+
+    /**
+     * @param maxDatagramSize
+     *         The size (in bytes) of the buffer allocated for each datagram
+     *
+     * @return A profile with the same settings as this one, except for the size of the datagrams
+     */
+    public UdpReceiveProfile withDatagramSize(int maxDatagramSize) {
+        if (maxDatagramSize == this.maxDatagramSize)
+            return this;
+        return new UdpReceiveProfile(receiveBufferSize, maxMessagesPerRead, maxDatagramSize);
+    }
+
+    /**
+     * Applies this profile to the channels subsequently created by the transport
+     *
+     * @param transport
+     *         The UDP {@link NettyTransport} to configure
+     */
+    public void applyTo(NettyTransport<?> transport) {
+        transport.addChannelOption(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        transport.addChannelOption(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize).maxMessagesPerRead(maxMessagesPerRead));
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.NO_CLASS_NAME_STYLE)
+                .append("ReceiveBufferSize", receiveBufferSize)
+                .append("MaxMessagesPerRead", maxMessagesPerRead)
+                .append("MaxDatagramSize", maxDatagramSize)
+                .toString();
+    }
+}
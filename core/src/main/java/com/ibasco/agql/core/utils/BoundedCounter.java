@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.core.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>A counter with an upper limit which can be changed at runtime. Acquiring and releasing is lock-free, a lock is
+ * only taken when a thread has to wait for a slot to become available.</p>
+ */
+public class BoundedCounter {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private volatile int limit;
+
+    /**
+     * @param limit
+     *         The maximum value of the counter
+     */
+    public BoundedCounter(int limit) {
+        setLimit(limit);
+    }
+
+    /**
+     * Increments the counter if the limit has not yet been reached
+     *
+     * @return <code>true</code> if the counter has been incremented
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            final int current = count.get();
+            if (current >= limit)
+                return false;
+            if (count.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Increments the counter regardless of the limit. Used for work which has already been admitted once and must not
+     * be turned away (e.g. retries).
+     */
+    public void forceAcquire() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * Increments the counter, waiting for a slot to become available if the limit has been reached.
+     *
+     * @param timeout
+     *         The maximum time to wait
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @return <code>true</code> if the counter has been incremented, <code>false</code> if the waiting time elapsed
+     *
+     * @throws InterruptedException
+     *         When the current thread is interrupted while waiting
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryAcquire())
+            return true;
+        long remaining = unit.toNanos(timeout);
+        waiters.incrementAndGet();
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (!tryAcquire()) {
+                    if (remaining <= 0)
+                        return false;
+                    remaining = available.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Decrements the counter and wakes up one of the waiting threads (if any)
+     *
+     * @return The value of the counter after the release
+     */
+    public int release() {
+        final int current = count.decrementAndGet();
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return <code>true</code> if the counter is below its limit
+     */
+    public boolean hasCapacity() {
+        return count.get() < limit;
+    }
+
+    /**
+     * @return The current value of the counter
+     */
+    public int get() {
+        return count.get();
+    }
+
+    /**
+     * @return The maximum value of the counter
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Changes the maximum value of the counter. Waiting threads are notified in case the limit has been raised.
+     *
+     * @param limit
+     *         The new limit, must be greater than zero
+     */
+    public void setLimit(int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        this.limit = limit;
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
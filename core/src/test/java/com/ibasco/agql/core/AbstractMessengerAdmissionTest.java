@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core;
+
+import com.ibasco.agql.core.enums.AdmissionPolicy;
+import com.ibasco.agql.core.enums.RequestPriority;
+import com.ibasco.agql.core.exceptions.DeadlineExceededException;
+import com.ibasco.agql.core.exceptions.RequestRejectedException;
+import io.netty.channel.DefaultEventLoop;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AbstractMessengerAdmissionTest {
+
+    private static final long WAIT_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    private MockMessenger messenger;
+
+    private DefaultEventLoop eventLoop;
+
+    @After
+    public void tearDown() throws Exception {
+        if (messenger != null)
+            messenger.close();
+        if (eventLoop != null)
+            eventLoop.shutdownGracefully(0, 0, TimeUnit.SECONDS).await(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a messenger holding a single request in-flight (the transport never replies) and at most the specified
+     * number of requests in its queue
+     */
+    private MockMessenger createMessenger(AdmissionPolicy policy, int maxQueueDepth) throws InterruptedException {
+        return setup(new MockMessenger(), policy, maxQueueDepth);
+    }
+
+    private MockMessenger setup(MockMessenger messenger, AdmissionPolicy policy, int maxQueueDepth) throws InterruptedException {
+        this.messenger = messenger;
+        messenger.setMaxInFlight(1);
+        messenger.setMaxQueueDepth(maxQueueDepth);
+        messenger.setAdmissionPolicy(policy);
+        //Occupy the only in-flight slot so that subsequent requests remain in the queue
+        messenger.send(new MockRequest(address(0)));
+        final long start = System.nanoTime();
+        while (messenger.getInFlightCount() < 1 || messenger.getQueueDepth() > 0) {
+            if (System.nanoTime() - start > WAIT_TIMEOUT)
+                fail("The first request has not been dispatched");
+            Thread.sleep(1);
+        }
+        return messenger;
+    }
+
+    private static InetSocketAddress address(int index) {
+        return new InetSocketAddress("127.0.0.1", 27015 + index);
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (java.util.concurrent.TimeoutException e) {
+            fail("Future has not been completed");
+        }
+        fail("Future has been completed normally");
+        return null;
+    }
+
+    @Test
+    public void testFailFastRejectsWhenFull() throws Exception {
+        createMessenger(AdmissionPolicy.FAIL_FAST, 1);
+        final CompletableFuture<MockResponse> queued = messenger.send(new MockRequest(address(1)));
+        final CompletableFuture<MockResponse> rejected = messenger.send(new MockRequest(address(2)));
+        assertTrue(failure(rejected) instanceof RequestRejectedException);
+        assertFalse(queued.isDone());
+        assertEquals(1, messenger.getQueueDepth());
+    }
+
+    @Test
+    public void testDropLowestPriorityEvictsFromTail() throws Exception {
+        createMessenger(AdmissionPolicy.DROP_LOWEST_PRIORITY, 2);
+        final CompletableFuture<MockResponse> oldest = messenger.send(new MockRequest(address(1)), RequestPriority.LOW);
+        final CompletableFuture<MockResponse> newest = messenger.send(new MockRequest(address(2)), RequestPriority.LOW);
+        final CompletableFuture<MockResponse> high = messenger.send(new MockRequest(address(3)), RequestPriority.HIGH);
+        assertTrue(failure(newest) instanceof RequestRejectedException);
+        assertFalse(oldest.isDone());
+        assertFalse(high.isDone());
+        assertEquals(2, messenger.getQueueDepth());
+        assertEquals(1, messenger.getRequestScheduler().size(RequestPriority.LOW));
+        assertEquals(1, messenger.getRequestScheduler().size(RequestPriority.HIGH));
+    }
+
+    @Test
+    public void testDropLowestPriorityRejectsWithoutLowerPriority() throws Exception {
+        createMessenger(AdmissionPolicy.DROP_LOWEST_PRIORITY, 1);
+        final CompletableFuture<MockResponse> queued = messenger.send(new MockRequest(address(1)), RequestPriority.MEDIUM);
+        final CompletableFuture<MockResponse> rejected = messenger.send(new MockRequest(address(2)), RequestPriority.MEDIUM);
+        assertTrue(failure(rejected) instanceof RequestRejectedException);
+        assertFalse(queued.isDone());
+        assertEquals(1, messenger.getQueueDepth());
+    }
+
+    @Test
+    public void testAwaitTimesOutWithDeadline() throws Exception {
+        createMessenger(AdmissionPolicy.AWAIT, 1);
+        messenger.send(new MockRequest(address(1)));
+        final long start = System.nanoTime();
+        final CompletableFuture<MockResponse> expired = messenger.send(new MockRequest(address(2)), RequestPriority.MEDIUM, 50, TimeUnit.MILLISECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(failure(expired) instanceof DeadlineExceededException);
+        assertEquals(1, messenger.getQueueDepth());
+    }
+
+    @Test
+    public void testAwaitAdmittedOnceLimitIsRaised() throws Exception {
+        createMessenger(AdmissionPolicy.AWAIT, 1);
+        messenger.send(new MockRequest(address(1)));
+        final CompletableFuture<CompletableFuture<MockResponse>> waiting = CompletableFuture.supplyAsync(() -> messenger.send(new MockRequest(address(2)), RequestPriority.MEDIUM, 10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+        messenger.setMaxQueueDepth(2);
+        final CompletableFuture<MockResponse> admitted = waiting.get(5, TimeUnit.SECONDS);
+        assertFalse(admitted.isDone());
+        assertEquals(2, messenger.getQueueDepth());
+    }
+
+    @Test
+    public void testAwaitDefersOnEventLoop() throws Exception {
+        eventLoop = new DefaultEventLoop();
+        setup(new MockMessenger(eventLoop), AdmissionPolicy.AWAIT, 1);
+        messenger.send(new MockRequest(address(1)));
+        //Must return immediately instead of blocking the event loop
+        final CompletableFuture<MockResponse> deferred = eventLoop.submit(() -> messenger.send(new MockRequest(address(2)), RequestPriority.MEDIUM, 10, TimeUnit.SECONDS)).get(1, TimeUnit.SECONDS);
+        assertFalse(deferred.isDone());
+        assertEquals(1, messenger.getQueueDepth());
+        messenger.setMaxQueueDepth(2);
+        assertEquals(2, messenger.getQueueDepth());
+        assertFalse(deferred.isDone());
+    }
+
+    @Test
+    public void testDeferredAdmissionExpires() throws Exception {
+        eventLoop = new DefaultEventLoop();
+        setup(new MockMessenger(eventLoop), AdmissionPolicy.AWAIT, 1);
+        messenger.send(new MockRequest(address(1)));
+        final CompletableFuture<MockResponse> deferred = eventLoop.submit(() -> messenger.send(new MockRequest(address(2)), RequestPriority.MEDIUM, 50, TimeUnit.MILLISECONDS)).get(1, TimeUnit.SECONDS);
+        assertTrue(failure(deferred) instanceof DeadlineExceededException);
+        messenger.setMaxQueueDepth(2);
+        assertEquals(1, messenger.getQueueDepth());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core;
+
+import com.ibasco.agql.core.enums.RequestPriority;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AbstractMessengerCoalescingTest {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 27015);
+
+    private MockMessenger messenger;
+
+    @Before
+    public void setUp() {
+        messenger = new MockMessenger();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        messenger.close();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(messenger.isCoalescing(MockRequest.class));
+        final CompletableFuture<MockResponse> first = messenger.send(new MockRequest(ADDRESS));
+        final CompletableFuture<MockResponse> second = messenger.send(new MockRequest(ADDRESS));
+        assertNotSame(first, second);
+        assertEquals(0, messenger.getCoalescedCount());
+    }
+
+    @Test
+    public void testIdenticalRequestsAreCoalesced() {
+        messenger.setCoalescing(MockRequest.class, true);
+        assertTrue(messenger.isCoalescing(MockRequest.class));
+        final CompletableFuture<MockResponse> first = messenger.send(new MockRequest(ADDRESS), RequestPriority.HIGH, 1, TimeUnit.SECONDS);
+        final CompletableFuture<MockResponse> second = messenger.send(new MockRequest(ADDRESS), RequestPriority.HIGH, 1, TimeUnit.SECONDS);
+        assertNotSame(first, second);
+        assertEquals(1, messenger.getCoalescedCount());
+    }
+
+    @Test
+    public void testKeyedByPriorityAndTimeout() {
+        messenger.setCoalescing(MockRequest.class, true);
+        messenger.send(new MockRequest(ADDRESS), RequestPriority.LOW, 1, TimeUnit.SECONDS);
+        messenger.send(new MockRequest(ADDRESS), RequestPriority.REALTIME, 1, TimeUnit.SECONDS);
+        messenger.send(new MockRequest(ADDRESS), RequestPriority.LOW, 2, TimeUnit.SECONDS);
+        messenger.send(new MockRequest(new InetSocketAddress("127.0.0.1", 27016)), RequestPriority.LOW, 1, TimeUnit.SECONDS);
+        assertEquals(0, messenger.getCoalescedCount());
+        messenger.send(new MockRequest(ADDRESS), RequestPriority.LOW, 1000, TimeUnit.MILLISECONDS);
+        assertEquals(1, messenger.getCoalescedCount());
+    }
+
+    @Test
+    public void testDisablingStopsCoalescing() {
+        messenger.setCoalescing(MockRequest.class, true);
+        messenger.setCoalescing(MockRequest.class, false);
+        messenger.send(new MockRequest(ADDRESS));
+        messenger.send(new MockRequest(ADDRESS));
+        assertEquals(0, messenger.getCoalescedCount());
+    }
+}
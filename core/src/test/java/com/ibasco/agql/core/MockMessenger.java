@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core;
+
+import com.ibasco.agql.core.enums.ProcessingMode;
+import com.ibasco.agql.core.session.ConcurrentSessionManager;
+import com.ibasco.agql.core.session.DefaultSessionIdFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A messenger whose transport never replies, requests remain in-flight until their session expires
+ */
+public class MockMessenger extends AbstractMessenger<MockRequest, MockResponse> {
+
+    public MockMessenger() {
+        super(ProcessingMode.ASYNCHRONOUS);
+        setRateLimiter(null);
+    }
+
+    public MockMessenger(ScheduledExecutorService executorService) {
+        super(new ConcurrentSessionManager<>(new DefaultSessionIdFactory()), ProcessingMode.ASYNCHRONOUS, 16, executorService);
+        setRateLimiter(null);
+    }
+
+    @Override
+    protected Transport<MockRequest> createTransportService() {
+        return new Transport<MockRequest>() {
+            @Override
+            public <V> CompletableFuture<V> send(MockRequest data) {
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void configureMappings(Map<Class<? extends MockRequest>, Class<? extends MockResponse>> map) {
+        map.put(MockRequest.class, MockResponse.class);
+    }
+}
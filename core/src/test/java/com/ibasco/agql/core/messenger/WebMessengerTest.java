@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.messenger;
+
+import io.netty.handler.codec.http.cookie.DefaultCookie;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.uri.Uri;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WebMessengerTest {
+
+    @Test
+    public void testNormalizeUrl() {
+        assertEquals("http://api.x.com:80/p?a=9&a=3&b=2&b=1", WebMessenger.normalizeUrl(Uri.create("HTTP://Api.X.com/p?b=2&a=9&b=1&a=3")));
+        assertEquals("https://api.x.com:443/", WebMessenger.normalizeUrl(Uri.create("https://api.x.com")));
+        assertEquals("https://api.x.com:8443/p", WebMessenger.normalizeUrl(Uri.create("https://api.x.com:8443/p")));
+    }
+
+    @Test
+    public void testNormalizeUrlIgnoresParameterOrder() {
+        assertEquals(WebMessenger.normalizeUrl(Uri.create("http://api.x.com/p?key=1&appid=2")),
+                     WebMessenger.normalizeUrl(Uri.create("http://api.x.com:80/p?appid=2&key=1")));
+        assertNotEquals(WebMessenger.normalizeUrl(Uri.create("http://api.x.com/p?a=1&a=2")),
+                        WebMessenger.normalizeUrl(Uri.create("http://api.x.com/p?a=2&a=1")));
+    }
+
+    @Test
+    public void testCoalescingKeyWithHeaders() {
+        final Request request = new RequestBuilder("GET").setUrl("HTTP://Api.X.com/p?b=2&a=9&b=1&a=3")
+                                                         .addHeader("Authorization", "k1")
+                                                         .addHeader("Accept-Language", "de")
+                                                         .build();
+        assertEquals("http://api.x.com:80/p?a=9&a=3&b=2&b=1\naccept-language: de\nauthorization: k1", WebMessenger.coalescingKey(request));
+    }
+
+    @Test
+    public void testCoalescingKeyDistinguishesCredentials() {
+        final String first = WebMessenger.coalescingKey(new RequestBuilder("GET").setUrl("http://api.x.com/p").addHeader("Authorization", "k1").build());
+        final String second = WebMessenger.coalescingKey(new RequestBuilder("GET").setUrl("http://api.x.com/p").addHeader("Authorization", "k2").build());
+        final String anonymous = WebMessenger.coalescingKey(new RequestBuilder("GET").setUrl("http://api.x.com/p").build());
+        assertNotEquals(first, second);
+        assertNotEquals(first, anonymous);
+        assertEquals("http://api.x.com:80/p", anonymous);
+    }
+
+    @Test
+    public void testCoalescingKeyWithCookies() {
+        final Request request = new RequestBuilder("GET").setUrl("http://api.x.com/p")
+                                                         .addCookie(new DefaultCookie("session", "abc"))
+                                                         .build();
+        final String key = WebMessenger.coalescingKey(request);
+        assertTrue(key, key.startsWith("http://api.x.com:80/p\n"));
+        assertTrue(key, key.endsWith("\ncookie: session=abc"));
+        final Request other = new RequestBuilder("GET").setUrl("http://api.x.com/p")
+                                                       .addCookie(new DefaultCookie("session", "def"))
+                                                       .build();
+        assertNotEquals(key, WebMessenger.coalescingKey(other));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.messenger.coalescing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+
+    @Test
+    public void testIdenticalRequestsShareOneSend() throws Exception {
+        final AtomicInteger sent = new AtomicInteger();
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        final CompletableFuture<String> first = coalescer.coalesce("key", () -> {
+            sent.incrementAndGet();
+            return response;
+        });
+        final CompletableFuture<String> second = coalescer.coalesce("key", () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertEquals(1, sent.get());
+        assertNotSame(first, second);
+        assertEquals(1, coalescer.getPendingCount());
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertFalse(first.isDone());
+
+        response.complete("pong");
+        assertEquals("pong", first.get());
+        assertEquals("pong", second.get());
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    public void testDistinctKeysAreNotShared() {
+        final AtomicInteger sent = new AtomicInteger();
+        coalescer.coalesce("a", () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        coalescer.coalesce("b", () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertEquals(2, sent.get());
+        assertEquals(2, coalescer.getPendingCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testNewSendOnceCompleted() throws Exception {
+        final AtomicInteger sent = new AtomicInteger();
+        assertEquals("1", coalescer.coalesce("key", () -> CompletableFuture.completedFuture(String.valueOf(sent.incrementAndGet()))).get());
+        assertEquals("2", coalescer.coalesce("key", () -> CompletableFuture.completedFuture(String.valueOf(sent.incrementAndGet()))).get());
+        assertEquals(0, coalescer.getCoalescedCount());
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    public void testFailureIsPropagatedToAll() throws Exception {
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        final CompletableFuture<String> first = coalescer.coalesce("key", () -> response);
+        final CompletableFuture<String> second = coalescer.coalesce("key", CompletableFuture::new);
+        final IllegalStateException error = new IllegalStateException("failed");
+        response.completeExceptionally(error);
+        for (CompletableFuture<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get();
+                fail("Expected a failure");
+            } catch (ExecutionException e) {
+                assertSame(error, e.getCause());
+            }
+        }
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    public void testCancellingOneCallerDoesNotAffectOthers() throws Exception {
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        final CompletableFuture<String> first = coalescer.coalesce("key", () -> response);
+        final CompletableFuture<String> second = coalescer.coalesce("key", CompletableFuture::new);
+        assertTrue(first.cancel(false));
+        assertFalse(response.isDone());
+        response.complete("pong");
+        assertEquals("pong", second.get());
+        assertTrue(first.isCancelled());
+    }
+
+    @Test
+    public void testSenderExceptionClearsPending() {
+        try {
+            coalescer.coalesce("key", () -> {
+                throw new IllegalStateException("failed");
+            });
+            fail("Expected the exception of the sender to be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(0, coalescer.getPendingCount());
+        assertNull(coalescer.attach("key"));
+    }
+
+    @Test
+    public void testTrackAndAttach() throws Exception {
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        assertNull(coalescer.attach("key"));
+        assertTrue(coalescer.track("key", response));
+        assertFalse(coalescer.track("key", new CompletableFuture<>()));
+        final CompletableFuture<String> attached = coalescer.attach("key");
+        assertNotNull(attached);
+        assertEquals(1, coalescer.getCoalescedCount());
+        response.complete("pong");
+        assertEquals("pong", attached.get());
+        assertNull(coalescer.attach("key"));
+    }
+}
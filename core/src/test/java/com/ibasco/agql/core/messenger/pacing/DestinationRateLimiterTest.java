@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.messenger.pacing;
+
+import com.ibasco.agql.core.enums.PacingKey;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DestinationRateLimiterTest {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 27015);
+
+    private static final long TOLERANCE = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void testInterval() {
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), new DestinationRateLimiter().getIntervalNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), new DestinationRateLimiter(2, 1, PacingKey.ADDRESS).getIntervalNanos());
+    }
+
+    @Test
+    public void testBurstThenPaced() {
+        final DestinationRateLimiter limiter = new DestinationRateLimiter(1, 3, PacingKey.ADDRESS);
+        final long interval = limiter.getIntervalNanos();
+        //The burst is admitted without delay
+        for (int i = 0; i < 3; i++)
+            assertEquals(0, limiter.reserve(ADDRESS));
+        //Subsequent requests are spaced by one interval each
+        final long fourth = limiter.reserve(ADDRESS);
+        final long fifth = limiter.reserve(ADDRESS);
+        assertTrue("Delay: " + fourth, fourth > interval - TOLERANCE && fourth <= interval);
+        assertTrue("Delay: " + fifth, fifth > 2 * interval - TOLERANCE && fifth <= 2 * interval);
+    }
+
+    @Test
+    public void testIdleBucketDoesNotAccumulateBeyondBurst() throws InterruptedException {
+        final DestinationRateLimiter limiter = new DestinationRateLimiter(100, 1, PacingKey.ADDRESS);
+        final long interval = limiter.getIntervalNanos();
+        assertEquals(0, limiter.reserve(ADDRESS));
+        assertTrue(limiter.reserve(ADDRESS) > 0);
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(interval * 5));
+        assertEquals(0, limiter.reserve(ADDRESS));
+        final long delay = limiter.reserve(ADDRESS);
+        assertTrue("Delay: " + delay, delay > 0 && delay <= interval);
+    }
+
+    @Test
+    public void testPacingKey() {
+        final InetSocketAddress otherPort = new InetSocketAddress("127.0.0.1", 27016);
+        final DestinationRateLimiter perAddress = new DestinationRateLimiter(1, 1, PacingKey.ADDRESS);
+        assertEquals(0, perAddress.reserve(ADDRESS));
+        assertEquals(0, perAddress.reserve(otherPort));
+        assertEquals(2, perAddress.size());
+
+        final DestinationRateLimiter perHost = new DestinationRateLimiter(1, 1, PacingKey.HOST);
+        assertEquals(PacingKey.HOST, perHost.getPacingKey());
+        assertEquals(0, perHost.reserve(ADDRESS));
+        assertTrue(perHost.reserve(otherPort) > 0);
+        assertEquals(1, perHost.size());
+    }
+
+    @Test
+    public void testNullDestination() {
+        final DestinationRateLimiter limiter = new DestinationRateLimiter(1, 1, null);
+        assertEquals(PacingKey.ADDRESS, limiter.getPacingKey());
+        assertEquals(0, limiter.reserve(null));
+        assertEquals(0, limiter.reserve(null));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new DestinationRateLimiter(0, 1, PacingKey.ADDRESS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBurst() {
+        new DestinationRateLimiter(1, 0, PacingKey.ADDRESS);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.messenger.retry;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testCanRetry() {
+        final RetryPolicy policy = new RetryPolicy(3, 100, TimeUnit.MILLISECONDS);
+        assertTrue(policy.canRetry(1));
+        assertTrue(policy.canRetry(2));
+        assertFalse(policy.canRetry(3));
+        assertFalse(new RetryPolicy(1, 0, TimeUnit.MILLISECONDS).canRetry(1));
+    }
+
+    @Test
+    public void testExponentialBackoffWithoutJitter() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000, TimeUnit.MILLISECONDS, 2.0, 0);
+        assertEquals(100 * MILLIS, policy.getBackoff(0));
+        assertEquals(100 * MILLIS, policy.getBackoff(1));
+        assertEquals(200 * MILLIS, policy.getBackoff(2));
+        assertEquals(400 * MILLIS, policy.getBackoff(3));
+        assertEquals(800 * MILLIS, policy.getBackoff(4));
+        //Capped at the maximum backoff
+        assertEquals(1000 * MILLIS, policy.getBackoff(5));
+        assertEquals(1000 * MILLIS, policy.getBackoff(100));
+    }
+
+    @Test
+    public void testJitterBounds() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000, TimeUnit.MILLISECONDS, 2.0, 0.5);
+        for (int i = 0; i < 1000; i++) {
+            for (int retry = 1; retry <= 6; retry++) {
+                final long upper = Math.min(1000, 100L << (retry - 1)) * MILLIS;
+                final long backoff = policy.getBackoff(retry);
+                assertTrue("Backoff: " + backoff, backoff >= upper / 2 && backoff <= upper);
+            }
+        }
+    }
+
+    @Test
+    public void testDefaults() {
+        final RetryPolicy policy = new RetryPolicy(3, 100, TimeUnit.MILLISECONDS);
+        assertEquals(100 * MILLIS, policy.getInitialBackoff());
+        assertEquals(RetryPolicy.DEFAULT_MAX_BACKOFF, policy.getMaxBackoff());
+        assertEquals(RetryPolicy.DEFAULT_MULTIPLIER, policy.getMultiplier(), 0);
+        assertEquals(RetryPolicy.DEFAULT_JITTER, policy.getJitter(), 0);
+        //The maximum is raised to the initial backoff if needed
+        assertEquals(TimeUnit.SECONDS.toNanos(30), new RetryPolicy(3, 30, TimeUnit.SECONDS).getMaxBackoff());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAttempts() {
+        new RetryPolicy(0, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxBelowInitial() {
+        new RetryPolicy(3, 100, 50, TimeUnit.MILLISECONDS, 2.0, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMultiplier() {
+        new RetryPolicy(3, 100, 1000, TimeUnit.MILLISECONDS, 0.5, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJitter() {
+        new RetryPolicy(3, 100, 1000, TimeUnit.MILLISECONDS, 2.0, 1.5);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.messenger.scheduling;
+
+import com.ibasco.agql.core.MockRequest;
+import com.ibasco.agql.core.MockResponse;
+import com.ibasco.agql.core.RequestDetails;
+import com.ibasco.agql.core.enums.RequestPriority;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RequestSchedulerTest {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 27015);
+
+    private RequestScheduler<MockRequest, MockResponse> scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new RequestScheduler<>();
+        scheduler.setAgingInterval(0, TimeUnit.NANOSECONDS);
+    }
+
+    private static RequestDetails<MockRequest, MockResponse> details(RequestPriority priority) {
+        return new RequestDetails<>(new MockRequest(ADDRESS), new CompletableFuture<>(), priority, null);
+    }
+
+    @Test
+    public void testFifoWithinPriority() {
+        final RequestDetails<MockRequest, MockResponse> first = details(RequestPriority.MEDIUM);
+        final RequestDetails<MockRequest, MockResponse> second = details(RequestPriority.MEDIUM);
+        final RequestDetails<MockRequest, MockResponse> third = details(RequestPriority.MEDIUM);
+        scheduler.add(first);
+        scheduler.add(second);
+        scheduler.add(third);
+        assertEquals(3, scheduler.size());
+        assertSame(first, scheduler.poll());
+        assertSame(second, scheduler.poll());
+        assertSame(third, scheduler.poll());
+        assertNull(scheduler.poll());
+        assertTrue(scheduler.isEmpty());
+    }
+
+    @Test
+    public void testHigherPriorityFirst() {
+        final RequestDetails<MockRequest, MockResponse> low = details(RequestPriority.LOW);
+        final RequestDetails<MockRequest, MockResponse> high = details(RequestPriority.HIGH);
+        final RequestDetails<MockRequest, MockResponse> realtime = details(RequestPriority.REALTIME);
+        scheduler.addAll(Arrays.asList(low, high, realtime));
+        assertSame(realtime, scheduler.peek());
+        assertSame(realtime, scheduler.poll());
+        assertSame(high, scheduler.poll());
+        assertSame(low, scheduler.poll());
+    }
+
+    @Test
+    public void testAgingPromotesWaitingRequests() throws InterruptedException {
+        scheduler.setAgingInterval(1, TimeUnit.MILLISECONDS);
+        final RequestDetails<MockRequest, MockResponse> low = details(RequestPriority.LOW);
+        scheduler.add(low);
+        //Three intervals are enough to promote a LOW request to REALTIME
+        Thread.sleep(20);
+        final RequestDetails<MockRequest, MockResponse> high = details(RequestPriority.HIGH);
+        scheduler.add(high);
+        assertSame(low, scheduler.poll());
+        assertSame(high, scheduler.poll());
+    }
+
+    @Test
+    public void testAgingTieBrokenByInsertionOrder() throws InterruptedException {
+        scheduler.setAgingInterval(1, TimeUnit.MILLISECONDS);
+        final RequestDetails<MockRequest, MockResponse> low = details(RequestPriority.LOW);
+        final RequestDetails<MockRequest, MockResponse> medium = details(RequestPriority.MEDIUM);
+        scheduler.add(low);
+        scheduler.add(medium);
+        //Both requests are promoted to the top level, the oldest one wins
+        Thread.sleep(20);
+        assertSame(low, scheduler.poll());
+        assertSame(medium, scheduler.poll());
+    }
+
+    @Test
+    public void testNoAgingWhenDisabled() throws InterruptedException {
+        final RequestDetails<MockRequest, MockResponse> low = details(RequestPriority.LOW);
+        scheduler.add(low);
+        Thread.sleep(5);
+        final RequestDetails<MockRequest, MockResponse> high = details(RequestPriority.HIGH);
+        scheduler.add(high);
+        assertSame(high, scheduler.poll());
+        assertSame(low, scheduler.poll());
+    }
+
+    @Test
+    public void testPollLastTakesTailMatchingFilter() {
+        final RequestDetails<MockRequest, MockResponse> first = details(RequestPriority.LOW);
+        final RequestDetails<MockRequest, MockResponse> second = details(RequestPriority.LOW);
+        final RequestDetails<MockRequest, MockResponse> third = details(RequestPriority.LOW);
+        scheduler.addAll(Arrays.asList(first, second, third));
+        assertSame(third, scheduler.pollLast(RequestPriority.LOW, d -> true));
+        assertSame(first, scheduler.pollLast(RequestPriority.LOW, d -> d == first));
+        assertNull(scheduler.pollLast(RequestPriority.HIGH, d -> true));
+        assertEquals(1, scheduler.size());
+        assertSame(second, scheduler.poll());
+    }
+
+    @Test
+    public void testRemoveAndSizePerPriority() {
+        final RequestDetails<MockRequest, MockResponse> low = details(RequestPriority.LOW);
+        final RequestDetails<MockRequest, MockResponse> high = details(RequestPriority.HIGH);
+        scheduler.addAll(Arrays.asList(low, high));
+        assertEquals(1, scheduler.size(RequestPriority.LOW));
+        assertEquals(1, scheduler.size(RequestPriority.HIGH));
+        assertTrue(scheduler.remove(high));
+        assertFalse(scheduler.remove(high));
+        assertEquals(0, scheduler.size(RequestPriority.HIGH));
+        assertEquals(1, scheduler.size());
+        assertSame(low, scheduler.poll());
+    }
+
+    @Test
+    public void testIteratorIsOrderedByPriorityThenInsertion() {
+        final RequestDetails<MockRequest, MockResponse> low = details(RequestPriority.LOW);
+        final RequestDetails<MockRequest, MockResponse> high1 = details(RequestPriority.HIGH);
+        final RequestDetails<MockRequest, MockResponse> high2 = details(RequestPriority.HIGH);
+        scheduler.addAll(Arrays.asList(low, high1, high2));
+        assertEquals(Arrays.asList(high1, high2, low), Arrays.asList(scheduler.toArray()));
+    }
+}
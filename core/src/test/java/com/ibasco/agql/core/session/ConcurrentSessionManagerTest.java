@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.session;
+
+import com.ibasco.agql.core.MockRequest;
+import com.ibasco.agql.core.MockResponse;
+import com.ibasco.agql.core.RequestDetails;
+import com.ibasco.agql.core.enums.RequestPriority;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentSessionManagerTest {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 27015);
+
+    private ConcurrentSessionManager<MockRequest, MockResponse> sessionManager;
+
+    @Before
+    public void setUp() {
+        sessionManager = new ConcurrentSessionManager<>(new DefaultSessionIdFactory());
+        sessionManager.getLookupMap().put(MockRequest.class, MockResponse.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sessionManager.close();
+    }
+
+    private static RequestDetails<MockRequest, MockResponse> details(InetSocketAddress address) {
+        return new RequestDetails<>(new MockRequest(address), new CompletableFuture<>(), RequestPriority.MEDIUM, null);
+    }
+
+    private List<RequestDetails<MockRequest, MockResponse>> chain(SessionId id) {
+        final List<RequestDetails<MockRequest, MockResponse>> chain = new ArrayList<>();
+        for (Map.Entry<SessionId, SessionValue<MockRequest, MockResponse>> entry : sessionManager.getSessionEntries()) {
+            if (entry.getKey().equals(id))
+                chain.add(entry.getValue().getRequestDetails());
+        }
+        return chain;
+    }
+
+    @Test
+    public void testSessionsSharingIdAreMatchedInRegistrationOrder() {
+        final RequestDetails<MockRequest, MockResponse> first = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> second = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> third = details(ADDRESS);
+        final SessionId id = sessionManager.register(first);
+        assertEquals(id, sessionManager.register(second));
+        assertEquals(id, sessionManager.register(third));
+        assertEquals(3, sessionManager.getSessionCount());
+        assertEquals(Arrays.asList(first, second, third), chain(id));
+
+        assertSame(first, sessionManager.getSession(id).getRequestDetails());
+        assertTrue(sessionManager.unregister(id));
+        assertSame(second, sessionManager.getSession(id).getRequestDetails());
+        assertTrue(sessionManager.unregister(id));
+        assertSame(third, sessionManager.getSession(id).getRequestDetails());
+        assertTrue(sessionManager.unregister(id));
+        assertNull(sessionManager.getSession(id));
+        assertFalse(sessionManager.unregister(id));
+        assertEquals(0, sessionManager.getSessionCount());
+    }
+
+    @Test
+    public void testUnlinkMiddleOfChain() {
+        final RequestDetails<MockRequest, MockResponse> first = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> second = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> third = details(ADDRESS);
+        final SessionId id = sessionManager.register(first);
+        sessionManager.register(second);
+        sessionManager.register(third);
+        final SessionValue<MockRequest, MockResponse> middle = sessionManager.getSession(id, second);
+        assertNotNull(middle);
+        assertTrue(sessionManager.unregister(middle));
+        assertFalse(sessionManager.unregister(middle));
+        assertEquals(Arrays.asList(first, third), chain(id));
+        assertEquals(2, sessionManager.getSessionCount());
+    }
+
+    @Test
+    public void testUnlinkTailThenAppend() {
+        final RequestDetails<MockRequest, MockResponse> first = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> second = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> third = details(ADDRESS);
+        final SessionId id = sessionManager.register(first);
+        sessionManager.register(second);
+        assertTrue(sessionManager.unregister(sessionManager.getSession(id, second)));
+        //The tail must have been moved back to the head, otherwise the new session would be lost
+        sessionManager.register(third);
+        assertEquals(Arrays.asList(first, third), chain(id));
+        assertTrue(sessionManager.unregister(sessionManager.getSession(id, first)));
+        final RequestDetails<MockRequest, MockResponse> fourth = details(ADDRESS);
+        sessionManager.register(fourth);
+        assertEquals(Arrays.asList(third, fourth), chain(id));
+        assertEquals(2, sessionManager.getSessionCount());
+    }
+
+    @Test
+    public void testDistinctIdsAreIndependent() {
+        final RequestDetails<MockRequest, MockResponse> first = details(ADDRESS);
+        final RequestDetails<MockRequest, MockResponse> other = details(new InetSocketAddress("127.0.0.1", 27016));
+        final SessionId id = sessionManager.register(first);
+        final SessionId otherId = sessionManager.register(other);
+        assertNotEquals(id, otherId);
+        assertTrue(sessionManager.unregister(id));
+        assertSame(other, sessionManager.getSession(otherId).getRequestDetails());
+        assertEquals(1, sessionManager.getSessionCount());
+    }
+
+    @Test
+    public void testConcurrentRegisterAndUnregister() throws Exception {
+        final int threads = 8;
+        final int iterations = 2000;
+        final InetSocketAddress[] addresses = new InetSocketAddress[3];
+        for (int i = 0; i < addresses.length; i++)
+            addresses[i] = new InetSocketAddress("127.0.0.1", 27015 + i);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int missing = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        final RequestDetails<MockRequest, MockResponse> details = details(addresses[(offset + i) % addresses.length]);
+                        final SessionId id = sessionManager.register(details);
+                        final SessionValue<MockRequest, MockResponse> value = sessionManager.getSession(id, details);
+                        if (value == null || !sessionManager.unregister(value))
+                            missing++;
+                    }
+                    return missing;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results)
+                assertEquals(0, (int) result.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, sessionManager.getSessionCount());
+        assertTrue(sessionManager.getSessionEntries().isEmpty());
+        for (InetSocketAddress address : addresses)
+            assertNull(sessionManager.getSession(new MockRequest(address)));
+    }
+}
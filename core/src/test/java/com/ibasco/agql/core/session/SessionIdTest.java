@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.session;
+
+import com.ibasco.agql.core.MockRequest;
+import com.ibasco.agql.core.MockResponse;
+import org.junit.Test;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.*;
+
+public class SessionIdTest {
+
+    private static InetSocketAddress ipv4(String address, int port) throws UnknownHostException {
+        return new InetSocketAddress(InetAddress.getByName(address), port);
+    }
+
+    /**
+     * @return An {@link Inet6Address} holding the IPv4-mapped form of the address (InetAddress.getByName would convert
+     * it back to an {@link Inet4Address})
+     */
+    private static InetSocketAddress ipv4Mapped(String address, int port) throws UnknownHostException {
+        final byte[] ipv4 = InetAddress.getByName(address).getAddress();
+        final byte[] bytes = new byte[16];
+        bytes[10] = (byte) 0xFF;
+        bytes[11] = (byte) 0xFF;
+        System.arraycopy(ipv4, 0, bytes, 12, 4);
+        final InetAddress mapped = Inet6Address.getByAddress(null, bytes, -1);
+        assertTrue(mapped instanceof Inet6Address);
+        return new InetSocketAddress(mapped, port);
+    }
+
+    @Test
+    public void testIpv4EqualsIpv4Mapped() throws UnknownHostException {
+        final SessionId ipv4 = new SessionId(MockRequest.class, ipv4("192.168.1.20", 27015), 0);
+        final SessionId mapped = new SessionId(MockRequest.class, ipv4Mapped("192.168.1.20", 27015), 0);
+        assertEquals(ipv4, mapped);
+        assertEquals(mapped, ipv4);
+        assertEquals(ipv4.hashCode(), mapped.hashCode());
+        assertEquals(0, ipv4.compareTo(mapped));
+        assertEquals(ipv4.getAddressHigh(), mapped.getAddressHigh());
+        assertEquals(ipv4.getAddressLow(), mapped.getAddressLow());
+        assertEquals("MockRequest:192.168.1.20:27015", ipv4.getId());
+        assertEquals(ipv4.getId(), mapped.getId());
+    }
+
+    @Test
+    public void testHighOrderIpv4Address() throws UnknownHostException {
+        //The sign bit of the address must not leak into the high part
+        final SessionId ipv4 = new SessionId(MockRequest.class, ipv4("255.255.255.254", 1), 0);
+        final SessionId mapped = new SessionId(MockRequest.class, ipv4Mapped("255.255.255.254", 1), 0);
+        assertEquals(ipv4, mapped);
+        assertEquals(ipv4.hashCode(), mapped.hashCode());
+        assertEquals(0, ipv4.getAddressHigh());
+    }
+
+    @Test
+    public void testIpv6DiffersFromIpv4() throws UnknownHostException {
+        final SessionId ipv4 = new SessionId(MockRequest.class, ipv4("0.0.0.1", 27015), 0);
+        final SessionId ipv6 = new SessionId(MockRequest.class, ipv4("::1", 27015), 0);
+        assertNotEquals(ipv4, ipv6);
+        assertNotEquals(0, ipv4.compareTo(ipv6));
+    }
+
+    @Test
+    public void testTagIsPartOfIdentity() throws UnknownHostException {
+        final InetSocketAddress address = ipv4("10.0.0.1", 27015);
+        final SessionId untagged = new SessionId(MockRequest.class, address, 0);
+        final SessionId tagged = new SessionId(MockRequest.class, address, 42);
+        final SessionId mappedTagged = new SessionId(MockRequest.class, ipv4Mapped("10.0.0.1", 27015), 42);
+        assertNotEquals(untagged, tagged);
+        assertTrue(untagged.compareTo(tagged) < 0);
+        assertEquals(tagged, mappedTagged);
+        assertEquals(tagged.hashCode(), mappedTagged.hashCode());
+        assertEquals("MockRequest:10.0.0.1:27015:42", tagged.getId());
+    }
+
+    @Test
+    public void testPortAndTypeArePartOfIdentity() throws UnknownHostException {
+        final SessionId id = new SessionId(MockRequest.class, ipv4("10.0.0.1", 27015), 0);
+        assertNotEquals(id, new SessionId(MockRequest.class, ipv4("10.0.0.1", 27016), 0));
+        assertNotEquals(id, new SessionId(MockResponse.class, ipv4("10.0.0.1", 27015), 0));
+        assertNotEquals(id, new SessionId(MockRequest.class, ipv4("10.0.0.2", 27015), 0));
+    }
+
+    @Test
+    public void testCopyAndPackedConstructors() throws UnknownHostException {
+        final SessionId id = new SessionId(MockRequest.class, ipv4("10.0.0.1", 27015), 7);
+        final SessionId copy = new SessionId(id);
+        final SessionId packed = new SessionId(id.getType(), id.getAddressHigh(), id.getAddressLow(), id.getPort(), id.getTag());
+        assertEquals(id, copy);
+        assertEquals(id, packed);
+        assertEquals(id.hashCode(), copy.hashCode());
+        assertEquals(id.hashCode(), packed.hashCode());
+        assertEquals(SessionId.typeOrdinal(MockRequest.class), id.getType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnresolvedAddress() {
+        new SessionId(MockRequest.class, InetSocketAddress.createUnresolved("example.invalid", 27015), 0);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.core.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class BoundedCounterTest {
+
+    @Test
+    public void testTryAcquireUpToLimit() {
+        final BoundedCounter counter = new BoundedCounter(2);
+        assertTrue(counter.tryAcquire());
+        assertTrue(counter.hasCapacity());
+        assertTrue(counter.tryAcquire());
+        assertFalse(counter.hasCapacity());
+        assertFalse(counter.tryAcquire());
+        assertEquals(2, counter.get());
+        assertEquals(1, counter.release());
+        assertTrue(counter.tryAcquire());
+    }
+
+    @Test
+    public void testForceAcquireExceedsLimit() {
+        final BoundedCounter counter = new BoundedCounter(1);
+        assertTrue(counter.tryAcquire());
+        counter.forceAcquire();
+        assertEquals(2, counter.get());
+        assertEquals(1, counter.release());
+        assertFalse(counter.tryAcquire());
+        assertEquals(0, counter.release());
+        assertTrue(counter.tryAcquire());
+    }
+
+    @Test
+    public void testAcquireTimesOut() throws InterruptedException {
+        final BoundedCounter counter = new BoundedCounter(1);
+        assertTrue(counter.acquire(0, TimeUnit.MILLISECONDS));
+        final long start = System.nanoTime();
+        assertFalse(counter.acquire(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(counter.acquire(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testReleaseWakesWaiter() throws InterruptedException {
+        final BoundedCounter counter = new BoundedCounter(1);
+        assertTrue(counter.tryAcquire());
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean acquired = new AtomicBoolean();
+        final Thread waiter = new Thread(() -> {
+            started.countDown();
+            try {
+                acquired.set(counter.acquire(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        started.await();
+        counter.release();
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(waiter.isAlive());
+        assertTrue(acquired.get());
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testRaisingLimitWakesWaiter() throws InterruptedException {
+        final BoundedCounter counter = new BoundedCounter(1);
+        assertTrue(counter.tryAcquire());
+        final AtomicBoolean acquired = new AtomicBoolean();
+        final Thread waiter = new Thread(() -> {
+            try {
+                acquired.set(counter.acquire(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        counter.setLimit(2);
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(waiter.isAlive());
+        assertTrue(acquired.get());
+        assertEquals(2, counter.get());
+        assertEquals(2, counter.getLimit());
+    }
+
+    @Test
+    public void testLoweringLimitBelowCount() {
+        final BoundedCounter counter = new BoundedCounter(3);
+        assertTrue(counter.tryAcquire());
+        assertTrue(counter.tryAcquire());
+        counter.setLimit(1);
+        assertFalse(counter.hasCapacity());
+        assertFalse(counter.tryAcquire());
+        counter.release();
+        assertFalse(counter.tryAcquire());
+        counter.release();
+        assertTrue(counter.tryAcquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimit() {
+        new BoundedCounter(0);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.examples;
+
+import com.ibasco.agql.core.AbstractMessenger;
+import com.ibasco.agql.core.enums.ProcessingMode;
+import com.ibasco.agql.examples.MessengerBenchmarkEx.BenchmarkRequest;
+import com.ibasco.agql.examples.MessengerBenchmarkEx.LoopbackMessenger;
+import com.ibasco.agql.examples.base.BaseExample;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Compares submitting a large group of requests through {@link AbstractMessenger#send(com.ibasco.agql.core.AbstractRequest)}
+ * in a loop against a single call to {@link AbstractMessenger#sendAll(java.util.Collection,
+ * com.ibasco.agql.core.functions.TriConsumer)}. Both the time spent by the calling thread for the submission and the
+ * time until every request has completed are reported.</p>
+ */
+public class BulkSendBenchmarkEx extends BaseExample {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkSendBenchmarkEx.class);
+
+    private LoopbackMessenger messenger;
+
+    public static void main(String[] args) throws Exception {
+        BulkSendBenchmarkEx app = new BulkSendBenchmarkEx();
+        try {
+            app.run();
+        } finally {
+            app.close();
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        int count = Integer.valueOf(promptInput("Number of requests per round", false, "100000"));
+        int destinations = Integer.valueOf(promptInput("Number of distinct destinations", false, "5000"));
+        int rounds = Integer.valueOf(promptInput("Number of measured rounds (one additional warm-up round is performed)", false, "5"));
+
+        messenger = new LoopbackMessenger(1, ProcessingMode.ASYNCHRONOUS);
+        messenger.setRateLimiter(null);
+
+        for (int round = 0; round <= rounds; round++) {
+            String label = (round == 0) ? "Warm-up" : "Round " + round;
+            long[] loop = measureLoop(createRequests(count, destinations));
+            long[] bulk = measureBulk(createRequests(count, destinations));
+            log.info("{}: send() loop = {} ms submit / {} ms total, sendAll() = {} ms submit / {} ms total", label,
+                    toMillis(loop[0]), toMillis(loop[1]), toMillis(bulk[0]), toMillis(bulk[1]));
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private static List<BenchmarkRequest> createRequests(int count, int destinations) {
+        List<BenchmarkRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            requests.add(new BenchmarkRequest(new InetSocketAddress("127.0.0.1", 1024 + (i % destinations))));
+        return requests;
+    }
+
+    /**
+     * @return The submission time and the total time in nanoseconds
+     */
+    private long[] measureLoop(List<BenchmarkRequest> requests) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(requests.size());
+        final AtomicInteger failed = new AtomicInteger();
+        final long start = System.nanoTime();
+        for (BenchmarkRequest request : requests) {
+            messenger.send(request).whenComplete((response, error) -> {
+                if (error != null)
+                    failed.incrementAndGet();
+                latch.countDown();
+            });
+        }
+        final long submitted = System.nanoTime();
+        if (!latch.await(60, TimeUnit.SECONDS))
+            log.warn("Timed out while waiting for the requests to complete");
+        if (failed.get() > 0)
+            log.warn("{} request(s) failed", failed.get());
+        return new long[] {submitted - start, System.nanoTime() - start};
+    }
+
+    /**
+     * @return The submission time and the total time in nanoseconds
+     */
+    private long[] measureBulk(List<BenchmarkRequest> requests) throws Exception {
+        final AtomicInteger failed = new AtomicInteger();
+        final long start = System.nanoTime();
+        CompletableFuture<Void> completion = messenger.sendAll(requests, (request, response, error) -> {
+            if (error != null)
+                failed.incrementAndGet();
+        });
+        final long submitted = System.nanoTime();
+        completion.get(60, TimeUnit.SECONDS);
+        if (failed.get() > 0)
+            log.warn("{} request(s) failed", failed.get());
+        return new long[] {submitted - start, System.nanoTime() - start};
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (messenger != null)
+            messenger.close();
+    }
+}
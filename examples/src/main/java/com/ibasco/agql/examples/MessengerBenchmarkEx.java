@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.ibasco.agql.examples;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibasco.agql.core.AbstractMessenger;
+import com.ibasco.agql.core.AbstractRequest;
+import com.ibasco.agql.core.AbstractResponse;
+import com.ibasco.agql.core.Transport;
+import com.ibasco.agql.core.enums.ProcessingMode;
+import com.ibasco.agql.core.session.DefaultSessionIdFactory;
+import com.ibasco.agql.examples.base.BaseExample;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Measures the raw request dispatch rate of an {@link AbstractMessenger}. A loopback transport is used so that no
+ * network I/O is involved, the resulting figure is the ceiling imposed by the messenger itself.</p>
+ */
+public class MessengerBenchmarkEx extends BaseExample {
+
+    private static final Logger log = LoggerFactory.getLogger(MessengerBenchmarkEx.class);
+
+    private LoopbackMessenger messenger;
+
+    public static void main(String[] args) throws Exception {
+        MessengerBenchmarkEx app = new MessengerBenchmarkEx();
+        try {
+            app.run();
+        } finally {
+            app.close();
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        int duration = Integer.valueOf(promptInput("Benchmark duration (seconds)", false, "10"));
+        int window = Integer.valueOf(promptInput("Maximum number of outstanding requests", false, "1000"));
+        int destinations = Integer.valueOf(promptInput("Number of distinct destinations", false, "5000"));
+        int maxInFlight = Integer.valueOf(promptInput("Maximum number of in-flight requests (messenger)", false, String.valueOf(Integer.MAX_VALUE)));
+        int lanes = Integer.valueOf(promptInput("Number of messenger lanes", false, "1"));
+        ProcessingMode mode = ProcessingMode.valueOf(promptInput("Processing mode (ASYNCHRONOUS or SYNCHRONOUS)", false, "ASYNCHRONOUS").toUpperCase());
+
+        messenger = new LoopbackMessenger(lanes, mode);
+        messenger.setMaxInFlight(maxInFlight);
+
+        log.info("Running dispatch benchmark for {} second(s) (Window: {}, Destinations: {}, Lanes: {}, Mode: {})", duration, window, destinations, lanes, mode);
+        double rate = measureDispatchRate(duration, window, destinations);
+        log.info("Dispatch rate: {} requests/second", String.format("%.2f", rate));
+        log.info("Enqueue time: {} ns (average), {} ns (max)", messenger.getAverageEnqueueTime(), messenger.getMaxEnqueueTime());
+        log.info("Metrics: {}", messenger.getMetrics().snapshot().getValues());
+    }
+
+    /**
+     * Sends requests for the specified duration while keeping at most <code>window</code> requests outstanding.
+     *
+     * @return The number of completed requests per second
+     */
+    private double measureDispatchRate(int duration, int window, int destinations) throws InterruptedException {
+        final Semaphore outstanding = new Semaphore(window);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        final long start = System.nanoTime();
+        int counter = 0;
+
+        while (System.nanoTime() < end) {
+            if (!outstanding.tryAcquire(100, TimeUnit.MILLISECONDS))
+                continue;
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", 1024 + (counter++ % destinations));
+            messenger.send(new BenchmarkRequest(address)).whenComplete((response, error) -> {
+                if (error != null)
+                    failed.incrementAndGet();
+                else
+                    completed.incrementAndGet();
+                outstanding.release();
+            });
+        }
+
+        //Wait for the in-flight requests to settle
+        outstanding.tryAcquire(window, 10, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        log.info("Completed: {}, Failed: {}, Elapsed: {} seconds", completed.get(), failed.get(), String.format("%.2f", elapsed));
+        return completed.get() / elapsed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (messenger != null)
+            messenger.close();
+    }
+
+    static class BenchmarkRequest extends AbstractRequest<Integer> {
+        BenchmarkRequest(InetSocketAddress recipient) {
+            super(recipient);
+        }
+
+        @Override
+        public Integer getMessage() {
+            return recipient().getPort();
+        }
+    }
+
+    static class BenchmarkResponse extends AbstractResponse<Integer> {
+        BenchmarkResponse(InetSocketAddress sender) {
+            super(sender);
+        }
+
+        @Override
+        public Integer getMessage() {
+            return sender().getPort();
+        }
+    }
+
+    /**
+     * A messenger whose transport echoes every request back as a response from a separate thread, emulating the
+     * event loop which would normally decode the incoming datagrams.
+     */
+    static class LoopbackMessenger extends AbstractMessenger<BenchmarkRequest, BenchmarkResponse> {
+
+        private ExecutorService responseExecutor;
+
+        LoopbackMessenger(int lanes, ProcessingMode mode) {
+            super(new DefaultSessionIdFactory(), mode, lanes);
+        }
+
+        @Override
+        protected Transport<BenchmarkRequest> createTransportService() {
+            responseExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("loopback-%d").setDaemon(true).build());
+            return new Transport<BenchmarkRequest>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <V> CompletableFuture<V> send(BenchmarkRequest data) {
+                    responseExecutor.execute(() -> accept(new BenchmarkResponse(data.recipient()), null));
+                    return (CompletableFuture<V>) CompletableFuture.completedFuture(null);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    responseExecutor.shutdown();
+                }
+            };
+        }
+
+        @Override
+        public void configureMappings(Map<Class<? extends BenchmarkRequest>, Class<? extends BenchmarkResponse>> map) {
+            map.put(BenchmarkRequest.class, BenchmarkResponse.class);
+        }
+    }
+}
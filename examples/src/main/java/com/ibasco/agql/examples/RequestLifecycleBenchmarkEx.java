@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.examples;
+
+import com.ibasco.agql.core.RequestDetails;
+import com.ibasco.agql.core.enums.RequestPriority;
+import com.ibasco.agql.core.enums.RequestStatus;
+import com.ibasco.agql.core.session.*;
+import com.ibasco.agql.examples.MessengerBenchmarkEx.BenchmarkRequest;
+import com.ibasco.agql.examples.MessengerBenchmarkEx.BenchmarkResponse;
+import com.ibasco.agql.examples.base.BaseExample;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the CPU time and the memory allocated per request by the bookkeeping of the messenger, without any
+ * network I/O: each request is created, queued, dispatched, registered with the session manager, matched with its
+ * response, unregistered and completed. A queued request is also evicted from the middle of a deep queue, as done by
+ * the admission policy, which exercises {@link RequestDetails#equals(Object)}.</p>
+ *
+ * <p>The allocation figure relies on {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} and is
+ * not reported on JVMs lacking it.</p>
+ */
+public class RequestLifecycleBenchmarkEx extends BaseExample {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestLifecycleBenchmarkEx.class);
+
+    private SessionManager<BenchmarkRequest, BenchmarkResponse> sessionManager;
+
+    public static void main(String[] args) throws Exception {
+        RequestLifecycleBenchmarkEx app = new RequestLifecycleBenchmarkEx();
+        try {
+            app.run();
+        } finally {
+            app.close();
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        String type = promptInput("Session manager (CONCURRENT or DEFAULT)", false, "CONCURRENT").toUpperCase();
+        int requests = Integer.valueOf(promptInput("Number of requests per iteration", false, "1000000"));
+        int iterations = Integer.valueOf(promptInput("Number of iterations (the first one is a warm-up)", false, "5"));
+        int queueDepth = Integer.valueOf(promptInput("Number of requests waiting in the queue", false, "256"));
+
+        sessionManager = "DEFAULT".equals(type) ? new DefaultSessionManager<>(new DefaultSessionIdFactory()) : new ConcurrentSessionManager<>(new DefaultSessionIdFactory());
+        sessionManager.getLookupMap().put(BenchmarkRequest.class, BenchmarkResponse.class);
+
+        InetSocketAddress[] destinations = new InetSocketAddress[1024];
+        for (int i = 0; i < destinations.length; i++)
+            destinations[i] = address(i);
+
+        //Requests which are never dispatched, the queue has to walk past them on removal
+        PriorityBlockingQueue<RequestDetails<BenchmarkRequest, BenchmarkResponse>> queue = new PriorityBlockingQueue<>();
+        for (int i = 0; i < queueDepth; i++)
+            queue.offer(new RequestDetails<>(new BenchmarkRequest(destinations[i % destinations.length]), new CompletableFuture<>(), RequestPriority.HIGH, null));
+
+        final com.sun.management.ThreadMXBean threadBean = (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+        final long threadId = Thread.currentThread().getId();
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            final long allocatedBefore = (threadBean != null) ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+            final long cpuBefore = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+            final long start = System.nanoTime();
+            int completed = lifecycle(queue, destinations, requests);
+            final long elapsed = System.nanoTime() - start;
+            final long cpu = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - cpuBefore;
+            final long allocated = (threadBean != null) ? threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore : -1;
+            log.info("{} Elapsed = {} ns/op, CPU = {} ns/op, Allocated = {} bytes/op (Completed: {}/{})", (iteration == 0) ? "Warm-up  " : String.format("Run %-5d", iteration),
+                    String.format("%.1f", elapsed / (double) requests), String.format("%.1f", cpu / (double) requests),
+                    (allocated >= 0) ? String.format("%.1f", allocated / (double) requests) : "n/a", completed, requests);
+        }
+    }
+
+    private int lifecycle(PriorityBlockingQueue<RequestDetails<BenchmarkRequest, BenchmarkResponse>> queue, InetSocketAddress[] destinations, int requests) {
+        int completed = 0;
+        for (int i = 0; i < requests; i++) {
+            final InetSocketAddress destination = destinations[i % destinations.length];
+            final RequestDetails<BenchmarkRequest, BenchmarkResponse> requestDetails = new RequestDetails<>(new BenchmarkRequest(destination), new CompletableFuture<>(), RequestPriority.MEDIUM, null);
+            //Every eighth request is evicted from the queue instead of being dispatched
+            queue.offer(requestDetails);
+            if ((i & 7) == 0) {
+                if (queue.remove(requestDetails))
+                    requestDetails.setStatus(RequestStatus.DONE);
+                continue;
+            }
+            queue.remove(requestDetails);
+            if (requestDetails.getStatus() != RequestStatus.NEW)
+                continue;
+            requestDetails.setStatus(RequestStatus.ACCEPTED);
+            requestDetails.setDeadline(1, TimeUnit.HOURS);
+            sessionManager.register(requestDetails);
+            requestDetails.setStatus(RequestStatus.SENT);
+            final SessionValue<BenchmarkRequest, BenchmarkResponse> session = sessionManager.getSession(new BenchmarkResponse(destination));
+            if (session != null && sessionManager.unregister(session)) {
+                session.getRequestDetails().setStatus(RequestStatus.DONE);
+                if (session.getClientPromise().complete(null))
+                    completed++;
+            }
+        }
+        return completed;
+    }
+
+    private static InetSocketAddress address(int index) throws UnknownHostException {
+        byte[] address = new byte[] {10, 0, (byte) (index >>> 8), (byte) index};
+        return new InetSocketAddress(InetAddress.getByAddress(address), 27015);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sessionManager != null)
+            sessionManager.close();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.examples;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ibasco.agql.core.AbstractMessenger;
+import com.ibasco.agql.core.AbstractRequest;
+import com.ibasco.agql.core.AbstractResponse;
+import com.ibasco.agql.core.Transport;
+import com.ibasco.agql.core.enums.ProcessingMode;
+import com.ibasco.agql.core.enums.RequestPriority;
+import com.ibasco.agql.examples.base.BaseExample;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * <p>Measures the time requests of each {@link RequestPriority} spend in the queue of an {@link AbstractMessenger}
+ * under a mixed load. The in-flight window of the messenger is kept smaller than the number of outstanding requests
+ * so that a backlog builds up and the scheduling order becomes visible in the tail latencies.</p>
+ */
+public class SchedulerLatencyBenchmarkEx extends BaseExample {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerLatencyBenchmarkEx.class);
+
+    /**
+     * The share of each priority in the generated load (REALTIME, HIGH, MEDIUM, LOW), out of 20 requests
+     */
+    private static final int[] PRIORITY_MIX = new int[] {1, 10, 5, 4};
+
+    private LoopbackMessenger messenger;
+
+    public static void main(String[] args) throws Exception {
+        SchedulerLatencyBenchmarkEx app = new SchedulerLatencyBenchmarkEx();
+        try {
+            app.run();
+        } finally {
+            app.close();
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        int duration = Integer.valueOf(promptInput("Benchmark duration (seconds)", false, "10"));
+        int window = Integer.valueOf(promptInput("Maximum number of outstanding requests", false, "2000"));
+        int maxInFlight = Integer.valueOf(promptInput("Maximum number of in-flight requests (messenger)", false, "64"));
+        int agingInterval = Integer.valueOf(promptInput("Aging interval in milliseconds (0 = disabled)", false, "1000"));
+
+        messenger = new LoopbackMessenger();
+        messenger.setMaxInFlight(maxInFlight);
+        messenger.setAgingInterval(agingInterval, TimeUnit.MILLISECONDS);
+
+        log.info("Running scheduler benchmark for {} second(s) (Window: {}, In-Flight: {}, Aging: {} ms)", duration, window, maxInFlight, agingInterval);
+        runLoad(duration, window);
+
+        for (RequestPriority priority : RequestPriority.values()) {
+            DescriptiveStatistics stats = messenger.getQueueWait(priority);
+            synchronized (stats) {
+                log.info("{}: Count = {}, Mean = {} ms, P50 = {} ms, P99 = {} ms, Max = {} ms", String.format("%-8s", priority),
+                        stats.getN(), format(stats.getMean()), format(stats.getPercentile(50)), format(stats.getPercentile(99)), format(stats.getMax()));
+            }
+        }
+    }
+
+    private static String format(double nanos) {
+        return Double.isNaN(nanos) ? "-" : String.format("%.3f", nanos / 1_000_000.0);
+    }
+
+    private void runLoad(int duration, int window) throws InterruptedException {
+        final Semaphore outstanding = new Semaphore(window);
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        final RequestPriority[] schedule = createSchedule();
+        int counter = 0;
+
+        while (System.nanoTime() < end) {
+            if (!outstanding.tryAcquire(100, TimeUnit.MILLISECONDS))
+                continue;
+            RequestPriority priority = schedule[counter % schedule.length];
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", 1024 + (counter++ % 1000));
+            messenger.send(new BenchmarkRequest(address, priority), priority).whenComplete((response, error) -> outstanding.release());
+        }
+
+        //Wait for the in-flight requests to settle
+        outstanding.tryAcquire(window, 30, TimeUnit.SECONDS);
+    }
+
+    private static RequestPriority[] createSchedule() {
+        int total = 0;
+        for (int share : PRIORITY_MIX)
+            total += share;
+        RequestPriority[] schedule = new RequestPriority[total];
+        //Interleave the priorities so that the load stays mixed at any point in time
+        int index = 0;
+        int[] remaining = PRIORITY_MIX.clone();
+        while (index < total) {
+            for (int i = 0; i < remaining.length; i++) {
+                if (remaining[i]-- > 0)
+                    schedule[index++] = RequestPriority.values()[i];
+            }
+        }
+        return schedule;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (messenger != null)
+            messenger.close();
+    }
+
+    private static class BenchmarkRequest extends AbstractRequest<Integer> {
+        private final long timeCreated = System.nanoTime();
+
+        private final RequestPriority priority;
+
+        BenchmarkRequest(InetSocketAddress recipient, RequestPriority priority) {
+            super(recipient);
+            this.priority = priority;
+        }
+
+        @Override
+        public Integer getMessage() {
+            return recipient().getPort();
+        }
+    }
+
+    private static class BenchmarkResponse extends AbstractResponse<Integer> {
+        BenchmarkResponse(InetSocketAddress sender) {
+            super(sender);
+        }
+
+        @Override
+        public Integer getMessage() {
+            return sender().getPort();
+        }
+    }
+
+    /**
+     * A messenger whose transport records the time each request has spent in the queue, then echoes it back as a
+     * response after a short delay emulating the round trip.
+     */
+    private static class LoopbackMessenger extends AbstractMessenger<BenchmarkRequest, BenchmarkResponse> {
+
+        private ScheduledExecutorService responseExecutor;
+
+        private final Map<RequestPriority, DescriptiveStatistics> queueWait = new EnumMap<>(RequestPriority.class);
+
+        LoopbackMessenger() {
+            super(ProcessingMode.ASYNCHRONOUS);
+            for (RequestPriority priority : RequestPriority.values())
+                queueWait.put(priority, new DescriptiveStatistics());
+            setRateLimiter(null);
+        }
+
+        DescriptiveStatistics getQueueWait(RequestPriority priority) {
+            return queueWait.get(priority);
+        }
+
+        @Override
+        protected Transport<BenchmarkRequest> createTransportService() {
+            responseExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("loopback-%d").setDaemon(true).build());
+            return new Transport<BenchmarkRequest>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <V> CompletableFuture<V> send(BenchmarkRequest data) {
+                    final DescriptiveStatistics stats = queueWait.get(data.priority);
+                    synchronized (stats) {
+                        stats.addValue(System.nanoTime() - data.timeCreated);
+                    }
+                    responseExecutor.schedule(() -> accept(new BenchmarkResponse(data.recipient()), null), 1, TimeUnit.MILLISECONDS);
+                    return (CompletableFuture<V>) CompletableFuture.completedFuture(null);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    responseExecutor.shutdown();
+                }
+            };
+        }
+
+        @Override
+        public void configureMappings(Map<Class<? extends BenchmarkRequest>, Class<? extends BenchmarkResponse>> map) {
+            map.put(BenchmarkRequest.class, BenchmarkResponse.class);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.examples;
+
+import com.ibasco.agql.core.RequestDetails;
+import com.ibasco.agql.core.enums.ExpiryMode;
+import com.ibasco.agql.core.enums.RequestPriority;
+import com.ibasco.agql.core.session.ConcurrentSessionManager;
+import com.ibasco.agql.core.session.DefaultSessionIdFactory;
+import com.ibasco.agql.core.session.DefaultSessionManager;
+import com.ibasco.agql.core.session.SessionManager;
+import com.ibasco.agql.examples.MessengerBenchmarkEx.BenchmarkRequest;
+import com.ibasco.agql.examples.MessengerBenchmarkEx.BenchmarkResponse;
+import com.ibasco.agql.examples.base.BaseExample;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the cost of routing a response to its pending session (see {@link SessionManager#getSession(com.ibasco.agql.core.AbstractMessage)})
+ * as the number of in-flight sessions grows. Each response is created from scratch, as the transport would do for
+ * every incoming datagram, so the figure includes the creation of the session id.</p>
+ */
+public class SessionRoutingBenchmarkEx extends BaseExample {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRoutingBenchmarkEx.class);
+
+    private SessionManager<BenchmarkRequest, BenchmarkResponse> sessionManager;
+
+    public static void main(String[] args) throws Exception {
+        SessionRoutingBenchmarkEx app = new SessionRoutingBenchmarkEx();
+        try {
+            app.run();
+        } finally {
+            app.close();
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        String type = promptInput("Session manager (CONCURRENT or DEFAULT)", false, "CONCURRENT").toUpperCase();
+        String[] sizes = promptInput("Number of in-flight sessions (comma separated)", false, "1000,10000,100000,1000000").split(",");
+        int lookups = Integer.valueOf(promptInput("Number of lookups per measurement", false, "2000000"));
+        //A small sample stays in the CPU caches and shows the algorithmic cost, a large one adds the cost of cache misses
+        int sampleSize = Integer.valueOf(promptInput("Number of distinct responses looked up (picked randomly among the sessions)", false, "1024"));
+        ExpiryMode expiryMode = ExpiryMode.valueOf(promptInput("Expiry mode (TIMER or SWEEP)", false, "TIMER").toUpperCase());
+
+        for (String size : sizes) {
+            int sessions = Integer.valueOf(size.trim());
+            sessionManager = "DEFAULT".equals(type) ? new DefaultSessionManager<>(new DefaultSessionIdFactory()) : new ConcurrentSessionManager<>(new DefaultSessionIdFactory());
+            sessionManager.getLookupMap().put(BenchmarkRequest.class, BenchmarkResponse.class);
+            sessionManager.setExpiryMode(expiryMode);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < sessions; i++) {
+                RequestDetails<BenchmarkRequest, BenchmarkResponse> requestDetails = new RequestDetails<>(new BenchmarkRequest(address(i)), new CompletableFuture<>(), RequestPriority.MEDIUM, null);
+                //Keep the sessions from expiring while we are measuring
+                requestDetails.setDeadline(1, TimeUnit.HOURS);
+                sessionManager.register(requestDetails);
+            }
+            long registration = System.nanoTime() - start;
+
+            InetSocketAddress[] senders = new InetSocketAddress[sampleSize];
+            for (int i = 0; i < sampleSize; i++)
+                senders[i] = address(ThreadLocalRandom.current().nextInt(sessions));
+
+            //Warm-up
+            route(senders, lookups);
+            start = System.nanoTime();
+            int found = route(senders, lookups);
+            long elapsed = System.nanoTime() - start;
+
+            log.info("{} sessions: Registration = {} ns/op, Routing = {} ns/op (Found: {}/{})", String.format("%,9d", sessions),
+                    String.format("%.1f", registration / (double) sessions), String.format("%.1f", elapsed / (double) lookups), found, lookups);
+            sessionManager.close();
+            sessionManager = null;
+        }
+    }
+
+    private int route(InetSocketAddress[] senders, int lookups) {
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            if (sessionManager.getSession(new BenchmarkResponse(senders[i % senders.length])) != null)
+                found++;
+        }
+        return found;
+    }
+
+    private static InetSocketAddress address(int index) throws UnknownHostException {
+        byte[] address = new byte[] {10, (byte) (index >>> 16), (byte) (index >>> 8), (byte) index};
+        return new InetSocketAddress(InetAddress.getByAddress(address), 27015);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sessionManager != null)
+            sessionManager.close();
+    }
+}
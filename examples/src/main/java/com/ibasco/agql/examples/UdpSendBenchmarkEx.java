@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.examples;
+
+import com.ibasco.agql.core.runtime.SharedRuntime;
+import com.ibasco.agql.core.transport.FlushPolicy;
+import com.ibasco.agql.examples.base.BaseExample;
+import com.ibasco.agql.protocols.valve.source.query.client.SourceQueryClient;
+import com.ibasco.agql.protocols.valve.source.query.enums.SourceChallengeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Sends bursts of challenge requests to local UDP responders and compares the {@link FlushPolicy#IMMEDIATE} and
+ * {@link FlushPolicy#CONSOLIDATED} flush policies. The CPU time spent by the event loops per query and the number of
+ * sockets used by the client are reported, along with the share of each event loop when the requests are spread across
+ * several sockets.</p>
+ *
+ * <p>By default the responders do not reply and the measurement stops once every datagram has reached them, which
+ * isolates the cost of sending. Over loopback, the sender is also charged for the delivery of its datagrams.</p>
+ */
+public class UdpSendBenchmarkEx extends BaseExample {
+
+    private static final Logger log = LoggerFactory.getLogger(UdpSendBenchmarkEx.class);
+
+    private static final byte[] CHALLENGE_RESPONSE = new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x41, 0x39, 0x30, 0x00, 0x00};
+
+    private final List<DatagramSocket> responders = new ArrayList<>();
+
+    private final Set<Integer> senderPorts = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger received = new AtomicInteger();
+
+    private volatile boolean reply;
+
+    private int eventLoops;
+
+    private boolean reusePort;
+
+    public static void main(String[] args) throws Exception {
+        UdpSendBenchmarkEx app = new UdpSendBenchmarkEx();
+        try {
+            app.run();
+        } finally {
+            app.close();
+        }
+    }
+
+    @Override
+    public void run() throws Exception {
+        int count = Integer.valueOf(promptInput("Number of requests per round", false, "20000"));
+        int destinations = Integer.valueOf(promptInput("Number of local responders", false, "16"));
+        int maxInFlight = Integer.valueOf(promptInput("Maximum number of requests awaiting a response", false, "1000"));
+        int rounds = Integer.valueOf(promptInput("Number of measured rounds per policy (one additional warm-up round is performed)", false, "3"));
+        reply = "y".equalsIgnoreCase(promptInput("Should the responders reply? Otherwise only the sending of the requests is measured (y/n)", false, "n"));
+        eventLoops = Integer.valueOf(promptInput("Number of event loops (the requests are spread across one socket per event loop)", false, "1"));
+        reusePort = "y".equalsIgnoreCase(promptInput("Bind the sockets to the same port with SO_REUSEPORT (y/n)", false, "n"));
+
+        List<InetSocketAddress> addresses = new ArrayList<>(destinations);
+        for (int i = 0; i < destinations; i++)
+            addresses.add(startResponder());
+
+        for (int round = 0; round <= rounds; round++) {
+            String label = (round == 0) ? "Warm-up" : "Round " + round;
+            log.info("{}: IMMEDIATE    {}", label, measure(FlushPolicy.IMMEDIATE, addresses, count, maxInFlight));
+            log.info("{}: CONSOLIDATED {}", label, measure(FlushPolicy.CONSOLIDATED, addresses, count, maxInFlight));
+        }
+    }
+
+    private String measure(FlushPolicy flushPolicy, List<InetSocketAddress> addresses, int count, int maxInFlight) throws Exception {
+        final SharedRuntime runtime = new SharedRuntime(eventLoops);
+        final AtomicInteger failed = new AtomicInteger();
+        try (SourceQueryClient client = new SourceQueryClient(runtime)) {
+            client.setFlushPolicy(flushPolicy);
+            client.setSocketFanout(eventLoops, reusePort);
+            client.setRateLimiter(null);
+            client.setMaxInFlight(reply ? maxInFlight : count);
+            client.setMaxQueueDepth(count);
+            client.setRequestTimeout(reply ? 5 : 60, TimeUnit.SECONDS);
+            senderPorts.clear();
+            received.set(0);
+            final CountDownLatch latch = new CountDownLatch(count);
+            final Map<Long, Long> cpuBefore = getEventLoopCpuTimes();
+            final long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                client.getServerChallenge(SourceChallengeType.PLAYER, addresses.get(i % addresses.size())).whenComplete((challenge, error) -> {
+                    if (reply && error != null && failed.incrementAndGet() == 1)
+                        log.warn("Request failed", error);
+                    latch.countDown();
+                });
+            }
+            //Without replies, stop measuring once every datagram has reached the responders
+            if (!reply)
+                awaitReceived(count);
+            else if (!latch.await(60, TimeUnit.SECONDS))
+                log.warn("Timed out while waiting for the requests to complete");
+            final long elapsed = System.nanoTime() - start;
+            final Map<Long, Long> cpuAfter = getEventLoopCpuTimes();
+            long cpu = 0;
+            final List<Long> cpuPerLoop = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : cpuAfter.entrySet()) {
+                final long loopCpu = entry.getValue() - cpuBefore.getOrDefault(entry.getKey(), 0L);
+                //Idle threads left over by the runtime of a previous round
+                if (loopCpu == 0)
+                    continue;
+                cpuPerLoop.add(loopCpu);
+                cpu += loopCpu;
+            }
+            final StringBuilder shares = new StringBuilder();
+            for (long loopCpu : cpuPerLoop)
+                shares.append((shares.length() > 0) ? "/" : "").append(Math.round(loopCpu * 100.0 / Math.max(cpu, 1))).append('%');
+            //The pending requests are dropped once the client is closed
+            if (!reply)
+                failed.set(count - received.get());
+            return String.format("Event loop CPU = %.1f us/query (%s), Elapsed = %.1f ms, Sockets = %d, Failed = %d/%d", cpu / 1000.0 / count,
+                    shares, elapsed / 1_000_000.0, senderPorts.size(), failed.get(), count);
+        } finally {
+            runtime.release();
+            runtime.getEventLoopGroup().terminationFuture().await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Waits until the responders have received the specified number of datagrams, or until no more datagrams arrive
+     */
+    private void awaitReceived(int count) throws InterruptedException {
+        int last = -1;
+        long lastChange = System.nanoTime();
+        while (received.get() < count) {
+            final int current = received.get();
+            if (current != last) {
+                last = current;
+                lastChange = System.nanoTime();
+            } else if (System.nanoTime() - lastChange > TimeUnit.SECONDS.toNanos(2)) {
+                log.warn("Only {} of {} datagrams have been received", current, count);
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * @return The CPU time (in nanoseconds) spent so far by each live event loop thread of the library, by thread id
+     */
+    private static Map<Long, Long> getEventLoopCpuTimes() {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final Map<Long, Long> times = new TreeMap<>();
+        for (ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds())) {
+            if (info == null || !info.getThreadName().startsWith("agql-el-"))
+                continue;
+            final long cpu = threadBean.getThreadCpuTime(info.getThreadId());
+            if (cpu > 0)
+                times.put(info.getThreadId(), cpu);
+        }
+        return times;
+    }
+
+    private InetSocketAddress startResponder() throws IOException {
+        final DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        socket.setReceiveBufferSize(4 * 1024 * 1024);
+        responders.add(socket);
+        final Thread thread = new Thread(() -> {
+            final byte[] buffer = new byte[1400];
+            while (!socket.isClosed()) {
+                try {
+                    final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(packet);
+                    senderPorts.add(packet.getPort());
+                    received.incrementAndGet();
+                    if (reply)
+                        socket.send(new DatagramPacket(CHALLENGE_RESPONSE, CHALLENGE_RESPONSE.length, packet.getSocketAddress()));
+                } catch (IOException e) {
+                    if (!socket.isClosed())
+                        log.debug("Responder error", e);
+                }
+            }
+        }, "responder-" + socket.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+        return new InetSocketAddress(socket.getLocalAddress(), socket.getLocalPort());
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DatagramSocket responder : responders)
+            responder.close();
+    }
+}
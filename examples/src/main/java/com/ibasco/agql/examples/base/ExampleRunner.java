@@ -59,6 +59,12 @@ public class ExampleRunner {
         this.examples.put("steam-econ-webapi", new SteamEconItemsQueryEx());
         this.examples.put("mc-rcon", new McRconQueryEx());
         this.examples.put("dota2-webapi", new Dota2WebApiQueryEx());
+        this.examples.put("messenger-benchmark", new MessengerBenchmarkEx());
+        this.examples.put("scheduler-latency-benchmark", new SchedulerLatencyBenchmarkEx());
+        this.examples.put("bulk-send-benchmark", new BulkSendBenchmarkEx());
+        this.examples.put("session-routing-benchmark", new SessionRoutingBenchmarkEx());
+        this.examples.put("request-lifecycle-benchmark", new RequestLifecycleBenchmarkEx());
+        this.examples.put("udp-send-benchmark", new UdpSendBenchmarkEx());
 
         Runtime.getRuntime().addShutdownHook(new Thread(() ->
         {
@@ -28,7 +28,10 @@ import com.ibasco.agql.core.Transport;
 import com.ibasco.agql.core.enums.ChannelType;
 import com.ibasco.agql.core.enums.ProcessingMode;
 import com.ibasco.agql.core.messenger.GameServerMessenger;
-import com.ibasco.agql.core.transport.udp.NettyPooledUdpTransport;
+import com.ibasco.agql.core.runtime.SharedRuntime;
+import com.ibasco.agql.core.session.DefaultSessionIdFactory;
+import com.ibasco.agql.core.transport.udp.NettyMultiSocketUdpTransport;
+import com.ibasco.agql.core.transport.udp.UdpReceiveProfile;
 import com.ibasco.agql.protocols.valve.source.query.request.SourceChallengeRequest;
 import com.ibasco.agql.protocols.valve.source.query.request.SourceInfoRequest;
 import com.ibasco.agql.protocols.valve.source.query.request.SourcePlayerRequest;
@@ -38,10 +41,10 @@ import com.ibasco.agql.protocols.valve.source.query.response.SourceInfoResponse;
 import com.ibasco.agql.protocols.valve.source.query.response.SourcePlayerResponse;
 import com.ibasco.agql.protocols.valve.source.query.response.SourceRulesResponse;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.FixedRecvByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -56,13 +59,56 @@ public class SourceQueryMessenger extends GameServerMessenger<SourceServerReques
         super(ProcessingMode.ASYNCHRONOUS);
     }
 
+    /**
+     * Creates a messenger which shards the requests by server address onto the specified number of lanes
+     *
+     * @param laneCount
+     *         The number of lanes, typically the number of available cores
+     */
+    public SourceQueryMessenger(int laneCount) {
+        this(null, laneCount);
+    }
+
+    /**
+     * Creates a messenger built on the specified runtime
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} providing the event loops of the transport, <code>null</code> for the default
+     *         runtime
+     */
+    public SourceQueryMessenger(SharedRuntime runtime) {
+        this(runtime, 1);
+    }
+
+    /**
+     * Creates a messenger built on the specified runtime, which shards the requests by server address onto the
+     * specified number of lanes
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} providing the event loops of the transport, <code>null</code> for the default
+     *         runtime
+     * @param laneCount
+     *         The number of lanes, typically the number of available cores
+     */
+    public SourceQueryMessenger(SharedRuntime runtime, int laneCount) {
+        super(runtime, new DefaultSessionIdFactory(), ProcessingMode.ASYNCHRONOUS, laneCount);
+    }
+
+    @Override
+    protected Object getCoalescingKey(SourceServerRequest request) {
+        final Object key = super.getCoalescingKey(request);
+        //Each type of challenge is requested separately
+        if (key != null && request instanceof SourceChallengeRequest)
+            return Arrays.asList(key, ((SourceChallengeRequest) request).getType());
+        return key;
+    }
+
     @Override
     protected Transport<SourceServerRequest> createTransportService() {
-        NettyPooledUdpTransport<SourceServerRequest> transport = new NettyPooledUdpTransport<>(ChannelType.NIO_UDP);
+        NettyMultiSocketUdpTransport<SourceServerRequest> transport = new NettyMultiSocketUdpTransport<>(ChannelType.NIO_UDP, getRuntime());
         transport.setChannelInitializer(new SourceQueryChannelInitializer(this));
         transport.addChannelOption(ChannelOption.SO_SNDBUF, 1048576);
-        transport.addChannelOption(ChannelOption.SO_RCVBUF, 1048576);
-        transport.addChannelOption(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(1400));
+        UdpReceiveProfile.DEFAULT.applyTo(transport);
         return transport;
     }
 
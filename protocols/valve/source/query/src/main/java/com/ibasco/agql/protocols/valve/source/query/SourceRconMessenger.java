@@ -30,6 +30,7 @@ import com.ibasco.agql.core.enums.ProcessingMode;
 import com.ibasco.agql.core.enums.RequestPriority;
 import com.ibasco.agql.core.exceptions.MessengerException;
 import com.ibasco.agql.core.messenger.GameServerMessenger;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.transport.tcp.NettyPooledTcpTransport;
 import com.ibasco.agql.protocols.valve.source.query.enums.SourceRconRequestType;
 import com.ibasco.agql.protocols.valve.source.query.request.SourceRconAuthRequest;
@@ -53,13 +54,26 @@ public class SourceRconMessenger extends GameServerMessenger<SourceRconRequest,
     private boolean terminatingPacketsEnabled = false;
 
     public SourceRconMessenger(boolean terminatingPacketsEnabled) {
-        super(new SourceRconSessionIdFactory(), ProcessingMode.SYNCHRONOUS);
+        this(null, terminatingPacketsEnabled);
+    }
+
+    /**
+     * Creates a messenger built on the specified runtime
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} providing the event loops of the transport, <code>null</code> for the default
+     *         runtime
+     * @param terminatingPacketsEnabled
+     *         Set to <code>true</code> to send terminator packets for every command
+     */
+    public SourceRconMessenger(SharedRuntime runtime, boolean terminatingPacketsEnabled) {
+        super(runtime, new SourceRconSessionIdFactory(), ProcessingMode.SYNCHRONOUS, 1);
         this.terminatingPacketsEnabled = terminatingPacketsEnabled;
     }
 
     @Override
     protected Transport<SourceRconRequest> createTransportService() {
-        NettyPooledTcpTransport<SourceRconRequest> transport = new NettyPooledTcpTransport<>(ChannelType.NIO_TCP);
+        NettyPooledTcpTransport<SourceRconRequest> transport = new NettyPooledTcpTransport<>(ChannelType.NIO_TCP, getRuntime());
         transport.setChannelInitializer(new SourceRconChannelInitializer(this));
         transport.addChannelOption(ChannelOption.SO_SNDBUF, 1048576 * 4);
         transport.addChannelOption(ChannelOption.SO_RCVBUF, 1048576 * 4);
@@ -39,10 +39,8 @@ public class SourceRconSessionIdFactory extends AbstractSessionIdFactory<SourceR
         if (!(message instanceof SourceRconMessage)) {
             throw new IllegalStateException("Message is not an instance of SourceRconMessage");
         }
-        /*String id = new StringBuffer().append(createIdStringFromMsg(message)).toString();*/
-        String id = new StringBuffer().append(createIdStringFromMsg(message)).append(":")
-                .append(((SourceRconMessage) message).getRequestId()).toString();
-        return new SessionId(id);
+        //The rcon request id tells apart the exchanges made over the same connection
+        return createIdFromMsg(message, ((SourceRconMessage) message).getRequestId());
     }
 
     @Override
@@ -28,12 +28,13 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.SettableFuture;
 import com.ibasco.agql.core.client.AbstractGameServerClient;
 import com.ibasco.agql.core.enums.RequestPriority;
 import com.ibasco.agql.core.exceptions.CacheTimeoutException;
+import com.ibasco.agql.core.reactive.RequestPublisher;
+import com.ibasco.agql.core.reactive.RequestResult;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.protocols.valve.source.query.SourceQueryMessenger;
 import com.ibasco.agql.protocols.valve.source.query.SourceServerRequest;
 import com.ibasco.agql.protocols.valve.source.query.SourceServerResponse;
@@ -44,6 +45,7 @@ import com.ibasco.agql.protocols.valve.source.query.request.SourceChallengeReque
 import com.ibasco.agql.protocols.valve.source.query.request.SourceInfoRequest;
 import com.ibasco.agql.protocols.valve.source.query.request.SourcePlayerRequest;
 import com.ibasco.agql.protocols.valve.source.query.request.SourceRulesRequest;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +55,7 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.stream.Stream;
 
 /**
  * A client used for querying information on Source servers. Based on the Valve Source Query Protocol.
@@ -64,8 +67,7 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
 
     private static final Logger log = LoggerFactory.getLogger(SourceQueryClient.class);
     private static final int MAX_CHALLENGE_CACHE_SIZE = 32000;
-    private final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("cache-pool-%d").setDaemon(true).build();
-    private final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(64, threadFactory));
+    private final ConcurrentMap<InetSocketAddress, CompletableFuture<Integer>> pendingChallenges = new ConcurrentHashMap<>();
     private LoadingCache<InetSocketAddress, Integer> challengeCache;
     private int maxCacheSize = MAX_CHALLENGE_CACHE_SIZE;
     private Duration cacheExpiration = Duration.ofMinutes(15);
@@ -75,7 +77,45 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
      * Default Constructor using the {@link SourceQueryMessenger}
      */
     public SourceQueryClient() {
-        super(new SourceQueryMessenger());
+        this(null);
+    }
+
+    /**
+     * Creates a client whose messenger shards the requests by server address onto the specified number of lanes.
+     * Recommended when querying a large number of servers concurrently.
+     *
+     * @param laneCount
+     *         The number of lanes, typically the number of available cores
+     */
+    public SourceQueryClient(int laneCount) {
+        this(null, laneCount);
+    }
+
+    /**
+     * Creates a client built on the specified runtime, sharing its threads with the other clients built on it
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     */
+    public SourceQueryClient(SharedRuntime runtime) {
+        this(runtime, new SourceQueryMessenger(runtime));
+    }
+
+    /**
+     * Creates a client built on the specified runtime whose messenger shards the requests by server address onto the
+     * specified number of lanes
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     * @param laneCount
+     *         The number of lanes, typically the number of available cores
+     */
+    public SourceQueryClient(SharedRuntime runtime, int laneCount) {
+        this(runtime, new SourceQueryMessenger(runtime, laneCount));
+    }
+
+    private SourceQueryClient(SharedRuntime runtime, SourceQueryMessenger messenger) {
+        super(messenger);
     }
 
     /**
@@ -93,12 +133,34 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
         return sendRequest(new SourceChallengeRequest(type, address), RequestPriority.HIGH);
     }
 
+    /**
+     * <p>Retrieves a Server Challenge number from the server, failing if no response has been received within the
+     * specified time.</p>
+     *
+     * @param type
+     *         A {@link SourceChallengeType}
+     * @param address
+     *         The {@link InetSocketAddress} of the source server
+     * @param timeout
+     *         The time allotted to the query, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @return A {@link CompletableFuture} returning a value of {@link Integer} representing the server challenge number
+     *
+     * @see #getServerChallenge(SourceChallengeType, InetSocketAddress)
+     */
+    public CompletableFuture<Integer> getServerChallenge(SourceChallengeType type, InetSocketAddress address, long timeout, TimeUnit unit) {
+        return sendRequest(new SourceChallengeRequest(type, address), RequestPriority.HIGH, timeout, unit);
+    }
+
     /**
      * <p>Retrieves a challenge number from the internal cache if available.  If the challenge number does not yet exist
      * in the cache then a
      * request (using: {@link #getServerChallenge(SourceChallengeType, InetSocketAddress)}) will be issued to the server
      * to obtain the latest challenge number.</p>
-     * <p>This is considered to be thread-safe.</p>
+     * <p>This is considered to be thread-safe. No thread is blocked while the challenge is being retrieved, and
+     * concurrent lookups of the same address share a single challenge request.</p>
      *
      * @param address
      *         The {@link InetSocketAddress} of the source server
@@ -107,14 +169,26 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
      *
      * @see #getServerChallenge(SourceChallengeType, InetSocketAddress)
      */
-    public synchronized CompletableFuture<Integer> getServerChallengeFromCache(InetSocketAddress address) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return getChallengeCache().get(address);
-            } catch (ExecutionException e) {
-                throw new CacheTimeoutException(e.getCause());
-            }
-        }, executorService);
+    public CompletableFuture<Integer> getServerChallengeFromCache(InetSocketAddress address) {
+        final LoadingCache<InetSocketAddress, Integer> cache = getChallengeCache();
+        final Integer challenge = cache.getIfPresent(address);
+        if (challenge != null)
+            return CompletableFuture.completedFuture(challenge);
+        final CompletableFuture<Integer> promise = new CompletableFuture<>();
+        final CompletableFuture<Integer> pending = pendingChallenges.putIfAbsent(address, promise);
+        if (pending == null) {
+            getServerChallenge(SourceChallengeType.ANY, address).whenComplete((value, error) -> {
+                if (error == null)
+                    cache.put(address, value);
+                pendingChallenges.remove(address, promise);
+                if (error != null)
+                    promise.completeExceptionally(new CacheTimeoutException((error instanceof CompletionException) ? error.getCause() : error));
+                else
+                    promise.complete(value);
+            });
+        }
+        //Hand out a dependent future so that a caller cancelling it does not affect the others
+        return ((pending != null) ? pending : promise).thenApply(value -> value);
     }
 
     /**
@@ -134,6 +208,27 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
                 .thenCompose(challenge -> getServerRules(challenge, address));
     }
 
+    /**
+     * <p>Retrieve source server rules information, failing if the challenge and rules queries have not completed
+     * within the specified time. The deadline covers both queries.</p>
+     *
+     * @param address
+     *         The {@link InetSocketAddress} of the source server
+     * @param timeout
+     *         The time allotted to the queries, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @return A {@link CompletableFuture} that contains a {@link Map} of server rules
+     *
+     * @see #getServerRules(InetSocketAddress)
+     */
+    public CompletableFuture<Map<String, String>> getServerRules(InetSocketAddress address, long timeout, TimeUnit unit) {
+        final long deadline = deadline(timeout, unit);
+        return getServerChallenge(SourceChallengeType.RULES, address, timeout, unit)
+                .thenCompose(challenge -> sendRequest(new SourceRulesRequest(challenge, address), remaining(deadline), TimeUnit.NANOSECONDS));
+    }
+
     /**
      * <p>
      * Retrieve source server rules information. You NEED to obtain a valid challenge number from the server first.
@@ -191,6 +286,28 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
                 .thenCompose(challenge -> getPlayers(challenge, address));
     }
 
+    /**
+     * <p>Retrieve a list of active players in the server, failing if the challenge and player queries have not
+     * completed within the specified time. The deadline covers both queries.</p>
+     *
+     * @param address
+     *         The {@link InetSocketAddress} of the source server
+     * @param timeout
+     *         The time allotted to the queries, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @return A {@link CompletableFuture} that contains a {@link List} of {@link SourcePlayer} currently residing on
+     * the server
+     *
+     * @see #getPlayers(InetSocketAddress)
+     */
+    public CompletableFuture<List<SourcePlayer>> getPlayers(InetSocketAddress address, long timeout, TimeUnit unit) {
+        final long deadline = deadline(timeout, unit);
+        return getServerChallenge(SourceChallengeType.PLAYER, address, timeout, unit)
+                .thenCompose(challenge -> sendRequest(new SourcePlayerRequest(challenge, address), remaining(deadline), TimeUnit.NANOSECONDS));
+    }
+
     /**
      * <p>Retrieve a list of active players in the server. You NEED to obtain a valid challenge number from the server
      * first.</p>
@@ -241,6 +358,87 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
         return sendRequest(new SourceInfoRequest(address));
     }
 
+    /**
+     * <p>Retrieves information of the Source Server, failing if no response has been received within the specified
+     * time.</p>
+     *
+     * @param address
+     *         The {@link InetSocketAddress} of the source server
+     * @param timeout
+     *         The time allotted to the query, zero for no deadline
+     * @param unit
+     *         The {@link TimeUnit} of the timeout
+     *
+     * @return A {@link CompletableFuture} that contains {@link SourceServer} instance, completed exceptionally with a
+     * {@link com.ibasco.agql.core.exceptions.DeadlineExceededException} if the query could not be sent in time
+     */
+    public CompletableFuture<SourceServer> getServerInfo(InetSocketAddress address, long timeout, TimeUnit unit) {
+        return sendRequest(new SourceInfoRequest(address), timeout, unit);
+    }
+
+    /**
+     * @return The absolute deadline ({@link System#nanoTime()} based) of a timeout, or zero if there is none
+     */
+    private static long deadline(long timeout, TimeUnit unit) {
+        return (timeout > 0) ? System.nanoTime() + unit.toNanos(timeout) : 0;
+    }
+
+    /**
+     * @return The nanoseconds left until the deadline, at least one so that an elapsed deadline is not mistaken for
+     * no deadline
+     */
+    private static long remaining(long deadline) {
+        return (deadline == 0) ? 0 : Math.max(1, deadline - System.nanoTime());
+    }
+
+    /**
+     * <p>Retrieves information of each Source Server as demanded by the subscriber. Servers are only queried once
+     * the subscriber has requested their result, so a slow subscriber limits the number of outstanding queries.</p>
+     *
+     * @param addresses
+     *         A {@link Stream} of {@link InetSocketAddress} of the source servers. The stream is consumed lazily and the
+     *         returned {@link Publisher} only allows a single subscriber.
+     *
+     * @return A {@link Publisher} emitting a {@link RequestResult} per server, in completion order
+     *
+     * @see #getServerInfo(InetSocketAddress)
+     */
+    public Publisher<RequestResult<InetSocketAddress, SourceServer>> getServerInfo(Stream<InetSocketAddress> addresses) {
+        return RequestPublisher.fromStream(addresses, this::getServerInfo);
+    }
+
+    /**
+     * <p>Retrieves the list of active players of each Source Server as demanded by the subscriber. The challenge
+     * numbers are retrieved from the internal cache.</p>
+     *
+     * @param addresses
+     *         A {@link Stream} of {@link InetSocketAddress} of the source servers. The stream is consumed lazily and the
+     *         returned {@link Publisher} only allows a single subscriber.
+     *
+     * @return A {@link Publisher} emitting a {@link RequestResult} per server, in completion order
+     *
+     * @see #getPlayersCached(InetSocketAddress)
+     */
+    public Publisher<RequestResult<InetSocketAddress, List<SourcePlayer>>> getPlayers(Stream<InetSocketAddress> addresses) {
+        return RequestPublisher.fromStream(addresses, this::getPlayersCached);
+    }
+
+    /**
+     * <p>Retrieves the server rules of each Source Server as demanded by the subscriber. The challenge numbers are
+     * retrieved from the internal cache.</p>
+     *
+     * @param addresses
+     *         A {@link Stream} of {@link InetSocketAddress} of the source servers. The stream is consumed lazily and the
+     *         returned {@link Publisher} only allows a single subscriber.
+     *
+     * @return A {@link Publisher} emitting a {@link RequestResult} per server, in completion order
+     *
+     * @see #getServerRulesCached(InetSocketAddress)
+     */
+    public Publisher<RequestResult<InetSocketAddress, Map<String, String>>> getServerRules(Stream<InetSocketAddress> addresses) {
+        return RequestPublisher.fromStream(addresses, this::getServerRulesCached);
+    }
+
     /**
      * @return The maxmimum size allowable for the internal challenge cache
      */
@@ -299,7 +497,8 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
     }
 
     /**
-     * Retrieve the internal challenge cache of this instance
+     * Retrieve the internal challenge cache of this instance. Note that {@link LoadingCache#get(Object)} blocks the
+     * calling thread until the challenge has been received, prefer {@link #getServerChallengeFromCache(InetSocketAddress)}.
      *
      * @return A {@link LoadingCache} containing a map of {@link InetSocketAddress} keys and {@link Integer} values.
      */
@@ -321,7 +520,14 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
                         @Override
                         public ListenableFuture<Integer> reload(InetSocketAddress key, Integer oldValue) throws Exception {
                             log.debug("Refreshing challenge number for : {}, Old Value = {}", key, oldValue);
-                            return executorService.submit(() -> load(key));
+                            final SettableFuture<Integer> challenge = SettableFuture.create();
+                            getServerChallenge(SourceChallengeType.ANY, key).whenComplete((value, error) -> {
+                                if (error != null)
+                                    challenge.setException(error);
+                                else
+                                    challenge.set(value);
+                            });
+                            return challenge;
                         }
                     });
         }
@@ -337,11 +543,5 @@ public class SourceQueryClient extends AbstractGameServerClient<SourceServerRequ
     public void close() throws IOException {
         super.close();
         getChallengeCache().cleanUp();
-        try {
-            executorService.shutdown();
-            executorService.awaitTermination(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            log.error("Interrupted Shutdown", e);
-        }
     }
 }
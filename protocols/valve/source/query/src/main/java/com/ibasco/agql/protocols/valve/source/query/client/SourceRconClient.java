@@ -26,6 +26,7 @@ package com.ibasco.agql.protocols.valve.source.query.client;
 
 import com.ibasco.agql.core.AbstractClient;
 import com.ibasco.agql.core.enums.RequestPriority;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.utils.EncryptUtils;
 import com.ibasco.agql.protocols.valve.source.query.SourceRconAuthStatus;
 import com.ibasco.agql.protocols.valve.source.query.SourceRconMessenger;
@@ -80,7 +81,19 @@ public class SourceRconClient extends AbstractClient<SourceRconRequest, SourceRc
      *         Set to <code>true</code> to send terminator packets for every command.
      */
     public SourceRconClient(boolean sendTerminatingPacket) {
-        super(new SourceRconMessenger(sendTerminatingPacket));
+        this(null, sendTerminatingPacket);
+    }
+
+    /**
+     * Creates a client built on the specified runtime, sharing its threads with the other clients built on it
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     * @param sendTerminatingPacket
+     *         Set to <code>true</code> to send terminator packets for every command.
+     */
+    public SourceRconClient(SharedRuntime runtime, boolean sendTerminatingPacket) {
+        super(new SourceRconMessenger(runtime, sendTerminatingPacket));
         credentialsMap = new ConcurrentHashMap<>();
     }
 
@@ -42,6 +42,10 @@ public class SourceChallengeRequest extends SourceServerRequest<SourceChallengeR
         this.type = type;
     }
 
+    public SourceChallengeType getType() {
+        return type;
+    }
+
     @Override
     public SourceChallengeRequestPacket getMessage() {
         return new SourceChallengeRequestPacket(type);
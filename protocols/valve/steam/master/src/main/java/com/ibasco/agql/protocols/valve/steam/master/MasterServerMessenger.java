@@ -28,7 +28,10 @@ import com.ibasco.agql.core.Transport;
 import com.ibasco.agql.core.enums.ChannelType;
 import com.ibasco.agql.core.enums.ProcessingMode;
 import com.ibasco.agql.core.messenger.GameServerMessenger;
-import com.ibasco.agql.core.transport.udp.NettyPooledUdpTransport;
+import com.ibasco.agql.core.runtime.SharedRuntime;
+import com.ibasco.agql.core.session.DefaultSessionIdFactory;
+import com.ibasco.agql.core.transport.udp.NettyMultiSocketUdpTransport;
+import com.ibasco.agql.core.transport.udp.UdpReceiveProfile;
 import io.netty.channel.ChannelOption;
 
 import java.util.Map;
@@ -38,21 +41,44 @@ import java.util.Map;
  */
 public class MasterServerMessenger extends GameServerMessenger<MasterServerRequest, MasterServerResponse> {
 
+    /**
+     * The size of the receive buffer of a datagram, a page of the server list is larger than the datagrams of the
+     * other protocols
+     */
+    private static final int MAX_DATAGRAM_SIZE = 2048;
+
     public MasterServerMessenger() {
         super(ProcessingMode.ASYNCHRONOUS);
     }
 
+    /**
+     * Creates a messenger built on the specified runtime
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} providing the event loops of the transport, <code>null</code> for the default
+     *         runtime
+     */
+    public MasterServerMessenger(SharedRuntime runtime) {
+        super(runtime, new DefaultSessionIdFactory(), ProcessingMode.ASYNCHRONOUS, 1);
+    }
+
     @Override
     protected Transport<MasterServerRequest> createTransportService() {
-        NettyPooledUdpTransport<MasterServerRequest> transport = new NettyPooledUdpTransport<>(ChannelType.NIO_UDP);
+        NettyMultiSocketUdpTransport<MasterServerRequest> transport = new NettyMultiSocketUdpTransport<>(ChannelType.NIO_UDP, getRuntime());
         //Set our channel initializer
         transport.setChannelInitializer(new MasterServerChannelInitializer(this));
         //Channel Options
         transport.addChannelOption(ChannelOption.SO_SNDBUF, 1048576);
-        transport.addChannelOption(ChannelOption.SO_RCVBUF, 1048576 * 8);
+        //The pages of a query arrive back to back
+        new UdpReceiveProfile(1048576 * 8, UdpReceiveProfile.DEFAULT.getMaxMessagesPerRead(), MAX_DATAGRAM_SIZE).applyTo(transport);
         return transport;
     }
 
+    @Override
+    public int getMinDatagramSize() {
+        return MAX_DATAGRAM_SIZE;
+    }
+
     @Override
     public void configureMappings(Map<Class<? extends MasterServerRequest>, Class<? extends MasterServerResponse>> map) {
         map.put(MasterServerRequest.class, MasterServerResponse.class);
@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Asynchronous Game Query Library
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.ibasco.agql.protocols.valve.steam.master.client;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * <p>A Reactive Streams {@link Publisher} emitting the server addresses returned by the Steam Master Server.</p>
+ *
+ * <p>The master server returns the list in pages, each page being requested with the last address of the previous
+ * page as the seed. The next page is only requested once every address of the current page has been delivered and
+ * the subscriber still has outstanding demand, so the pace of the queries follows the pace of the subscriber.</p>
+ *
+ * @see MasterServerQueryClient#getServerListPublisher(com.ibasco.agql.protocols.valve.steam.master.enums.MasterServerType,
+ * com.ibasco.agql.protocols.valve.steam.master.enums.MasterServerRegion, com.ibasco.agql.protocols.valve.steam.master.MasterServerFilter)
+ */
+public class MasterServerListPublisher implements Publisher<InetSocketAddress> {
+
+    private final Function<InetSocketAddress, CompletableFuture<Vector<InetSocketAddress>>> pageFetcher;
+
+    /**
+     * @param pageFetcher
+     *         A function retrieving the page of servers following the seed address
+     */
+    MasterServerListPublisher(Function<InetSocketAddress, CompletableFuture<Vector<InetSocketAddress>>> pageFetcher) {
+        this.pageFetcher = pageFetcher;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super InetSocketAddress> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber must not be null");
+        final ServerListSubscription subscription = new ServerListSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private final class ServerListSubscription implements Subscription {
+
+        private final Subscriber<? super InetSocketAddress> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final AtomicReference<Vector<InetSocketAddress>> receivedPage = new AtomicReference<>();
+
+        private volatile Throwable error;
+
+        private volatile boolean cancelled;
+
+        private volatile CompletableFuture<Vector<InetSocketAddress>> pendingPage;
+
+        //The following fields are only accessed from within the drain loop
+        private final ArrayDeque<InetSocketAddress> buffer = new ArrayDeque<>();
+
+        private InetSocketAddress seed = MasterServerQueryClient.START_ADDRESS;
+
+        private boolean fetching;
+
+        private boolean lastPage;
+
+        private ServerListSubscription(Subscriber<? super InetSocketAddress> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Rule 3.9: Number of requested elements must be positive (Requested: " + n + ")");
+            } else {
+                long current, next;
+                do {
+                    current = requested.get();
+                    if (current == Long.MAX_VALUE)
+                        break;
+                    next = current + n;
+                    if (next < 0)
+                        next = Long.MAX_VALUE;
+                } while (!requested.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            final CompletableFuture<Vector<InetSocketAddress>> page = pendingPage;
+            if (page != null)
+                page.cancel(false);
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0)
+                return;
+            int missed = 1;
+            do {
+                if (cancelled)
+                    return;
+                if (error != null) {
+                    cancelled = true;
+                    subscriber.onError(error);
+                    return;
+                }
+
+                final Vector<InetSocketAddress> page = receivedPage.getAndSet(null);
+                if (page != null)
+                    acceptPage(page);
+
+                while (!buffer.isEmpty() && requested.get() > 0) {
+                    subscriber.onNext(buffer.poll());
+                    if (cancelled)
+                        return;
+                    if (requested.get() != Long.MAX_VALUE)
+                        requested.decrementAndGet();
+                }
+
+                if (buffer.isEmpty()) {
+                    if (lastPage) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (!fetching && requested.get() > 0 && !fetchNextPage()) {
+                        cancelled = true;
+                        subscriber.onError(error);
+                        return;
+                    }
+                }
+            } while ((missed = wip.addAndGet(-missed)) != 0);
+        }
+
+        private void acceptPage(Vector<InetSocketAddress> page) {
+            fetching = false;
+            if (page.isEmpty()) {
+                lastPage = true;
+                return;
+            }
+            //The first entry of a page is the seed we sent, skip it along with the terminator address
+            for (InetSocketAddress address : page) {
+                if (!address.equals(seed) && !MasterServerQueryClient.isIpTerminator(address))
+                    buffer.add(address);
+            }
+            seed = page.lastElement();
+            if (MasterServerQueryClient.isIpTerminator(seed))
+                lastPage = true;
+        }
+
+        /**
+         * @return <code>false</code> if the request for the next page could not be issued
+         */
+        private boolean fetchNextPage() {
+            fetching = true;
+            try {
+                final CompletableFuture<Vector<InetSocketAddress>> future = pageFetcher.apply(seed);
+                pendingPage = future;
+                //The subscription may have been cancelled before the future was published
+                if (cancelled)
+                    future.cancel(false);
+                future.whenComplete((page, ex) -> {
+                    pendingPage = null;
+                    if (ex != null)
+                        error = ex;
+                    else
+                        receivedPage.set(page);
+                    drain();
+                });
+                return true;
+            } catch (Exception e) {
+                error = e;
+                return false;
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.ibasco.agql.core.client.AbstractGameServerClient;
 import com.ibasco.agql.core.enums.RequestPriority;
 import com.ibasco.agql.core.exceptions.AsyncGameLibUncheckedException;
 import com.ibasco.agql.core.functions.TriConsumer;
+import com.ibasco.agql.core.runtime.SharedRuntime;
 import com.ibasco.agql.core.utils.ConcurrentUtils;
 import com.ibasco.agql.protocols.valve.steam.master.MasterServerFilter;
 import com.ibasco.agql.protocols.valve.steam.master.MasterServerMessenger;
@@ -35,6 +36,7 @@ import com.ibasco.agql.protocols.valve.steam.master.MasterServerRequest;
 import com.ibasco.agql.protocols.valve.steam.master.MasterServerResponse;
 import com.ibasco.agql.protocols.valve.steam.master.enums.MasterServerRegion;
 import com.ibasco.agql.protocols.valve.steam.master.enums.MasterServerType;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,10 +54,25 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class MasterServerQueryClient extends AbstractGameServerClient<MasterServerRequest, MasterServerResponse, MasterServerMessenger> {
     private static final Logger log = LoggerFactory.getLogger(MasterServerQueryClient.class);
 
+    /**
+     * As per protocol specs, this is the seed address of the first page
+     */
+    static final InetSocketAddress START_ADDRESS = new InetSocketAddress("0.0.0.0", 0);
+
     public MasterServerQueryClient() {
         super(new MasterServerMessenger());
     }
 
+    /**
+     * Creates a client built on the specified runtime, sharing its threads with the other clients built on it
+     *
+     * @param runtime
+     *         The {@link SharedRuntime} to use or <code>null</code> for the default runtime
+     */
+    public MasterServerQueryClient(SharedRuntime runtime) {
+        super(new MasterServerMessenger(runtime));
+    }
+
     /**
      * <p>A helper to determine if the address is a terminator type address</p>
      *
@@ -64,7 +81,7 @@ public class MasterServerQueryClient extends AbstractGameServerClient<MasterServ
      *
      * @return true if the {@link InetSocketAddress} supplied is a terminator address
      */
-    private static boolean isIpTerminator(InetSocketAddress address) {
+    static boolean isIpTerminator(InetSocketAddress address) {
         return "0.0.0.0".equals(address.getAddress().getHostAddress()) && address.getPort() == 0;
     }
 
@@ -102,8 +119,27 @@ public class MasterServerQueryClient extends AbstractGameServerClient<MasterServ
      */
     public CompletableFuture<Vector<InetSocketAddress>> getServerList(final MasterServerType type, final MasterServerRegion region, final MasterServerFilter filter, final TriConsumer<InetSocketAddress, InetSocketAddress, Throwable> callback) {
         //As per protocol specs, this get required as our starting seed address
-        InetSocketAddress startAddress = new InetSocketAddress("0.0.0.0", 0);
-        return CompletableFuture.supplyAsync(() -> this.getServersFromStartAddress(startAddress, type, region, filter, callback));
+        return CompletableFuture.supplyAsync(() -> this.getServersFromStartAddress(START_ADDRESS, type, region, filter, callback));
+    }
+
+    /**
+     * <p>Retrieves the list of servers from the Steam Master Server as a Reactive Streams {@link Publisher}. Pages are
+     * only requested from the master server as the subscriber signals demand.</p>
+     *
+     * @param type
+     *         A {@link MasterServerType} to indicate which type of servers the master server should return
+     * @param region
+     *         A {@link MasterServerRegion} value that specifies which server region the master server should return
+     * @param filter
+     *         A {@link MasterServerFilter} representing a set of filters to be used by the query
+     *
+     * @return A {@link Publisher} emitting the address of each server
+     *
+     * @see #getServerList(MasterServerType, MasterServerRegion, MasterServerFilter, TriConsumer)
+     */
+    public Publisher<InetSocketAddress> getServerListPublisher(final MasterServerType type, final MasterServerRegion region, final MasterServerFilter filter) {
+        final InetSocketAddress destination = type.getMasterAddress();
+        return new MasterServerListPublisher(seed -> sendRequest(new MasterServerRequest(destination, region, filter, seed), RequestPriority.HIGH));
     }
 
     /**